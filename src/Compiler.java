@@ -3,36 +3,58 @@ import backend.beforeopt.OldTranslator;
 import backend.mips.MipsModule;
 import frontend.Lexer;
 import frontend.Parser;
+import frontend.TokenStream;
 import llvmir.Module;
 import middle.irbuilder.Visitor;
 import middle.optimizer.Optimizer;
+import utils.CompilationContext;
 import utils.FileIO;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.CharBuffer;
 
 public class Compiler {
     private static final boolean Optimize = true;   // whether optimize
 
     public static void main(String[] args) throws IOException {
-        // Step 1: read source code from test file
-        String sourceCode = FileIO.readTestFile();
+        if (args.length > 0 && args[0].startsWith("--server")) {
+            CompilerServer.main(args);
+            return;
+        }
+        // Step 0 & 1: choose which files to output, read source code from test file
+        compile(CompilationContext.fromFiles(args));
+    }
 
-        // Step 2: go to Lexical Analysis and print the result from lexer
-        Lexer lexer = new Lexer(sourceCode);
-        lexer.analyzeCode();
-        FileIO.printLexerResult(lexer.getTokens());
+    /**
+     * All state of one compilation lives in the context and in objects created here,
+     * so compilations can run concurrently in one JVM
+     */
+    public static void compile(CompilationContext context) throws IOException {
+        CharBuffer sourceCode = context.getSource();
 
-        // Step 3: go to Syntactic Analysis and print the result from parser
-        Parser parser = new Parser(lexer.getTokens(), lexer.getErrors());
-        parser.analyzeTokens();
-        FileIO.printParserResult(parser.getCompUnit());
+        // Step 2 & 3: Lexical and Syntactic Analysis in one pass,
+        // parser pulls tokens from lexer on demand and lexer result is printed along the way
+        Lexer lexer = new Lexer(sourceCode);
+        Parser parser;
+        try (BufferedWriter lexerWriter = FileIO.openLexerWriter(context)) {
+            parser = new Parser(new TokenStream(lexer, lexerWriter), lexer.getErrors());
+            parser.analyzeTokens();
+        }
+        FileIO.printParserResult(context, parser.getCompUnit());
+        if (context.isStats()) {
+            // lookahead is bounded: each token should be examined a constant number of times
+            System.err.printf("tokens: %d examined / %d total (%.2f per token)%n",
+                    parser.getTokensExamined(), parser.getTokensTotal(),
+                    (double) parser.getTokensExamined() / Math.max(1, parser.getTokensTotal()));
+        }
 
         // Step 4: go to Semantic Analysis and build LLVM IR
         // print the Symbol Table and errors from visitor
         Visitor visitor = new Visitor(parser.getCompUnit(), parser.getErrors());
         visitor.buildIR();
-        FileIO.printSymTableResult(visitor.getSymbolTables());
-        FileIO.printError(visitor.getErrors());
+        FileIO.printSymTableResult(context, visitor.getSymbolTables());
+        FileIO.printError(context, visitor.getErrors());
         if (!visitor.getErrors().isEmpty()) {
             return;
         }
@@ -40,32 +62,35 @@ public class Compiler {
         // Step 5: Mid optimize
         Module module = visitor.getModule();
         Optimizer optimizer = new Optimizer(module);
+        optimizer.setAllocator(context.getAllocator());
         if (Optimize) {
             // Save the IR code before optimizing
-            module.setVirtualName();
-            FileIO.printLlvmIrResult(module, FileIO.NoOptimizeIrFilePath);
+            if (context.isEnabled(FileIO.Artifact.NO_OPT_IR)) {
+                module.setVirtualName();
+                FileIO.printLlvmIrResult(context, module, FileIO.Artifact.NO_OPT_IR);
+            }
             optimizer.optimizeSSA();
         }
 
         // Step 6: print the LLVM IR
         module.setVirtualName();
-        FileIO.printLlvmIrResult(module, FileIO.llvmIrFilePath);
+        FileIO.printLlvmIrResult(context, module, FileIO.Artifact.LLVM_IR);
         if (Optimize) {
-            FileIO.printLlvmIrResult(module, FileIO.OptimizeIrFilePath);
+            FileIO.printLlvmIrResult(context, module, FileIO.Artifact.OPT_IR);
         }
 
         // Step 7: generate Mips code and print the result
         if (Optimize) {
             optimizer.optimizeBackend();
-            FileIO.printLlvmIrResult(module, FileIO.optimizeFilePath);
+            FileIO.printLlvmIrResult(context, module, FileIO.Artifact.BACKEND_IR);
             Translator translator = new Translator(module);
             translator.genMipsCode();
             MipsModule mipsModule = translator.getMipsModule();
-            FileIO.printMipsCode(mipsModule);
+            FileIO.printMipsCode(context, mipsModule);
         } else {
             OldTranslator translator = new OldTranslator(module);
             translator.genMipsCode();
-            FileIO.printMipsCode(translator.getDataSegment(), translator.getTextSegment());
+            FileIO.printMipsCode(context, translator.getDataSegment(), translator.getTextSegment());
         }
     }
 }
@@ -0,0 +1,194 @@
+import utils.CompilationContext;
+import utils.FileIO.Artifact;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻的编译服务：一个JVM处理多次编译请求，JVM启动和JIT预热只付出一次。
+ * 请求来自标准输入(--server)或本地端口上的连接(--server=port)，两者格式相同。
+ * <p>
+ * 请求：{@code compile <源码字节数> [选项]\n} 后跟UTF-8源码，选项与命令行相同(如--profile=release)；
+ *       {@code quit\n} 结束会话，{@code shutdown\n} 结束会话并停止服务(端口模式下不再接受新连接)；
+ *       源码超过{@value #MAX_SOURCE_BYTES}字节时回复fail并结束会话，因为无法可靠地跳过后面的源码
+ * <p>
+ * 响应：每个输出文件一帧 {@code <文件名> <字节数>\n} 后跟内容(文件名同--emit)，
+ *       最后是 {@code done <微秒>\n} 给出本次请求的耗时；出错时为 {@code fail <字节数>\n} 后跟错误信息
+ */
+public class CompilerServer {
+    private static final long STACK_SIZE = 64L << 20;  // 语句和块的嵌套在语法分析与生成IR时仍是递归的
+    private static final int MAX_SOURCE_BYTES = 16 << 20;   // 源码按声明的长度一次读入，长度要有上限
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private volatile ServerSocket serverSocket;
+    private volatile boolean stopped;
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length == 0 ? "--server" : args[0];
+        CompilerServer server = new CompilerServer();
+        if (mode.equals("--server")) {
+            Thread thread = newThread(() -> {
+                try {
+                    server.serve(System.in, System.out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (mode.startsWith("--server=")) {
+            server.listen(Integer.parseInt(mode.substring("--server=".length())));
+        } else {
+            throw new IllegalArgumentException("unknown option: " + mode);
+        }
+        server.printSummary();
+    }
+
+    private static Thread newThread(Runnable task) {
+        return new Thread(null, task, "compile", STACK_SIZE);
+    }
+
+    /**
+     * 每个连接一个线程，各次编译之间只共用优化用的线程池；收到shutdown后等进行中的连接结束再返回
+     */
+    public void listen(int port) throws IOException {
+        ExecutorService workers = Executors.newCachedThreadPool(CompilerServer::newThread);
+        try (ServerSocket listener = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket = listener;
+            System.err.println("listening on " + listener.getLocalSocketAddress());
+            while (!stopped) {
+                Socket socket;
+                try {
+                    socket = listener.accept();
+                } catch (SocketException e) {
+                    if (stopped) {
+                        break;  // shutdown关闭了监听端口
+                    }
+                    throw e;
+                }
+                workers.execute(() -> {
+                    try (Socket s = socket) {
+                        serve(s.getInputStream(), s.getOutputStream());
+                    } catch (IOException e) {
+                        System.err.println("connection closed: " + e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void stop() throws IOException {
+        stopped = true;
+        ServerSocket listener = serverSocket;
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+    /**
+     * 处理请求直到quit、shutdown或输入结束
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        BufferedOutputStream out = new BufferedOutputStream(output);
+        String header;
+        while ((header = readLine(in)) != null && !header.equals("quit")) {
+            if (header.isEmpty()) {
+                continue;
+            }
+            if (header.equals("shutdown")) {
+                stop();
+                break;
+            }
+            String[] words = header.split(" ");
+            if (!words[0].equals("compile") || words.length < 2 || !words[1].matches("\\d+")) {
+                writeFrame(out, "fail", ("bad request: " + header).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                continue;
+            }
+            // 数字位数过多时long也会溢出，按超长处理
+            long length = words[1].length() > 18 ? Long.MAX_VALUE : Long.parseLong(words[1]);
+            if (length > MAX_SOURCE_BYTES) {
+                writeFrame(out, "fail", ("source too large: " + words[1] + " bytes, limit "
+                        + MAX_SOURCE_BYTES).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            byte[] source = new byte[(int) length];
+            in.readFully(source);
+            String[] options = new String[words.length - 2];
+            System.arraycopy(words, 2, options, 0, options.length);
+            handle(source, options, out);
+            out.flush();
+        }
+        out.flush();
+    }
+
+    private void handle(byte[] source, String[] options, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        Map<Artifact, ByteArrayOutputStream> results = new EnumMap<>(Artifact.class);
+        try {
+            CompilationContext context = new CompilationContext(new ByteArrayInputStream(source), artifact -> {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                results.put(artifact, stream);
+                return stream;
+            });
+            context.configure(options);
+            Compiler.compile(context);
+        } catch (Exception | StackOverflowError e) {
+            writeFrame(out, "fail", String.valueOf(e).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        requests.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        for (Map.Entry<Artifact, ByteArrayOutputStream> entry : results.entrySet()) {
+            writeFrame(out, entry.getKey().getOption(), entry.getValue().toByteArray());
+        }
+        out.write(("done " + micros + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeFrame(OutputStream out, String name, byte[] content) throws IOException {
+        out.write((name + " " + content.length + "\n").getBytes(StandardCharsets.UTF_8));
+        out.write(content);
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(c);
+        }
+        return line.toString(StandardCharsets.UTF_8).trim();
+    }
+
+    private void printSummary() {
+        long n = requests.get();
+        if (n > 0) {
+            System.err.printf("%d requests, mean latency %.2f ms%n", n, totalMicros.get() / 1000.0 / n);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package backend.afteropt;
 
 import backend.beforeopt.RegManager;
 import backend.mips.*;
+import backend.mips.MipsOperand.Imm;
+import backend.mips.MipsOperand.Label;
+import backend.mips.MipsOperand.Mem;
 import backend.mips.StackManager;
 import llvmir.Module;
 import llvmir.Value;
@@ -9,7 +12,6 @@ import llvmir.ValueType;
 import llvmir.values.*;
 import llvmir.values.instr.*;
 
-import java.math.BigInteger;
 import java.util.*;
 
 import static backend.mips.MipsInstrType.*;
@@ -22,15 +24,17 @@ import static backend.mips.MipsInstrType.*;
 public class Translator {
     private final Module module;
     private final MipsModule mipsModule;
-    private final StackManager stackManager = StackManager.getInstance();
-    private final RegManager regManager = new RegManager();
+    private final StackManager stackManager = new StackManager();
+    private final RegManager regManager;
     private MipsFunction currentFunction;
     private Function irFunction;
     private BasicBlock curBlock;
-    private int maxParams = 0;
+    private int frameSize;      // 当前函数栈帧大小
+    private boolean saveRa;     // 当前函数是否保存了ra
 
     public Translator(Module module) {
         this.module = module;
+        regManager = new RegManager(stackManager);
         mipsModule = new MipsModule();
     }
 
@@ -57,7 +61,6 @@ public class Translator {
 
     public void genTextSegment() {
         ArrayList<Function> functions = module.getFunctions();
-        calMaxParam(functions);
         Collections.reverse(functions); // 翻转list,先解析main
         for (Function function: functions) {
             irFunction = function;
@@ -71,37 +74,28 @@ public class Translator {
         }
     }
 
-    public void calMaxParam(ArrayList<Function> functions) {
-        for (Function function: functions) {
-            int num = function.getArgc();
-            if (num > maxParams) {
-                maxParams = num;
-            }
-        }
-    }
-
     public void genDeclare(Function declare) {
         // 添加函数标签
         // MipsInstruction label = new MipsInstruction(declare.getName());
         MipsFunction mipsFunction = new MipsFunction(declare.getName());
         mipsModule.addFunction(mipsFunction);
         if (declare.getName().equals("putint")) {
-            mipsFunction.addInstr(new MipsInstruction(LI, "$v0", "1"));
+            mipsFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(1)));
         }
         if (declare.getName().equals("putch")) {
-            mipsFunction.addInstr(new MipsInstruction(LI, "$v0", "11"));
+            mipsFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(11)));
         }
         if (declare.getName().equals("putstr")) {
-            mipsFunction.addInstr(new MipsInstruction(LI, "$v0", "4"));
+            mipsFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(4)));
         }
         if (declare.getName().equals("getint")) {
-            mipsFunction.addInstr(new MipsInstruction(LI, "$v0", "5"));
+            mipsFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(5)));
         }
         if (declare.getName().equals("getchar")) {
-            mipsFunction.addInstr(new MipsInstruction(LI, "$v0", "12"));
+            mipsFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(12)));
         }
-        mipsFunction.addInstr(new MipsInstruction(SYSCALL, ""));
-        mipsFunction.addInstr(new MipsInstruction(JR, "$ra"));
+        mipsFunction.addInstr(new MipsInstruction(SYSCALL));
+        mipsFunction.addInstr(new MipsInstruction(JR, MipsRegister.RA));
     }
 
     public void genFunction(Function function) {
@@ -118,70 +112,97 @@ public class Translator {
     /**
      * @param function 被调用的函数
      * <p>
-     *                 函数被调用后申请一个函数栈帧，以此压入ra，fp，局部变量，保存寄存器，参数<br>
-     *                 ra: 若函数非叶子函数，则需要将ra的值压入栈<br>
-     *                 fp: 调用者的栈顶，即旧的sp<br>
+     *                 函数被调用后按实际需要申请栈帧，从栈顶到栈底依次为：<br>
+     *                 保存寄存器: 调用处需要保存的寄存器，以及由本函数保存的$s寄存器，两者各占一个位置<br>
      *                 局部变量: 函数使用的局部变量<br>
-     *                 保存寄存器: s0->s7<br>
-     *                 参数: 如果函数非叶子函数，则留给子函数将参数的值存在此处
+     *                 ra: 只有调用其他函数时才会被改写，叶子函数和main不保存<br>
+     *                 参数: 第4个以后的参数，由调用者在跳转前写在它的栈顶之下<br>
+     *                 函数内sp不变，不使用fp，返回时sp加回栈帧大小即可
      * </p>
      */
     public void allocStackFrame(Function function) {
-        int size = maxParams * 4;
-        // 从栈顶到栈底记录映射，依次为 argument, save reg， local var, fp, ra
-        // 记录参数映射
-        allocArguments(function);
         // 记录save reg映射
-        for (int i = 0; i < 18; i++) {
-            if (i < 10) {
-                stackManager.putVirtualReg("$t" + i, 4);
-            } else {
-                stackManager.putVirtualReg("$s" + (i - 10), 4);
-            }
-            size += 4;
+        for (Integer reg: savedRegs(function)) {
+            stackManager.putVirtualReg(regManager.getReg(reg).getName(), 4);
+        }
+        for (Integer reg: new TreeSet<>(function.getCalleeSavedRegs())) {
+            stackManager.putVirtualReg(entrySlot(regManager.getReg(reg)), 4);
         }
         // 保存local var: MIPS在保存局部变量时，遵循的顺序是：先定义的变量后入栈
-        size += saveLocalVariables(function);
-        // 保存fp, ra
-        size += 8;
-        // 更新sp, fp寄存器:每个函数栈内部的fp都指向了调用者函数的栈顶
-        currentFunction.addInstr(new MipsInstruction(MOVE, "$fp", "$sp"));
-        currentFunction.addInstr(new MipsInstruction(ADDIU, "$sp", "$sp", "-" + size));
-        // 将fp存入栈空间
-        int ptrFp = stackManager.putVirtualReg("$fp", 4);
-        // 存入ra（暂时不管是否为叶子函数）
-        int ptrRa = stackManager.putVirtualReg("$ra", 4);
-        currentFunction.addInstr(new MipsInstruction(SW, "$ra", "$sp", String.valueOf(ptrRa)));
-        currentFunction.addInstr(new MipsInstruction(SW, "$fp", "$sp", String.valueOf(ptrFp)));
+        saveLocalVariables(function);
+        saveRa = !isLeaf(function) && !function.getName().equals("main");
+        if (saveRa) {
+            stackManager.putVirtualReg("$ra", 4);
+        }
         // 调用者的传参在栈中位置构建字典
+        for (int i = 4; i < function.getArgc(); i++) {
+            stackManager.putVirtualReg(function.getFuncFParams().get(i).getFullName(), 4);
+        }
+        frameSize = stackManager.getStackPtr();
+        if (frameSize > 0) {
+            currentFunction.addInstr(new MipsInstruction(ADDIU, MipsRegister.SP, MipsRegister.SP, new Imm(-frameSize)));
+        }
+        if (saveRa) {
+            int ptrRa = stackManager.getVirtualPtr("$ra");
+            currentFunction.addInstr(new MipsInstruction(SW, MipsRegister.RA, new Mem(MipsRegister.SP, ptrRa)));
+        }
+        // 保存本函数用到的$s寄存器
+        for (Integer reg: new TreeSet<>(function.getCalleeSavedRegs())) {
+            MipsRegister saveReg = regManager.getReg(reg);
+            int ptr = stackManager.getVirtualPtr(entrySlot(saveReg));
+            currentFunction.addInstr(new MipsInstruction(SW, saveReg, new Mem(MipsRegister.SP, ptr)));
+        }
         for (int i = 0; i < function.getArgc(); i++) {
+            Argument argument = function.getFuncFParams().get(i);
+            if (!irFunction.getGlobalRegsMap().containsKey(argument)) {
+                continue;
+            }
+            MipsRegister phyReg = regManager.getReg(function.getGlobalRegsMap().get(argument));
             if (i > 3) {
-                int ptr = stackManager.putVirtualReg(function.getFuncFParams().get(i).getFullName(), 4);
-                if (irFunction.getGlobalRegsMap().containsKey(function.getFuncFParams().get(i))) {
-                    int reg = function.getGlobalRegsMap().get(function.getFuncFParams().get(i));
-                    MipsRegister phyReg = regManager.getReg(reg);
-                    currentFunction.addInstr(new MipsInstruction(LW, phyReg.getName(), "$sp", String.valueOf(ptr)));
-                }
+                int ptr = stackManager.getVirtualPtr(argument.getFullName());
+                currentFunction.addInstr(new MipsInstruction(LW, phyReg, new Mem(MipsRegister.SP, ptr)));
             } else {
-                if (irFunction.getGlobalRegsMap().containsKey(function.getFuncFParams().get(i))) {
-                    int reg = function.getGlobalRegsMap().get(function.getFuncFParams().get(i));
-                    MipsRegister phyReg = regManager.getReg(reg);
-                    currentFunction.addInstr(new MipsInstruction(MOVE, phyReg.getName(), "$a" + i));
+                currentFunction.addInstr(new MipsInstruction(MOVE, phyReg, MipsRegister.arg(i)));
+            }
+        }
+    }
+
+    /**
+     * @return 各调用处保存的寄存器
+     */
+    private TreeSet<Integer> savedRegs(Function function) {
+        TreeSet<Integer> regs = new TreeSet<>();
+        for (BasicBlock basicBlock: function.getBasicBlocks()) {
+            for (Instruction instruction: basicBlock.getInstructions()) {
+                if (instruction instanceof Call) {
+                    regs.addAll(((Call) instruction).getSaveMap().keySet());
                 }
-                stackManager.addPtr(4);
             }
         }
+        return regs;
     }
 
-    public void allocArguments(Function function) {
-        // 记录argument->ptr映射
-        for (int i = 0; i < maxParams; i++) {
-            stackManager.setVirtualReg("$param" + i, -4 * (maxParams - i)); // TODO
+    private static boolean isLeaf(Function function) {
+        for (BasicBlock basicBlock: function.getBasicBlocks()) {
+            for (Instruction instruction: basicBlock.getInstructions()) {
+                if (instruction instanceof Call) {
+                    return false;
+                }
+            }
         }
+        return true;
     }
 
     public int saveLocalVariables(Function function) {
-        int localVarSize = 0;
+        // 活跃范围不重叠的栈上变量共用栈位置
+        int base = stackManager.getStackPtr();
+        int slots = 0;
+        for (Map.Entry<Value, Integer> entry: function.getStackSlots().entrySet()) {
+            stackManager.setVirtualReg(entry.getKey().getFullName(), base + 4 * entry.getValue());
+            slots = Math.max(slots, entry.getValue() + 1);
+        }
+        stackManager.addPtr(4 * slots);
+        int localVarSize = 4 * slots;
         for (BasicBlock basicBlock: function.getBasicBlocks()) {
             for (Instruction instruction: basicBlock.getInstructions()) {
                 if (instruction instanceof Alloca) {
@@ -194,13 +215,16 @@ public class Translator {
                     localVarSize += size;
                     // 将local Var在栈空间的位置确定，暂时不填值
                     stackManager.putVirtualReg(alloca.getFullName(), size);
-                } else if (irFunction.getValueInStack().contains(instruction.def())) {
-                    localVarSize += 4;
-                    stackManager.putVirtualReg(instruction.def().getFullName(), 4);
-                } else if (instruction instanceof Move && !(((Move) instruction).getDst() instanceof Instruction)) {
-                    localVarSize += 4;
-                    stackManager.putVirtualReg(((Move) instruction).getDst().getFullName(), 4);
-                    irFunction.getValueInStack().add(((Move) instruction).getDst());
+                } else if (irFunction.getValueInStack().contains(instruction.def())
+                        || instruction instanceof Move && !(((Move) instruction).getDst() instanceof Instruction)
+                        && !irFunction.getGlobalRegsMap().containsKey(((Move) instruction).getDst())) {
+                    // 由多条move定义的变量只占一个位置
+                    String name = instruction.def().getFullName();
+                    if (!stackManager.inStack(name)) {
+                        localVarSize += 4;
+                        stackManager.putVirtualReg(name, 4);
+                    }
+                    irFunction.getValueInStack().add(instruction.def());
                 }
             }
         }
@@ -251,16 +275,16 @@ public class Translator {
         Value dst = move.getDst();
         Value src = move.getSrc();
         MipsRegister srcReg = getReg(src);
-        if (src instanceof Constant && !src.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI, srcReg.getName(), src.getName()));
+        if (src instanceof Constant && ((Constant) src).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, srcReg, imm(src)));
         }
-        if (dst instanceof Phi) {
+        if (!irFunction.getGlobalRegsMap().containsKey(dst)) {   // 目的在栈上时直接写回
             saveInStack(dst, srcReg);
             return;
         }
         MipsRegister dstReg = getReg(dst);
         if (!dstReg.getName().equals(srcReg.getName())) {
-            currentFunction.addInstr(new MipsInstruction(MOVE, dstReg.getName(), srcReg.getName()));
+            currentFunction.addInstr(new MipsInstruction(MOVE, dstReg, srcReg));
         }
         saveInStack(dst, dstReg);
     }
@@ -270,21 +294,21 @@ public class Translator {
         Value value = store.getOperands().get(0);
         Value addr = store.getOperands().get(1);
         MipsRegister reg = getReg(value);
-        if (value instanceof Constant && !value.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI, reg.getName(), value.getName()));
+        if (value instanceof Constant && ((Constant) value).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, reg, imm(value)));
         }
         if (stackManager.isGlobalData(addr.getFullName())) {    // 全局变量
             if (value.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                currentFunction.addInstr(new MipsInstruction(SB, reg.getName(), addr.getName()));
+                currentFunction.addInstr(new MipsInstruction(SB, reg, new Label(addr.getName())));
             } else {
-                currentFunction.addInstr(new MipsInstruction(SW, reg.getName(), addr.getName()));
+                currentFunction.addInstr(new MipsInstruction(SW, reg, new Label(addr.getName())));
             }
         } else {
             MipsRegister temp0 = getReg(addr);
             if (value.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                currentFunction.addInstr(new MipsInstruction(SB, reg.getName(), temp0.getName(), "0"));
+                currentFunction.addInstr(new MipsInstruction(SB, reg, new Mem(temp0, 0)));
             } else {
-                currentFunction.addInstr(new MipsInstruction(SW, reg.getName(), temp0.getName(), "0"));
+                currentFunction.addInstr(new MipsInstruction(SW, reg, new Mem(temp0, 0)));
             }
         }
     }
@@ -294,18 +318,18 @@ public class Translator {
         Value addr = load.getOperands().get(0);
         MipsRegister temp = getReg(load); // load到临时寄存器
         if (stackManager.isGlobalData(addr.getFullName())) {    // 全局变量
-            // currentFunction.addInstr(new MipsInstruction(LA, temp.getName(), addr.getName()));
+            // currentFunction.addInstr(new MipsInstruction(LA, temp, new Label(addr.getName())));
             if (load.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                currentFunction.addInstr(new MipsInstruction(LB, temp.getName(), addr.getName()));
+                currentFunction.addInstr(new MipsInstruction(LB, temp, new Label(addr.getName())));
             } else {
-                currentFunction.addInstr(new MipsInstruction(LW, temp.getName(), addr.getName()));
+                currentFunction.addInstr(new MipsInstruction(LW, temp, new Label(addr.getName())));
             }
         } else {
             MipsRegister temp0 = getReg(addr);
             if (load.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                currentFunction.addInstr(new MipsInstruction(LB, temp.getName(), temp0.getName(), "0"));
+                currentFunction.addInstr(new MipsInstruction(LB, temp, new Mem(temp0, 0)));
             } else {
-                currentFunction.addInstr(new MipsInstruction(LW, temp.getName(), temp0.getName(), "0"));
+                currentFunction.addInstr(new MipsInstruction(LW, temp, new Mem(temp0, 0)));
             }
         }
         saveInStack(load, temp);
@@ -317,25 +341,33 @@ public class Translator {
         if (!ret.getOperands().isEmpty()) {
             Value value = ret.getOperands().get(0);
             if (value instanceof Constant) {
-                currentFunction.addInstr(new MipsInstruction(ADDIU, "$v0", "$zero", value.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDIU, MipsRegister.V0, MipsRegister.ZERO, imm(value)));
             } else {
                 MipsRegister reg = getReg(value);
-                currentFunction.addInstr(new MipsInstruction(ADDU, "$v0", "$zero", reg.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDU, MipsRegister.V0, MipsRegister.ZERO, reg));
             }
         }
+        // 恢复$s寄存器
+        for (Integer reg: new TreeSet<>(irFunction.getCalleeSavedRegs())) {
+            MipsRegister saveReg = regManager.getReg(reg);
+            int ptr = stackManager.getVirtualPtr(entrySlot(saveReg));
+            currentFunction.addInstr(new MipsInstruction(LW, saveReg, new Mem(MipsRegister.SP, ptr)));
+        }
         // 恢复ra
-        int raPtr = stackManager.getVirtualPtr("$ra");
-        currentFunction.addInstr(new MipsInstruction(LW, "$ra", "$sp", String.valueOf(raPtr)));
+        if (saveRa) {
+            int raPtr = stackManager.getVirtualPtr("$ra");
+            currentFunction.addInstr(new MipsInstruction(LW, MipsRegister.RA, new Mem(MipsRegister.SP, raPtr)));
+        }
         // 恢复栈帧
-        int ptr = stackManager.getVirtualPtr("$fp");
-        currentFunction.addInstr(new MipsInstruction(LW, "$fp", "$sp", String.valueOf(ptr)));
-        currentFunction.addInstr(new MipsInstruction(MOVE, "$sp", "$fp"));
+        if (frameSize > 0 && !isMain) {
+            currentFunction.addInstr(new MipsInstruction(ADDIU, MipsRegister.SP, MipsRegister.SP, new Imm(frameSize)));
+        }
         // 返回调用者
         if (isMain) {
-            currentFunction.addInstr(new MipsInstruction(LI, "$v0", String.valueOf(10)));
+            currentFunction.addInstr(new MipsInstruction(LI, MipsRegister.V0, new Imm(10)));
             currentFunction.addInstr(new MipsInstruction(SYSCALL));
         } else {
-            currentFunction.addInstr(new MipsInstruction(JR, "$ra"));
+            currentFunction.addInstr(new MipsInstruction(JR, MipsRegister.RA));
             // currentFunction.addInstr(new MipsInstruction(NOP));
         }
     }
@@ -345,9 +377,9 @@ public class Translator {
         Function function = call.getCallFunc();
         if (function.getName().equals("putstr")) {
             GetElementPtr getElementPtr = (GetElementPtr) call.getFuncRParams().get(0);
-            currentFunction.addInstr(new MipsInstruction(LA, "$a0", getElementPtr.getOperands().get(0).getName()));
+            currentFunction.addInstr(new MipsInstruction(LA, MipsRegister.A0, new Label(getElementPtr.getOperands().get(0).getName())));
             // 跳转到目标函数
-            currentFunction.addInstr(new MipsInstruction(JAL, function.getName()));
+            currentFunction.addInstr(new MipsInstruction(JAL, new Label(function.getName())));
             return;
         }
         // 保存现场
@@ -355,7 +387,7 @@ public class Translator {
         for (Integer reg: unused.keySet()) {
             MipsRegister tempReg = regManager.getReg(reg);
             int ptr = stackManager.getVirtualPtr(tempReg.getName());
-            currentFunction.addInstr(new MipsInstruction(SW, tempReg.getName(), "$sp", String.valueOf(ptr)));
+            currentFunction.addInstr(new MipsInstruction(SW, tempReg, new Mem(MipsRegister.SP, ptr)));
         }
         // 参数传递
         ArrayList<Value> funcRParams = call.getFuncRParams();
@@ -363,34 +395,33 @@ public class Translator {
             Value value = funcRParams.get(i);
             if (i < 4) {
                 if (value instanceof Constant) {
-                    String constVar = value.getName();
-                    currentFunction.addInstr(new MipsInstruction(LI, "$a" + i, constVar));
+                    currentFunction.addInstr(new MipsInstruction(LI, MipsRegister.arg(i), imm(value)));
                 } else {
                     MipsRegister argue = getReg(value);
-                    currentFunction.addInstr(new MipsInstruction(ADDU, "$a" + i, "$zero", argue.getName()));
+                    currentFunction.addInstr(new MipsInstruction(ADDU, MipsRegister.arg(i), MipsRegister.ZERO, argue));
                 }
             } else {
-                int ptr = stackManager.getVirtualPtr("$param" + i);
+                int ptr = -4 * (funcRParams.size() - i);   // 被调用者栈帧的最底部
                 MipsRegister temp = getReg(value);
-                if (value instanceof Constant && !value.getName().equals("0")) {
-                    currentFunction.addInstr(new MipsInstruction(LI, temp.getName(), value.getName()));
+                if (value instanceof Constant && ((Constant) value).getValue() != 0) {
+                    currentFunction.addInstr(new MipsInstruction(LI, temp, imm(value)));
                 }
-                currentFunction.addInstr(new MipsInstruction(SW, temp.getName(), "$sp", String.valueOf(ptr)));
+                currentFunction.addInstr(new MipsInstruction(SW, temp, new Mem(MipsRegister.SP, ptr)));
             }
         }
         // 跳转到目标函数
-        currentFunction.addInstr(new MipsInstruction(JAL, function.getName()));
+        currentFunction.addInstr(new MipsInstruction(JAL, new Label(function.getName())));
         // currentFunction.addInstr(new MipsInstruction(NOP));
         // 恢复现场
         for (Integer reg: unused.keySet()) {
             MipsRegister temp = regManager.getReg(reg);
             int ptr = stackManager.getVirtualPtr(temp.getName());
-            currentFunction.addInstr(new MipsInstruction(LW,temp.getName(), "$sp", String.valueOf(ptr)));
+            currentFunction.addInstr(new MipsInstruction(LW, temp, new Mem(MipsRegister.SP, ptr)));
         }
         // 回到调用者
         if (function.isNotVoid()) {
             MipsRegister ret = getReg(call);
-            currentFunction.addInstr(new MipsInstruction(MOVE, ret.getName(), "$v0"));
+            currentFunction.addInstr(new MipsInstruction(MOVE, ret, MipsRegister.V0));
             saveInStack(call, ret);
         }
     }
@@ -419,19 +450,19 @@ public class Translator {
         Value operand2 = binaryOperator.getOperands().get(1);
         MipsRegister temp = getReg(binaryOperator);
         if (operand1 instanceof Constant && operand2 instanceof Constant) {
-            int ans = Integer.parseInt(operand1.getName()) + Integer.parseInt(operand2.getName());
-            currentFunction.addInstr(new MipsInstruction(ADDIU, temp.getName(), "$zero", String.valueOf(ans)));
+            int ans = ((Constant) operand1).getValue() + ((Constant) operand2).getValue();
+            currentFunction.addInstr(new MipsInstruction(ADDIU, temp, MipsRegister.ZERO, new Imm(ans)));
         } else {
             if (operand1 instanceof Constant) {
                 MipsRegister reg = getReg(operand2);
-                currentFunction.addInstr(new MipsInstruction(ADDIU, temp.getName(), reg.getName(), operand1.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDIU, temp, reg, imm(operand1)));
             } else if (operand2 instanceof Constant) {
                 MipsRegister reg = getReg(operand1);
-                currentFunction.addInstr(new MipsInstruction(ADDIU, temp.getName(), reg.getName(), operand2.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDIU, temp, reg, imm(operand2)));
             } else {
                 MipsRegister op1 = getReg(operand1);
                 MipsRegister op2 = getReg(operand2);
-                currentFunction.addInstr(new MipsInstruction(ADDU, temp.getName(), op1.getName(), op2.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDU, temp, op1, op2));
             }
         }
         saveInStack(binaryOperator, temp);
@@ -442,26 +473,26 @@ public class Translator {
         Value operand2 = binaryOperator.getOperands().get(1);
         if (operand1 instanceof Constant && operand2 instanceof Constant) {
             MipsRegister temp = getReg(binaryOperator);
-            int ans = Integer.parseInt(operand1.getName()) - Integer.parseInt(operand2.getName());
-            currentFunction.addInstr(new MipsInstruction(ADDIU, temp.getName(), "$zero", String.valueOf(ans)));
+            int ans = ((Constant) operand1).getValue() - ((Constant) operand2).getValue();
+            currentFunction.addInstr(new MipsInstruction(ADDIU, temp, MipsRegister.ZERO, new Imm(ans)));
             saveInStack(binaryOperator, temp);
         } else {
             MipsRegister temp = getReg(binaryOperator);
             if (operand1 instanceof Constant) {
                 // 第一个操作数是常数，需要addi $t9, $zero, op1, 再subu $t2, $t9, $t1
                 MipsRegister temp0 = getReg(operand1);
-                if (!operand1.getName().equals("0")) {
-                    currentFunction.addInstr(new MipsInstruction(ADDIU, temp0.getName(), "$zero", operand1.getName()));
+                if (((Constant) operand1).getValue() != 0) {
+                    currentFunction.addInstr(new MipsInstruction(ADDIU, temp0, MipsRegister.ZERO, imm(operand1)));
                 }
                 MipsRegister reg = getReg(operand2);
-                currentFunction.addInstr(new MipsInstruction(SUBU, temp.getName(), temp0.getName(), reg.getName()));
+                currentFunction.addInstr(new MipsInstruction(SUBU, temp, temp0, reg));
             } else if (operand2 instanceof Constant) {
                 MipsRegister reg = getReg(operand1);
-                currentFunction.addInstr(new MipsInstruction(SUBI, temp.getName(), reg.getName(), operand2.getName()));
+                currentFunction.addInstr(new MipsInstruction(SUBI, temp, reg, imm(operand2)));
             } else {
                 MipsRegister op1 = getReg(operand1);
                 MipsRegister op2 = getReg(operand2);
-                currentFunction.addInstr(new MipsInstruction(SUBU, temp.getName(), op1.getName(), op2.getName()));
+                currentFunction.addInstr(new MipsInstruction(SUBU, temp, op1, op2));
             }
             saveInStack(binaryOperator, temp);
         }
@@ -475,108 +506,96 @@ public class Translator {
             int ans;
             switch (op) {
                 case MUL:
-                    ans = Integer.parseInt(operand1.getName()) * Integer.parseInt(operand2.getName());
+                    ans = ((Constant) operand1).getValue() * ((Constant) operand2).getValue();
                     break;
                 case SDIV:
-                    ans = Integer.parseInt(operand1.getName()) / Integer.parseInt(operand2.getName());
+                    ans = ((Constant) operand1).getValue() / ((Constant) operand2).getValue();
                     break;
                 case SREM:
-                    ans = Integer.parseInt(operand1.getName()) % Integer.parseInt(operand2.getName());
+                    ans = ((Constant) operand1).getValue() % ((Constant) operand2).getValue();
                     break;
                 default:
                     ans = 0;
             }
             MipsRegister temp = getReg(binaryOperator);
-            currentFunction.addInstr(new MipsInstruction(ADDIU, temp.getName(), "$zero", String.valueOf(ans)));
+            currentFunction.addInstr(new MipsInstruction(ADDIU, temp, MipsRegister.ZERO, new Imm(ans)));
             saveInStack(binaryOperator, temp);
             return;
         }
         MipsRegister op1 = getReg(operand1);
         MipsRegister op2 = getReg(operand2);
-        if (operand1 instanceof Constant && !operand1.getName().equals("0")) {
+        if (operand1 instanceof Constant && ((Constant) operand1).getValue() != 0) {
             if (op == Instruction.Type.MUL && mulOptimize(binaryOperator, (Constant) operand1, op2)) {
                 return;
             }
-            currentFunction.addInstr(new MipsInstruction(ADDIU, op1.getName(), "$zero", operand1.getName()));
+            currentFunction.addInstr(new MipsInstruction(ADDIU, op1, MipsRegister.ZERO, imm(operand1)));
         }
-        if (operand2 instanceof Constant && !operand2.getName().equals("0")) {
+        if (operand2 instanceof Constant && ((Constant) operand2).getValue() != 0) {
             if (op == Instruction.Type.MUL && mulOptimize(binaryOperator, (Constant) operand2, op1)) {
                 return;
             }
-            currentFunction.addInstr(new MipsInstruction(ADDIU, op2.getName(), "$zero", operand2.getName()));
+            currentFunction.addInstr(new MipsInstruction(ADDIU, op2, MipsRegister.ZERO, imm(operand2)));
         }
         MipsInstrType type = op == Instruction.Type.MUL ? MULT : DIV;
-        currentFunction.addInstr(new MipsInstruction(type, op1.getName(), op2.getName()));
+        currentFunction.addInstr(new MipsInstruction(type, op1, op2));
         MipsRegister temp = getReg(binaryOperator);
         if (op == Instruction.Type.MUL || op == Instruction.Type.SDIV) {
-            currentFunction.addInstr(new MipsInstruction(MFLO, temp.getName()));
+            currentFunction.addInstr(new MipsInstruction(MFLO, temp));
         } else {
-            currentFunction.addInstr(new MipsInstruction(MFHI, temp.getName()));
+            currentFunction.addInstr(new MipsInstruction(MFHI, temp));
         }
         saveInStack(binaryOperator, temp);
     }
 
     private boolean mulOptimize(BinaryOperator mul, Constant constant, MipsRegister operand) {
         int exp = 0;
-        if (constant.getName().equals("0")) {
+        if (constant.getValue() == 0) {
             MipsRegister temp = getReg(mul);
-            currentFunction.addInstr(new MipsInstruction(MOVE, temp.getName(), "$zero"));
+            currentFunction.addInstr(new MipsInstruction(MOVE, temp, MipsRegister.ZERO));
+            saveInStack(mul, temp);
             return true;
-        } else if (constant.getName().equals("1")) {
+        } else if (constant.getValue() == 1) {
             MipsRegister temp = getReg(mul);
-            currentFunction.addInstr(new MipsInstruction(MOVE, temp.getName(), operand.getName()));
+            currentFunction.addInstr(new MipsInstruction(MOVE, temp, operand));
+            saveInStack(mul, temp);
             return true;
-        } else if ((exp = checkPowerOfTwo(constant.getName())) >= 0) {
+        } else if ((exp = checkPowerOfTwo(constant.getValue())) >= 0) {
             MipsRegister temp = getReg(mul);
-            currentFunction.addInstr(new MipsInstruction(SLL, temp.getName(), operand.getName(), String.valueOf(exp)));
+            currentFunction.addInstr(new MipsInstruction(SLL, temp, operand, new Imm(exp)));
+            saveInStack(mul, temp);
             return true;
         } else {
-            BigInteger c = new BigInteger(constant.getName());
-            BigInteger sub = c.subtract(BigInteger.ONE);
-            BigInteger add = c.add(BigInteger.ONE);
-            if ((exp = checkPowerOfTwo(sub.toString())) >= 0) { // constant = 2^n + 1
+            long c = constant.getValue();
+            if ((exp = checkPowerOfTwo(c - 1)) >= 0) { // constant = 2^n + 1
                 // x * constant = x * 2^n + x = x << n + x
                 MipsRegister temp = getReg(mul);
                 if (temp.equals(operand)) {
                     return false;
                 }
-                currentFunction.addInstr(new MipsInstruction(SLL, temp.getName(), operand.getName(), String.valueOf(exp)));
-                currentFunction.addInstr(new MipsInstruction(ADDU, temp.getName(), temp.getName(), operand.getName()));
+                currentFunction.addInstr(new MipsInstruction(SLL, temp, operand, new Imm(exp)));
+                currentFunction.addInstr(new MipsInstruction(ADDU, temp, temp, operand));
+                saveInStack(mul, temp);
                 return true;
-            } else if ((exp = checkPowerOfTwo(add.toString())) >= 0) {  // constant = 2^n - 1
+            } else if ((exp = checkPowerOfTwo(c + 1)) >= 0) {  // constant = 2^n - 1
                 MipsRegister temp = getReg(mul);
                 if (temp.equals(operand)) {
                     return false;
                 }
-                currentFunction.addInstr(new MipsInstruction(SLL, temp.getName(), operand.getName(), String.valueOf(exp)));
-                currentFunction.addInstr(new MipsInstruction(SUBU, temp.getName(), temp.getName(), operand.getName()));
+                currentFunction.addInstr(new MipsInstruction(SLL, temp, operand, new Imm(exp)));
+                currentFunction.addInstr(new MipsInstruction(SUBU, temp, temp, operand));
+                saveInStack(mul, temp);
                 return true;
             }
         }
         return false;
     }
 
-    private int checkPowerOfTwo(String numStr) {
-        // 将输入的字符串转换为BigInteger
-        BigInteger num = new BigInteger(numStr);
-
+    private int checkPowerOfTwo(long num) {
         // 负数或者0不是2的正整数次幂
-        if (num.compareTo(BigInteger.ZERO) <= 0) {
+        if (num <= 0 || (num & (num - 1)) != 0) {
             return -1;
         }
-
-        // 检查是否为2的某次幂
-        int exponent = 0;
-        while (num.compareTo(BigInteger.ONE) > 0) {
-            // 如果当前数字不是2的幂次，返回-1
-            if (num.mod(BigInteger.valueOf(2)).compareTo(BigInteger.ZERO) != 0) {
-                return -1;
-            }
-            num = num.divide(BigInteger.valueOf(2));
-            exponent++;
-        }
-
-        return exponent;
+        return Long.numberOfTrailingZeros(num);
     }
 
     public void genTrunc(Trunc trunc) {
@@ -584,10 +603,10 @@ public class Translator {
         Value op1 = trunc.getOperands().get(0);
         MipsRegister temp = getReg(trunc);
         MipsRegister reg = getReg(op1);
-        if (op1 instanceof Constant && !op1.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI,reg.getName(), op1.getName()));
+        if (op1 instanceof Constant && ((Constant) op1).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, reg, imm(op1)));
         }
-        currentFunction.addInstr(new MipsInstruction(ANDI, temp.getName(), reg.getName(), "0xFF"));
+        currentFunction.addInstr(new MipsInstruction(ANDI, temp, reg, new Imm(0xFF)));
         saveInStack(trunc, temp);
     }
 
@@ -596,10 +615,10 @@ public class Translator {
         Value op1 = zext.getOperands().get(0);
         MipsRegister temp = getReg(zext);
         MipsRegister reg = getReg(op1);
-        if (op1 instanceof Constant && !op1.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI,reg.getName(), op1.getName()));
+        if (op1 instanceof Constant && ((Constant) op1).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, reg, imm(op1)));
         }
-        currentFunction.addInstr(new MipsInstruction(ANDI, temp.getName(), reg.getName(), "0xFF"));
+        currentFunction.addInstr(new MipsInstruction(ANDI, temp, reg, new Imm(0xFF)));
         saveInStack(zext,temp);
     }
 
@@ -611,51 +630,51 @@ public class Translator {
         MipsRegister ptrReg = getReg(getElementPtr);;
         // 获取首地址
         if (firstPtr >= 0 && firstAddr instanceof Alloca) {    // 可能为数组
-            currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg.getName(), "$sp", String.valueOf(firstPtr)));
+            currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg, MipsRegister.SP, new Imm(firstPtr)));
         } else {
             if (stackManager.isGlobalData(firstAddr.getFullName())) {
-                currentFunction.addInstr(new MipsInstruction(LA, ptrReg.getName(), firstAddr.getName()));
+                currentFunction.addInstr(new MipsInstruction(LA, ptrReg, new Label(firstAddr.getName())));
             } else {
                 MipsRegister temp = getReg(firstAddr);
-                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg.getName(), "$zero", temp.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg, MipsRegister.ZERO, temp));
             }
         }
         // 加上第一部分索引
         if (bis1 instanceof Constant) {
-            int ptr = Integer.parseInt(bis1.getName()) * 4;
+            int ptr = ((Constant) bis1).getValue() * 4;
             if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                ptr = Integer.parseInt(bis1.getName());
+                ptr = ((Constant) bis1).getValue();
             }
             if (ptr != 0) {
-                currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg.getName(), ptrReg.getName(), String.valueOf(ptr)));
+                currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg, ptrReg, new Imm(ptr)));
             }
         } else {
             MipsRegister temp = getReg(bis1);
             if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer32Ty) {
-                currentFunction.addInstr(new MipsInstruction(SLL, "$v1", temp.getName(), String.valueOf(2)));
-                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), "$v1"));
+                currentFunction.addInstr(new MipsInstruction(SLL, MipsRegister.V1, temp, new Imm(2)));
+                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg, ptrReg, MipsRegister.V1));
             } else {
-                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), temp.getName()));
+                currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg, ptrReg, temp));
             }
 
         }
         if (getElementPtr.getOperands().size() > 2) {
             Value bis2 = getElementPtr.getOperands().get(2);
             if (bis2 instanceof Constant) {
-                int ptr = Integer.parseInt(bis2.getName()) * 4;
+                int ptr = ((Constant) bis2).getValue() * 4;
                 if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    ptr = Integer.parseInt(bis2.getName());
+                    ptr = ((Constant) bis2).getValue();
                 }
                 if (ptr != 0) {
-                    currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg.getName(), ptrReg.getName(), String.valueOf(ptr)));
+                    currentFunction.addInstr(new MipsInstruction(ADDIU, ptrReg, ptrReg, new Imm(ptr)));
                 }
             } else {
                 MipsRegister temp = getReg(bis2);
                 if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer32Ty) {
-                    currentFunction.addInstr(new MipsInstruction(SLL, "$v1", temp.getName(), String.valueOf(2)));
-                    currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), "$v1"));
+                    currentFunction.addInstr(new MipsInstruction(SLL, MipsRegister.V1, temp, new Imm(2)));
+                    currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg, ptrReg, MipsRegister.V1));
                 } else {
-                    currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), temp.getName()));
+                    currentFunction.addInstr(new MipsInstruction(ADDU, ptrReg, ptrReg, temp));
                 }
 
             }
@@ -673,16 +692,16 @@ public class Translator {
                 MipsRegister op2;
                 if (value1 instanceof Constant) {
                     op1 = getReg(value1);
-                    if (!value1.getName().equals("0")) {
-                        currentFunction.addInstr(new MipsInstruction(LI, op1.getName(), value1.getName()));
+                    if (((Constant) value1).getValue() != 0) {
+                        currentFunction.addInstr(new MipsInstruction(LI, op1, imm(value1)));
                     }
                 } else {
                     op1 = getReg(value1);
                 }
                 if (value2 instanceof Constant) {
                     op2 = getReg(value2);
-                    if (!value2.getName().equals("0")) {
-                        currentFunction.addInstr(new MipsInstruction(LI, op2.getName(), value2.getName()));
+                    if (((Constant) value2).getValue() != 0) {
+                        currentFunction.addInstr(new MipsInstruction(LI, op2, imm(value2)));
                     }
                 } else {
                     op2 = getReg(value2);
@@ -698,24 +717,24 @@ public class Translator {
         Compare.CondType type = instr.getCondType();
         switch (type) {
             case NE:
-                compare = new MipsInstruction(SNE, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SNE, temp, op1, op2);
                 break;
             case EQ:
-                compare = new MipsInstruction(SEQ, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SEQ, temp, op1, op2);
                 break;
             case SGE:   // >= 就是 < 再取反
-                currentFunction.addInstr(new MipsInstruction(SLT, "$v1", op1.getName(), op2.getName()));
-                compare = new MipsInstruction(SEQ, temp.getName(), "$v1", "$zero");
+                currentFunction.addInstr(new MipsInstruction(SLT, MipsRegister.V1, op1, op2));
+                compare = new MipsInstruction(SEQ, temp, MipsRegister.V1, MipsRegister.ZERO);
                 break;
             case SLE:   // <= 就是 > 再取反
-                currentFunction.addInstr(new MipsInstruction(SLT, "$v1", op2.getName(), op1.getName()));
-                compare = new MipsInstruction(SEQ, temp.getName(), "$v1", "$zero");
+                currentFunction.addInstr(new MipsInstruction(SLT, MipsRegister.V1, op2, op1));
+                compare = new MipsInstruction(SEQ, temp, MipsRegister.V1, MipsRegister.ZERO);
                 break;
             case SGT:   // > 就是交换操作数的 <
-                compare = new MipsInstruction(SLT, temp.getName(), op2.getName(), op1.getName());
+                compare = new MipsInstruction(SLT, temp, op2, op1);
                 break;
             case SLT:
-                compare = new MipsInstruction(SLT, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SLT, temp, op1, op2);
                 break;
             default:
                 compare = new MipsInstruction(NOP);
@@ -730,16 +749,16 @@ public class Translator {
             if (curBlock.getNeighbour() != null && curBlock.getNeighbour().equals(branch.getOperands().get(0))) {
                 return;
             }
-            currentFunction.addInstr(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(0)).getLabel()));
+            currentFunction.addInstr(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(0)).getLabel())));
             // currentFunction.addInstr(new MipsInstruction(NOP));
             return;
         }
         Value cond = branch.getOperands().get(0);
         if (cond instanceof Constant) {
-            if (cond.getName().equals("0")) {
-                currentFunction.addInstr(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(2)).getLabel()));
+            if (((Constant) cond).getValue() == 0) {
+                currentFunction.addInstr(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(2)).getLabel())));
             } else {
-                currentFunction.addInstr(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(1)).getLabel()));
+                currentFunction.addInstr(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(1)).getLabel())));
             }
             // currentFunction.addInstr(new MipsInstruction(NOP));
             return;
@@ -761,31 +780,31 @@ public class Translator {
         Value value2 = judge.getOperands().get(1);
         MipsRegister op1 = getReg(value1);
         MipsRegister op2 = getReg(value2);
-        if (value1 instanceof Constant && !value1.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI, op1.getName(), value1.getName()));
+        if (value1 instanceof Constant && ((Constant) value1).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, op1, imm(value1)));
         }
-        if (value2 instanceof Constant && !value2.getName().equals("0")) {
-            currentFunction.addInstr(new MipsInstruction(LI, op2.getName(), value2.getName()));
+        if (value2 instanceof Constant && ((Constant) value2).getValue() != 0) {
+            currentFunction.addInstr(new MipsInstruction(LI, op2, imm(value2)));
         }
         MipsInstruction branch;
         switch (judge.getCondType()) {
             case NE:
-                branch = new MipsInstruction(BNE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BNE, op1, op2, new Label(target.getLabel()));
                 break;
             case EQ:
-                branch = new MipsInstruction(BEQ, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BEQ, op1, op2, new Label(target.getLabel()));
                 break;
             case SGE:
-                branch = new MipsInstruction(BGE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BGE, op1, op2, new Label(target.getLabel()));
                 break;
             case SLE:
-                branch = new MipsInstruction(BLE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BLE, op1, op2, new Label(target.getLabel()));
                 break;
             case SGT:
-                branch = new MipsInstruction(BGT, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BGT, op1, op2, new Label(target.getLabel()));
                 break;
             case SLT:
-                branch = new MipsInstruction(BLT, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BLT, op1, op2, new Label(target.getLabel()));
                 break;
             default:
                 branch = new MipsInstruction(NOP);
@@ -836,16 +855,16 @@ public class Translator {
         } else if (value2Stack.contains(value)) {
             int ptr = stackManager.getVirtualPtr(value.getFullName());
             if (flag) {
-                currentFunction.addInstr(new MipsInstruction(LW, "$t8", "$sp", String.valueOf(ptr)));
+                currentFunction.addInstr(new MipsInstruction(LW, MipsRegister.T8, new Mem(MipsRegister.SP, ptr)));
                 flag = false;
                 return regManager.getReg(16);
             } else {
-                currentFunction.addInstr(new MipsInstruction(LW, "$t9", "$sp", String.valueOf(ptr)));
+                currentFunction.addInstr(new MipsInstruction(LW, MipsRegister.T9, new Mem(MipsRegister.SP, ptr)));
                 flag = true;
                 return regManager.getReg(17);
             }
         } else {    // 临时常量等
-            if (value instanceof Constant && value.getName().equals("0")) {
+            if (value instanceof Constant && ((Constant) value).getValue() == 0) {
                 return regManager.getReg(0);
             }
             if (flag) {
@@ -857,13 +876,26 @@ public class Translator {
         }
     }
 
+    /**
+     * 本函数在序言中保存的调用者的值。函数内调用其它函数时同一寄存器可能还要在调用处保存，
+     * 调用处的位置以寄存器名为键，两者不能共用，否则调用处的保存会覆盖调用者的值
+     */
+    private static String entrySlot(MipsRegister reg) {
+        return reg.getName() + "@entry";
+    }
+
     public void saveInStack(Value value, MipsRegister temp) {
         if (!irFunction.getGlobalRegsMap().containsKey(value) || irFunction.getValueInStack().contains(value)) {
             int ptr = stackManager.getVirtualPtr(value.getFullName());
-            currentFunction.addInstr(new MipsInstruction(SW, temp.getName(), "$sp", String.valueOf(ptr)));
+            currentFunction.addInstr(new MipsInstruction(SW, temp, new Mem(MipsRegister.SP, ptr)));
         }
     }
 
+    // 常量操作数转为立即数
+    private Imm imm(Value constant) {
+        return new Imm(((Constant) constant).getValue());
+    }
+
     public String getDataType(ValueType.DataType dataType, boolean isString) {
         if (isString) {
             return ".asciiz";
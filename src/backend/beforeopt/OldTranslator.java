@@ -1,6 +1,9 @@
 package backend.beforeopt;
 
 import backend.mips.*;
+import backend.mips.MipsOperand.Imm;
+import backend.mips.MipsOperand.Label;
+import backend.mips.MipsOperand.Mem;
 import llvmir.Module;
 import llvmir.Value;
 import llvmir.ValueType;
@@ -15,13 +18,14 @@ public class OldTranslator {
     private final Module module;
     private ArrayList<MipsData> dataSegment;
     private ArrayList<MipsInstruction> textSegment;
-    private final RegManager regManager = new RegManager();
-    private final StackManager stackManager = StackManager.getInstance();
+    private final RegManager regManager;
+    private final StackManager stackManager = new StackManager();
     private BasicBlock curBlock;
     private int maxParams = 0;
 
     public OldTranslator(Module module) {
         this.module = module;
+        regManager = new RegManager(stackManager);
         dataSegment = new ArrayList<>();
         textSegment = new ArrayList<>();
     }
@@ -70,22 +74,22 @@ public class OldTranslator {
         MipsInstruction label = new MipsInstruction(declare.getName());
         textSegment.add(label);
         if (declare.getName().equals("putint")) {
-            textSegment.add(new MipsInstruction(LI, "$v0", "1"));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(1)));
         }
         if (declare.getName().equals("putch")) {
-            textSegment.add(new MipsInstruction(LI, "$v0", "11"));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(11)));
         }
         if (declare.getName().equals("putstr")) {
-            textSegment.add(new MipsInstruction(LI, "$v0", "4"));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(4)));
         }
         if (declare.getName().equals("getint")) {
-            textSegment.add(new MipsInstruction(LI, "$v0", "5"));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(5)));
         }
         if (declare.getName().equals("getchar")) {
-            textSegment.add(new MipsInstruction(LI, "$v0", "12"));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(12)));
         }
-        textSegment.add(new MipsInstruction(SYSCALL, ""));
-        textSegment.add(new MipsInstruction(JR, "$ra"));
+        textSegment.add(new MipsInstruction(SYSCALL));
+        textSegment.add(new MipsInstruction(JR, MipsRegister.RA));
     }
 
     public void genFunction(Function function) {
@@ -129,14 +133,14 @@ public class OldTranslator {
         // 保存fp, ra
         size += 8;
         // 更新sp, fp寄存器:每个函数栈内部的fp都指向了调用者函数的栈顶
-        textSegment.add(new MipsInstruction(MOVE, "$fp", "$sp"));
-        textSegment.add(new MipsInstruction(ADDIU, "$sp", "$sp", "-" + size));
+        textSegment.add(new MipsInstruction(MOVE, MipsRegister.FP, MipsRegister.SP));
+        textSegment.add(new MipsInstruction(ADDIU, MipsRegister.SP, MipsRegister.SP, new Imm(-size)));
         // 将fp存入栈空间
         int ptrFp = stackManager.putVirtualReg("$fp", 4);
         // 存入ra（暂时不管是否为叶子函数）
         int ptrRa = stackManager.putVirtualReg("$ra", 4);
-        textSegment.add(new MipsInstruction(SW, "$ra", "$sp", String.valueOf(ptrRa)));
-        textSegment.add(new MipsInstruction(SW, "$fp", "$sp", String.valueOf(ptrFp)));
+        textSegment.add(new MipsInstruction(SW, MipsRegister.RA, new Mem(MipsRegister.SP, ptrRa)));
+        textSegment.add(new MipsInstruction(SW, MipsRegister.FP, new Mem(MipsRegister.SP, ptrFp)));
         // 调用者的传参在栈中位置构建字典
         for (int i = 0; i < function.getArgc(); i++) {
             if (i > 3) {
@@ -220,7 +224,7 @@ public class OldTranslator {
         if (stackManager.inStack(value)) {
             MipsRegister temp = getReg(value);
             int ptr = stackManager.getVirtualPtr(value);
-            textSegment.add(new MipsInstruction(LW, temp.getName(), "$sp", String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(LW, temp, new Mem(MipsRegister.SP, ptr)));
             return temp;
         } else {
             return getReg(value);
@@ -233,12 +237,12 @@ public class OldTranslator {
         ArrayList<Argument> arguments = function.getFuncFParams();
         if (function.getName().equals("putstr")) {
             GetElementPtr getElementPtr = (GetElementPtr) call.getFuncRParams().get(0);
-            textSegment.add(new MipsInstruction(LA, "$a0", getElementPtr.getOperands().get(0).getName()));
+            textSegment.add(new MipsInstruction(LA, MipsRegister.A0, new Label(getElementPtr.getOperands().get(0).getName())));
             // 跳转到目标函数
-            textSegment.add(new MipsInstruction(JAL, function.getName()));
+            textSegment.add(new MipsInstruction(JAL, new Label(function.getName())));
             if (function.isNotVoid()) {
                 MipsRegister ret = getRegForVirtual(call.getFullName());
-                textSegment.add(new MipsInstruction(MOVE, ret.getName(), "$v0"));
+                textSegment.add(new MipsInstruction(MOVE, ret, MipsRegister.V0));
             }
             return;
         }
@@ -248,25 +252,24 @@ public class OldTranslator {
             Value value = funcRParams.get(i);
             if (i < 4) {
                 if (value instanceof Constant) {
-                    String constVar = value.getName();
-                    textSegment.add(new MipsInstruction(LI, "$a" + i, constVar));
+                    textSegment.add(new MipsInstruction(LI, MipsRegister.arg(i), imm(value)));
                 } else {
                     MipsRegister argue = getRegForVirtual(value.getFullName());
                     regManager.resetTempReg(argue);
-                    textSegment.add(new MipsInstruction(ADDU, "$a" + i, "$zero", argue.getName()));
+                    textSegment.add(new MipsInstruction(ADDU, MipsRegister.arg(i), MipsRegister.ZERO, argue));
                 }
             } else {
                 int ptr = stackManager.getVirtualPtr("$a" + i);
                 if (value instanceof Constant) {
                     MipsRegister temp = getReg(value.getFullName());
                     ptr = stackManager.getVirtualPtr("$a" + i);
-                    textSegment.add(new MipsInstruction(LI, temp.getName(), value.getName()));
-                    textSegment.add(new MipsInstruction(SW, temp.getName(), "$sp", String.valueOf(ptr)));
+                    textSegment.add(new MipsInstruction(LI, temp, imm(value)));
+                    textSegment.add(new MipsInstruction(SW, temp, new Mem(MipsRegister.SP, ptr)));
                     regManager.resetTempReg(temp);
                 } else {
                     MipsRegister argue = getRegForVirtual(value.getFullName());
                     ptr = stackManager.getVirtualPtr("$a" + i);
-                    textSegment.add(new MipsInstruction(SW, argue.getName(), "$sp", String.valueOf(ptr)));
+                    textSegment.add(new MipsInstruction(SW, argue, new Mem(MipsRegister.SP, ptr)));
                     regManager.resetTempReg(argue);
                 }
             }
@@ -276,22 +279,22 @@ public class OldTranslator {
         for (Map.Entry<Integer, String> entry: unused.entrySet()) {
             MipsRegister tempReg = regManager.getReg(entry.getKey());
             int ptr = stackManager.getVirtualPtr(tempReg.getName());
-            textSegment.add(new MipsInstruction(SW, tempReg.getName(), "$sp", String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(SW, tempReg, new Mem(MipsRegister.SP, ptr)));
         }
         // 跳转到目标函数
-        textSegment.add(new MipsInstruction(JAL, function.getName()));
+        textSegment.add(new MipsInstruction(JAL, new Label(function.getName())));
         textSegment.add(new MipsInstruction(NOP));
         // 回到调用者
         if (function.isNotVoid()) {
             MipsRegister ret = getReg(call.getFullName());
-            textSegment.add(new MipsInstruction(MOVE, ret.getName(), "$v0"));
+            textSegment.add(new MipsInstruction(MOVE, ret, MipsRegister.V0));
         }
         // 恢复现场
         HashMap<Integer, String> restoreMap = regManager.getRestoreMap();
         for (Map.Entry<Integer, String> entry: restoreMap.entrySet()) {
             MipsRegister temp = regManager.getReg(entry.getKey());
             int ptr = stackManager.getVirtualPtr(temp.getName());
-            textSegment.add(new MipsInstruction(LW,temp.getName(), "$sp", String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(LW, temp, new Mem(MipsRegister.SP, ptr)));
         }
     }
 
@@ -301,31 +304,31 @@ public class OldTranslator {
         Value addr = store.getOperands().get(1);
         MipsRegister reg = getReg(value.getFullName());
         if (value instanceof Constant) {
-            textSegment.add(new MipsInstruction(LI, reg.getName(), value.getName()));
+            textSegment.add(new MipsInstruction(LI, reg, imm(value)));
         }
         int ptr = 0;
         if ((ptr = stackManager.getVirtualPtr(addr.getFullName())) >= 0) {
             if (value instanceof Argument && Integer.parseInt(value.getName()) > 3) {
                 int arguePtr = stackManager.getVirtualPtr(value.getFullName());
-                textSegment.add(new MipsInstruction(LW, reg.getName(), "$sp", String.valueOf(arguePtr)));
+                textSegment.add(new MipsInstruction(LW, reg, new Mem(MipsRegister.SP, arguePtr)));
             }
-            textSegment.add(new MipsInstruction(SW, reg.getName(), "$sp", String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(SW, reg, new Mem(MipsRegister.SP, ptr)));
         } else {
             MipsRegister temp0;
             if (stackManager.isGlobalData(addr.getFullName())) {    // 全局变量
                 if (value.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    textSegment.add(new MipsInstruction(SB, reg.getName(), addr.getName()));
+                    textSegment.add(new MipsInstruction(SB, reg, new Label(addr.getName())));
                 } else {
-                    textSegment.add(new MipsInstruction(SW, reg.getName(), addr.getName()));
+                    textSegment.add(new MipsInstruction(SW, reg, new Label(addr.getName())));
                 }
             } else {
                 temp0 = getReg(addr.getFullName());
                 if (value.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    textSegment.add(new MipsInstruction(SB, reg.getName(), temp0.getName(), "0"));
+                    textSegment.add(new MipsInstruction(SB, reg, new Mem(temp0, 0)));
                 } else {
-                    textSegment.add(new MipsInstruction(SW, reg.getName(), temp0.getName(), "0"));
+                    textSegment.add(new MipsInstruction(SW, reg, new Mem(temp0, 0)));
                 }
-                if (addr.getUsersList().size() == 1) {
+                if (addr.getUseCount() == 1) {
                     regManager.resetTempReg(temp0);
                 }
             }
@@ -340,24 +343,24 @@ public class OldTranslator {
         if (ptr >= 0) { // 临时变量
             MipsRegister temp = getReg(load.getFullName()); // load到临时寄存器
             ptr = stackManager.getVirtualPtr(addr.getFullName());
-            textSegment.add(new MipsInstruction(LW, temp.getName(), "$sp", String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(LW, temp, new Mem(MipsRegister.SP, ptr)));
         } else {
             if (stackManager.isGlobalData(addr.getFullName())) {    // 全局变量
                 MipsRegister temp = getReg(load.getFullName()); // load到临时寄存器
-                textSegment.add(new MipsInstruction(LA, temp.getName(), addr.getName()));
+                textSegment.add(new MipsInstruction(LA, temp, new Label(addr.getName())));
                 if (load.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    textSegment.add(new MipsInstruction(LB, temp.getName(), temp.getName(), "0"));
+                    textSegment.add(new MipsInstruction(LB, temp, new Mem(temp, 0)));
                 } else {
-                    textSegment.add(new MipsInstruction(LW, temp.getName(), temp.getName(), "0"));
+                    textSegment.add(new MipsInstruction(LW, temp, new Mem(temp, 0)));
                 }
             } else {
                 MipsRegister temp0 = getReg(addr.getFullName());
                 regManager.resetTempReg(temp0);
                 MipsRegister temp = getReg(load.getFullName()); // load到临时寄存器
                 if (load.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    textSegment.add(new MipsInstruction(LB, temp.getName(), temp0.getName(), "0"));
+                    textSegment.add(new MipsInstruction(LB, temp, new Mem(temp0, 0)));
                 } else {
-                    textSegment.add(new MipsInstruction(LW, temp.getName(), temp0.getName(), "0"));
+                    textSegment.add(new MipsInstruction(LW, temp, new Mem(temp0, 0)));
                 }
             }
         }
@@ -371,48 +374,48 @@ public class OldTranslator {
         MipsRegister ptrReg = getReg(getElementPtr.getFullName());;
         // 获取首地址
         if (firstPtr >= 0) {
-            textSegment.add(new MipsInstruction(ADDIU, ptrReg.getName(), "$sp", String.valueOf(firstPtr)));
+            textSegment.add(new MipsInstruction(ADDIU, ptrReg, MipsRegister.SP, new Imm(firstPtr)));
         } else {
             if (stackManager.isGlobalData(firstAddr.getFullName())) {
-                textSegment.add(new MipsInstruction(LA, ptrReg.getName(), firstAddr.getName()));
+                textSegment.add(new MipsInstruction(LA, ptrReg, new Label(firstAddr.getName())));
             } else {
                 MipsRegister temp = getReg(firstAddr.getFullName());
                 regManager.resetTempReg(temp);
-                textSegment.add(new MipsInstruction(ADDU, ptrReg.getName(), "$zero", temp.getName()));
+                textSegment.add(new MipsInstruction(ADDU, ptrReg, MipsRegister.ZERO, temp));
             }
         }
         // 加上第一部分索引
         if (bis1 instanceof Constant) {
-            int ptr = Integer.parseInt(bis1.getName()) * 4;
+            int ptr = ((Constant) bis1).getValue() * 4;
             if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                ptr = Integer.parseInt(bis1.getName());
+                ptr = ((Constant) bis1).getValue();
             }
-            textSegment.add(new MipsInstruction(ADDIU, ptrReg.getName(), ptrReg.getName(), String.valueOf(ptr)));
+            textSegment.add(new MipsInstruction(ADDIU, ptrReg, ptrReg, new Imm(ptr)));
         } else {
             MipsRegister temp = getReg(bis1.getFullName());
             regManager.resetTempReg(temp);
             if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer32Ty) {
-                textSegment.add(new MipsInstruction(SLL, temp.getName(), temp.getName(), String.valueOf(2)));
+                textSegment.add(new MipsInstruction(SLL, temp, temp, new Imm(2)));
             }
-            // textSegment.add(new MipsInstruction(SLL, temp.getName(), temp.getName(), String.valueOf(2)));
-            textSegment.add(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), temp.getName()));
+            // textSegment.add(new MipsInstruction(SLL, temp, temp, new Imm(2)));
+            textSegment.add(new MipsInstruction(ADDU, ptrReg, ptrReg, temp));
         }
         if (getElementPtr.getOperands().size() > 2) {
             Value bis2 = getElementPtr.getOperands().get(2);
             if (bis2 instanceof Constant) {
-                int ptr = Integer.parseInt(bis2.getName()) * 4;
+                int ptr = ((Constant) bis2).getValue() * 4;
                 if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer8Ty) {
-                    ptr = Integer.parseInt(bis2.getName());
+                    ptr = ((Constant) bis2).getValue();
                 }
-                textSegment.add(new MipsInstruction(ADDIU, ptrReg.getName(), ptrReg.getName(), String.valueOf(ptr)));
+                textSegment.add(new MipsInstruction(ADDIU, ptrReg, ptrReg, new Imm(ptr)));
             } else {
                 MipsRegister temp = getReg(bis2.getFullName());
                 regManager.resetTempReg(temp);
                 if (firstAddr.getTp().getDataType() == ValueType.DataType.Integer32Ty) {
-                    textSegment.add(new MipsInstruction(SLL, temp.getName(), temp.getName(), String.valueOf(2)));
+                    textSegment.add(new MipsInstruction(SLL, temp, temp, new Imm(2)));
                 }
-                // textSegment.add (new MipsInstruction(SLL, temp.getName(), temp.getName(), String.valueOf(2)));
-                textSegment.add(new MipsInstruction(ADDU, ptrReg.getName(), ptrReg.getName(), temp.getName()));
+                // textSegment.add (new MipsInstruction(SLL, temp, temp, new Imm(2)));
+                textSegment.add(new MipsInstruction(ADDU, ptrReg, ptrReg, temp));
             }
         }
     }
@@ -423,26 +426,26 @@ public class OldTranslator {
         if (!ret.getOperands().isEmpty()) {
             Value value = ret.getOperands().get(0);
             if (value instanceof Constant) {
-                textSegment.add(new MipsInstruction(ADDIU, "$v0", "$zero", value.getName()));
+                textSegment.add(new MipsInstruction(ADDIU, MipsRegister.V0, MipsRegister.ZERO, imm(value)));
             } else {
                 MipsRegister reg = getReg(value.getFullName());
-                textSegment.add(new MipsInstruction(ADDU, "$v0", "$zero", reg.getName()));
+                textSegment.add(new MipsInstruction(ADDU, MipsRegister.V0, MipsRegister.ZERO, reg));
                 regManager.resetTempReg(reg);
             }
         }
         // 恢复ra
         int raPtr = stackManager.getVirtualPtr("$ra");
-        textSegment.add(new MipsInstruction(LW, "$ra", "$sp", String.valueOf(raPtr)));
+        textSegment.add(new MipsInstruction(LW, MipsRegister.RA, new Mem(MipsRegister.SP, raPtr)));
         // 恢复栈帧
         int ptr = stackManager.getVirtualPtr("$fp");
-        textSegment.add(new MipsInstruction(LW, "$fp", "$sp", String.valueOf(ptr)));
-        textSegment.add(new MipsInstruction(MOVE, "$sp", "$fp"));
+        textSegment.add(new MipsInstruction(LW, MipsRegister.FP, new Mem(MipsRegister.SP, ptr)));
+        textSegment.add(new MipsInstruction(MOVE, MipsRegister.SP, MipsRegister.FP));
         // 返回调用者
         if (isMain) {
-            textSegment.add(new MipsInstruction(LI, "$v0", String.valueOf(10)));
+            textSegment.add(new MipsInstruction(LI, MipsRegister.V0, new Imm(10)));
             textSegment.add(new MipsInstruction(SYSCALL));
         } else {
-            textSegment.add(new MipsInstruction(JR, "$ra"));
+            textSegment.add(new MipsInstruction(JR, MipsRegister.RA));
             textSegment.add(new MipsInstruction(NOP));
         }
     }
@@ -474,17 +477,17 @@ public class OldTranslator {
             MipsRegister reg = getReg(operand2.getFullName());
             regManager.resetTempReg(reg);
             temp = getReg(binaryOperator.getFullName());
-            textSegment.add(new MipsInstruction(ADDIU, temp.getName(), reg.getName(), operand1.getName()));
+            textSegment.add(new MipsInstruction(ADDIU, temp, reg, imm(operand1)));
         } else if (operand2 instanceof Constant) {
             MipsRegister reg = getReg(operand1.getFullName());
             regManager.resetTempReg(reg);
             temp = getReg(binaryOperator.getFullName());
-            textSegment.add(new MipsInstruction(ADDIU, temp.getName(), reg.getName(), operand2.getName()));
+            textSegment.add(new MipsInstruction(ADDIU, temp, reg, imm(operand2)));
         } else {
             temp = getReg(binaryOperator.getFullName());
             MipsRegister op1 = getReg(operand1.getFullName());
             MipsRegister op2 = getReg(operand2.getFullName());
-            textSegment.add(new MipsInstruction(ADDU, temp.getName(), op1.getName(), op2.getName()));
+            textSegment.add(new MipsInstruction(ADDU, temp, op1, op2));
             regManager.resetTempReg(op1);
             regManager.resetTempReg(op2);
         }
@@ -497,22 +500,22 @@ public class OldTranslator {
         if (operand1 instanceof Constant) {
             // 第一个操作数是常数，需要addi $t0, $zero, op1, 再subu $t2, $t0, $t1
             MipsRegister temp0 = getReg(operand1.getFullName());
-            textSegment.add(new MipsInstruction(ADDIU, temp0.getName(), "$zero", operand1.getName()));
+            textSegment.add(new MipsInstruction(ADDIU, temp0, MipsRegister.ZERO, imm(operand1)));
             temp = getReg(binaryOperator.getFullName());
             MipsRegister reg = getReg(operand2.getFullName());
-            textSegment.add(new MipsInstruction(SUBU, temp.getName(), temp0.getName(), reg.getName()));
+            textSegment.add(new MipsInstruction(SUBU, temp, temp0, reg));
             regManager.resetTempReg(reg);
             regManager.resetTempReg(temp0);
         } else if (operand2 instanceof Constant) {
             temp = getReg(binaryOperator.getFullName());
             MipsRegister reg = getReg(operand1.getFullName());
-            textSegment.add(new MipsInstruction(SUBI, temp.getName(), reg.getName(), operand2.getName()));
+            textSegment.add(new MipsInstruction(SUBI, temp, reg, imm(operand2)));
             regManager.resetTempReg(reg);
         } else {
             temp = getReg(binaryOperator.getFullName());
             MipsRegister op1 = getReg(operand1.getFullName());
             MipsRegister op2 = getReg(operand2.getFullName());
-            textSegment.add(new MipsInstruction(SUBU, temp.getName(), op1.getName(), op2.getName()));
+            textSegment.add(new MipsInstruction(SUBU, temp, op1, op2));
             regManager.resetTempReg(op1);
             regManager.resetTempReg(op2);
         }
@@ -525,11 +528,11 @@ public class OldTranslator {
         MipsRegister op2 = null;
         if (operand1 instanceof Constant) {
             op1 = getReg(operand1.getName());
-            textSegment.add(new MipsInstruction(ADDIU, op1.getName(), "$zero", operand1.getName()));
+            textSegment.add(new MipsInstruction(ADDIU, op1, MipsRegister.ZERO, imm(operand1)));
         }
         if (operand2 instanceof Constant) {
             op2 = getReg(operand2.getName());
-            textSegment.add(new MipsInstruction(ADDIU, op2.getName(), "$zero", operand2.getName()));
+            textSegment.add(new MipsInstruction(ADDIU, op2, MipsRegister.ZERO, imm(operand2)));
         }
         if (op1 == null) {
             op1 = getReg(operand1.getFullName());
@@ -538,14 +541,14 @@ public class OldTranslator {
             op2 = getReg(operand2.getFullName());
         }
         MipsInstrType type = (op == Instruction.Type.MUL) ? MULT : DIV;
-        textSegment.add(new MipsInstruction(type, op1.getName(), op2.getName()));
+        textSegment.add(new MipsInstruction(type, op1, op2));
         regManager.resetTempReg(op1);
         regManager.resetTempReg(op2);
         MipsRegister temp = getReg(binaryOperator.getFullName());
         if (op == Instruction.Type.MUL || op == Instruction.Type.SDIV) {
-            textSegment.add(new MipsInstruction(MFLO, temp.getName()));
+            textSegment.add(new MipsInstruction(MFLO, temp));
         } else {
-            textSegment.add(new MipsInstruction(MFHI, temp.getName()));
+            textSegment.add(new MipsInstruction(MFHI, temp));
         }
     }
 
@@ -554,7 +557,7 @@ public class OldTranslator {
         MipsRegister reg = getReg(op1.getFullName());
         regManager.resetTempReg(reg);
         MipsRegister temp = getRegForVirtual(trunc.getFullName());
-        textSegment.add(new MipsInstruction(ANDI, temp.getName(), reg.getName(), "0xFF"));
+        textSegment.add(new MipsInstruction(ANDI, temp, reg, new Imm(0xFF)));
 
 //        MipsRegister reg = getReg(op1.getFullName());
 //        regManager.getTempUseMap().put(reg.getNo(), trunc.getFullName());
@@ -565,7 +568,7 @@ public class OldTranslator {
         MipsRegister reg = getReg(op1.getFullName());
         regManager.resetTempReg(reg);
         MipsRegister temp = getRegForVirtual(zext.getFullName());
-        textSegment.add(new MipsInstruction(ANDI, temp.getName(), reg.getName(), "0xFF"));
+        textSegment.add(new MipsInstruction(ANDI, temp, reg, new Imm(0xFF)));
 
 //        MipsRegister reg = getReg(op1.getFullName());
 //        regManager.getTempUseMap().put(reg.getNo(), zext.getFullName());
@@ -574,16 +577,16 @@ public class OldTranslator {
     public void genBranch(Branch branch) {
         textSegment.add(new MipsInstruction("# " + branch));
         if (branch.getOperands().size() == 1) { // 直接跳转
-            textSegment.add(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(0)).getLabel()));
+            textSegment.add(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(0)).getLabel())));
             textSegment.add(new MipsInstruction(NOP));
             return;
         }
         Value cond = branch.getOperands().get(0);
         if (cond instanceof Constant) {
-            if (cond.getName().equals("0")) {
-                textSegment.add(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(2)).getLabel()));
+            if (((Constant) cond).getValue() == 0) {
+                textSegment.add(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(2)).getLabel())));
             } else {
-                textSegment.add(new MipsInstruction(J, ((BasicBlock) branch.getOperands().get(1)).getLabel()));
+                textSegment.add(new MipsInstruction(J, new Label(((BasicBlock) branch.getOperands().get(1)).getLabel())));
             }
             textSegment.add(new MipsInstruction(NOP));
             return;
@@ -605,30 +608,30 @@ public class OldTranslator {
         MipsRegister op1 = getReg(value1.getFullName());
         MipsRegister op2 = getReg(value2.getFullName());
         if (value1 instanceof Constant) {
-            textSegment.add(new MipsInstruction(LI, op1.getName(), value1.getName()));
+            textSegment.add(new MipsInstruction(LI, op1, imm(value1)));
         }
         if (value2 instanceof Constant) {
-            textSegment.add(new MipsInstruction(LI, op2.getName(), value2.getName()));
+            textSegment.add(new MipsInstruction(LI, op2, imm(value2)));
         }
         MipsInstruction branch;
         switch (judge.getCondType()) {
             case NE:
-                branch = new MipsInstruction(BNE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BNE, op1, op2, new Label(target.getLabel()));
                 break;
             case EQ:
-                branch = new MipsInstruction(BEQ, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BEQ, op1, op2, new Label(target.getLabel()));
                 break;
             case SGE:
-                branch = new MipsInstruction(BGE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BGE, op1, op2, new Label(target.getLabel()));
                 break;
             case SLE:
-                branch = new MipsInstruction(BLE, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BLE, op1, op2, new Label(target.getLabel()));
                 break;
             case SGT:
-                branch = new MipsInstruction(BGT, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BGT, op1, op2, new Label(target.getLabel()));
                 break;
             case SLT:
-                branch = new MipsInstruction(BLT, op1.getName(), op2.getName(), target.getLabel());
+                branch = new MipsInstruction(BLT, op1, op2, new Label(target.getLabel()));
                 break;
             default:
                 branch = new MipsInstruction(NOP);
@@ -679,21 +682,21 @@ public class OldTranslator {
                 MipsRegister op1;
                 MipsRegister op2;
                 if (value1 instanceof Constant) {
-                    if (value1.getName().equals("0")) {
+                    if (((Constant) value1).getValue() == 0) {
                         op1 = regManager.getReg(0);
                     } else {
                         op1 = getReg("compare1");
-                        textSegment.add(new MipsInstruction(LI, op1.getName(), value1.getName()));
+                        textSegment.add(new MipsInstruction(LI, op1, imm(value1)));
                     }
                 } else {
                     op1 = getReg(value1.getFullName());
                 }
                 if (value2 instanceof Constant) {
-                    if (value2.getName().equals("0")) {
+                    if (((Constant) value2).getValue() == 0) {
                         op2 = regManager.getReg(0);
                     } else {
                         op2 = getReg("compare2");
-                        textSegment.add(new MipsInstruction(LI, op2.getName(), value2.getName()));
+                        textSegment.add(new MipsInstruction(LI, op2, imm(value2)));
                     }
                 } else {
                     op2 = getReg(value2.getFullName());
@@ -707,24 +710,24 @@ public class OldTranslator {
         MipsInstruction compare;
         switch (type) {
             case NE:
-                compare = new MipsInstruction(SNE, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SNE, temp, op1, op2);
                 break;
             case EQ:
-                compare = new MipsInstruction(SEQ, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SEQ, temp, op1, op2);
                 break;
             case SGE:   // >= 就是 < 再取反
-                textSegment.add(new MipsInstruction(SLT, temp.getName(), op1.getName(), op2.getName()));
-                compare = new MipsInstruction(SEQ, temp.getName(), temp.getName(), "$zero");
+                textSegment.add(new MipsInstruction(SLT, temp, op1, op2));
+                compare = new MipsInstruction(SEQ, temp, temp, MipsRegister.ZERO);
                 break;
             case SLE:   // <= 就是 > 再取反
-                textSegment.add(new MipsInstruction(SLT, temp.getName(), op2.getName(), op1.getName()));
-                compare = new MipsInstruction(SEQ, temp.getName(), temp.getName(), "$zero");
+                textSegment.add(new MipsInstruction(SLT, temp, op2, op1));
+                compare = new MipsInstruction(SEQ, temp, temp, MipsRegister.ZERO);
                 break;
             case SGT:   // > 就是交换操作数的 <
-                compare = new MipsInstruction(SLT, temp.getName(), op2.getName(), op1.getName());
+                compare = new MipsInstruction(SLT, temp, op2, op1);
                 break;
             case SLT:
-                compare = new MipsInstruction(SLT, temp.getName(), op1.getName(), op2.getName());
+                compare = new MipsInstruction(SLT, temp, op1, op2);
                 break;
             default:
                 compare = new MipsInstruction(NOP);
@@ -753,8 +756,8 @@ public class OldTranslator {
 
     public void spill() {
         // 旧的值sw进栈
-        textSegment.add(new MipsInstruction(ADDIU, "$sp", "$sp", String.valueOf(-4)));
-        textSegment.add(new MipsInstruction(SW, regManager.getDiscardReg().getName(), "$sp", "0"));
+        textSegment.add(new MipsInstruction(ADDIU, MipsRegister.SP, MipsRegister.SP, new Imm(-4)));
+        textSegment.add(new MipsInstruction(SW, regManager.getDiscardReg(), new Mem(MipsRegister.SP, 0)));
         stackManager.setVirtualReg(regManager.getDiscardVirtual(), 0);
     }
 
@@ -766,6 +769,11 @@ public class OldTranslator {
         return textSegment;
     }
 
+    // 常量操作数转为立即数
+    private Imm imm(Value constant) {
+        return new Imm(((Constant) constant).getValue());
+    }
+
     public String getDataType(ValueType.DataType dataType, boolean isString) {
         if (isString) {
             return ".asciiz";
@@ -18,11 +18,12 @@ public class RegManager {
 
     private String discardVirtual;
 
-    private final StackManager stackManager = StackManager.getInstance();
+    private final StackManager stackManager;
 
-    public RegManager() {
+    public RegManager(StackManager stackManager) {
+        this.stackManager = stackManager;
         for (int i = 0; i < 32; i++) {
-            regPool.add(new MipsRegister(i));
+            regPool.add(MipsRegister.get(i));
             tempUseMap.put(i, "");
             argumentUseMap.put(i, "");
         }
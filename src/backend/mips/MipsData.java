@@ -1,5 +1,7 @@
 package backend.mips;
 
+import java.io.IOException;
+
 public class MipsData {
     private String name;
     private String type;
@@ -11,8 +13,12 @@ public class MipsData {
         this.init = init;
     }
 
+    public void appendTo(Appendable out) throws IOException {
+        out.append('\t').append(name).append(": ").append(type).append(' ').append(init);
+    }
+
     @Override
     public String toString() {
-        return String.format("\t%s: %s %s", name, type, init);
+        return "\t" + name + ": " + type + " " + init;
     }
 }
@@ -40,9 +40,15 @@ public enum MipsInstrType {
     NOP("nop");
 
     private final String value;
+    private final String prefix;    // 输出时的"\t助记符 "，预先拼好
 
     MipsInstrType(String value) {
         this.value = value;
+        this.prefix = "\t" + value + " ";
+    }
+
+    public String getPrefix() {
+        return prefix;
     }
 
     public boolean isMem() {
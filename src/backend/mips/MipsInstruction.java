@@ -1,41 +1,41 @@
 package backend.mips;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 
 public class MipsInstruction {
-    private String operand1;
-    private String operand2;
-    private String operand3;
+    private MipsOperand operand1;
+    private MipsOperand operand2;
+    private MipsOperand operand3;
     private MipsInstrType op;
-    private boolean isLabel = false;
-    private boolean isMem = false;
+    private String label;   // 标签或注释
     private int operandNum = 3;
 
-    public MipsInstruction(MipsInstrType op, String operand1,
-                           String operand2, String operand3) {
+    public MipsInstruction(MipsInstrType op, MipsOperand operand1,
+                           MipsOperand operand2, MipsOperand operand3) {
         this.op = op;
         this.operand1 = operand1;
         this.operand2 = operand2;
         this.operand3 = operand3;
-        this.isMem = op.isMem();
     }
 
-    public MipsInstruction(MipsInstrType op, String operand1, String operand2) {
+    public MipsInstruction(MipsInstrType op, MipsOperand operand1, MipsOperand operand2) {
         this.op = op;
         this.operand1 = operand1;
         this.operand2 = operand2;
         operandNum = 2;
     }
 
-    public MipsInstruction(MipsInstrType op, String operand1) {
+    public MipsInstruction(MipsInstrType op, MipsOperand operand1) {
         this.op = op;
         this.operand1 = operand1;
         operandNum = 1;
     }
 
     public MipsInstruction(String label) {
-        this.operand1 = label;
-        this.isLabel = true;
+        this.label = label;
+        this.operandNum = 0;
     }
 
     public MipsInstruction(MipsInstrType op) {
@@ -47,8 +47,16 @@ public class MipsInstruction {
         return op;
     }
 
-    public ArrayList<String> getOperands() {
-        ArrayList<String> operands = new ArrayList<>();
+    public boolean isLabel() {
+        return label != null;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public ArrayList<MipsOperand> getOperands() {
+        ArrayList<MipsOperand> operands = new ArrayList<>();
         if (operand1 != null) {
             operands.add(operand1);
         }
@@ -61,22 +69,35 @@ public class MipsInstruction {
         return operands;
     }
 
-    @Override
-    public String toString() {
-        if (isLabel) {
-            return String.format("%s:", operand1);
+    public void appendTo(Appendable out) throws IOException {
+        if (label != null) {
+            out.append(label).append(':');
+            return;
         }
         if (operandNum == 0) {
-            return String.format("\t%s", op.toString());
-        } else if (operandNum == 1) {
-            return String.format("\t%s %s", op.toString(), operand1);
-        } else if (operandNum == 2) {
-            return String.format("\t%s %s, %s", op.toString(), operand1, operand2);
-        } else {
-            if (isMem) {
-                return String.format("\t%s %s, %s(%s)", op.toString(), operand1, operand3, operand2);
-            }
-            return String.format("\t%s %s, %s, %s", op.toString(), operand1, operand2, operand3);
+            out.append('\t').append(op.toString());
+            return;
+        }
+        out.append(op.getPrefix());
+        operand1.appendTo(out);
+        if (operandNum > 1) {
+            out.append(", ");
+            operand2.appendTo(out);
+        }
+        if (operandNum > 2) {
+            out.append(", ");
+            operand3.appendTo(out);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return sb.toString();
     }
 }
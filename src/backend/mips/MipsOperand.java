@@ -0,0 +1,85 @@
+package backend.mips;
+
+import java.io.IOException;
+
+/**
+ * mips指令的操作数：寄存器(MipsRegister)、立即数、标签、基址+偏移。
+ * 只在输出时转成文本，后端分析与窥孔优化直接读取其中的字段
+ */
+public interface MipsOperand {
+
+    void appendTo(Appendable out) throws IOException;
+
+    class Imm implements MipsOperand {
+        private final int value;
+
+        public Imm(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            out.append(String.valueOf(value));
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    class Label implements MipsOperand {
+        private final String name;
+
+        public Label(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            out.append(name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // offset(base)
+    class Mem implements MipsOperand {
+        private final MipsRegister base;
+        private final int offset;
+
+        public Mem(MipsRegister base, int offset) {
+            this.base = base;
+            this.offset = offset;
+        }
+
+        public MipsRegister getBase() {
+            return base;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            out.append(String.valueOf(offset)).append('(').append(base.getName()).append(')');
+        }
+
+        @Override
+        public String toString() {
+            return offset + "(" + base.getName() + ")";
+        }
+    }
+}
@@ -1,27 +1,33 @@
 package backend.mips;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MipsRegister {
-    public static String[] RegName = {  // t8 t9的编号与mips原设计有出入
-            "$zero", "$at", "$v0", "$v1", "$a0", "$a1", "$a2", "$a3",
-            "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7",
-            "$t8", "$t9",
-            "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7",
-            "$k0", "$k1", "$gp", "$sp", "$fp", "$ra"
-    };
+public enum MipsRegister implements MipsOperand {
+    // t8 t9的编号与mips原设计有出入
+    ZERO("$zero"), AT("$at"), V0("$v0"), V1("$v1"),
+    A0("$a0"), A1("$a1"), A2("$a2"), A3("$a3"),
+    T0("$t0"), T1("$t1"), T2("$t2"), T3("$t3"), T4("$t4"), T5("$t5"), T6("$t6"), T7("$t7"),
+    T8("$t8"), T9("$t9"),
+    S0("$s0"), S1("$s1"), S2("$s2"), S3("$s3"), S4("$s4"), S5("$s5"), S6("$s6"), S7("$s7"),
+    K0("$k0"), K1("$k1"), GP("$gp"), SP("$sp"), FP("$fp"), RA("$ra");
+
+    private static final MipsRegister[] REGS = values();
 
     private final String name;
-    private int no;
 
-    public MipsRegister(String name) {
+    MipsRegister(String name) {
         this.name = name;
-        for (int i = 0; i < RegName.length; i++) {
-            if (RegName[i].equals(name)) {
-                this.no = i;
-            }
-        }
+    }
+
+    public static MipsRegister get(int no) {
+        return REGS[no];
+    }
+
+    // 第i个参数寄存器$a_i
+    public static MipsRegister arg(int i) {
+        return REGS[A0.ordinal() + i];
     }
 
     public static List<Integer> allocableRegs() {
@@ -34,9 +40,10 @@ public class MipsRegister {
         return regs;
     }
 
-    public MipsRegister(int i) {
-        this.name = RegName[i];
-        this.no = i;
+    // 函数可以自行保存的寄存器($s0-$s7)。只有ClobberAnalyze放进preserveS的被调函数才真的自己保存，
+    // 调用其它函数时调用点仍要按保存表保存用到的$s寄存器
+    public static boolean isCalleeSaved(int no) {
+        return no >= S0.ordinal() && no <= S7.ordinal();
     }
 
     public String getName() {
@@ -44,19 +51,12 @@ public class MipsRegister {
     }
 
     public int getNo() {
-        return no;
+        return ordinal();
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (!(obj instanceof MipsRegister)) {
-            return false;
-        }
-        MipsRegister o = (MipsRegister) obj;
-        return o.name.equals(this.name);
+    public void appendTo(Appendable out) throws IOException {
+        out.append(name);
     }
 
     @Override
@@ -4,25 +4,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 
 public class StackManager {
-    private static StackManager stackManager = new StackManager();
     private int stackPtr;   // 栈顶偏移指针
-    private HashMap<String, Integer> stackFrameMap; // 栈帧
+    private int pushed;     // push累计使栈顶下移的字节数
+    private HashMap<String, Integer> stackFrameMap; // 栈帧，记录相对于push之前栈顶的位置
+    private HashMap<String, Integer> belowFrameMap; // 栈顶之下(传参)的位置，push时不移动
     private HashSet<String> globalDataSet = new HashSet<>();
 
     /**
-     * ra <br>
-     * fp <br>
+     * 从栈底到栈顶：<br>
+     * arguments(第4个以后的参数) <br>
+     * ra(非叶子函数) <br>
      * local variables(局部变量) <br>
-     * save register <br>
-     * arguments <br>
+     * save register(实际保存的寄存器) <br>
      */
-    private StackManager() {
+    public StackManager() {
         stackPtr = 0;
+        pushed = 0;
         stackFrameMap = new HashMap<>();
-    }
-
-    public static StackManager getInstance() {
-        return stackManager;
+        belowFrameMap = new HashMap<>();
     }
 
     public void addGlobalData(String data) {
@@ -40,13 +39,19 @@ public class StackManager {
      */
     public int putVirtualReg(String name, int size) {
         int res = stackPtr;
-        stackFrameMap.put(name, stackPtr);
+        setVirtualReg(name, stackPtr);
         stackPtr += size;
         return res;
     }
 
     public void setVirtualReg(String name, int ptr) {
-        stackFrameMap.put(name, ptr);
+        if (ptr >= 0) {
+            belowFrameMap.remove(name);
+            stackFrameMap.put(name, ptr - pushed);
+        } else {
+            stackFrameMap.remove(name);
+            belowFrameMap.put(name, ptr);
+        }
     }
 
     public int getStackPtr() {
@@ -58,30 +63,30 @@ public class StackManager {
     }
 
     public int getVirtualPtr(String name) {
-        if (!stackFrameMap.containsKey(name)) {
-            return -1;
+        if (stackFrameMap.containsKey(name)) {
+            return stackFrameMap.get(name) + pushed;
         }
-        return stackFrameMap.get(name);
+        return belowFrameMap.getOrDefault(name, -1);
     }
 
     public boolean inStack(String name) {
-        return stackFrameMap.containsKey(name);
+        return stackFrameMap.containsKey(name) || belowFrameMap.containsKey(name);
     }
 
+    /**
+     * 栈顶下移4字节放入name，已有的位置都随之加4；只记录累计移动量，不逐个改写
+     */
     public void push(String name) {
-        for (String virtual: stackFrameMap.keySet()) {
-            if (stackFrameMap.get(virtual) >= 0) {
-                int ptr = stackFrameMap.get(virtual) + 4;
-                stackFrameMap.put(virtual, ptr);
-            }
-        }
-        stackFrameMap.put(name, 0);
+        pushed += 4;
+        setVirtualReg(name, 0);
         stackPtr += 4;
     }
 
     public void clear() {
         stackPtr = 0;
+        pushed = 0;
         stackFrameMap.clear();
+        belowFrameMap.clear();
     }
 
 }
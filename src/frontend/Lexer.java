@@ -1,272 +1,303 @@
 package frontend;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
 
-public class Lexer {
+public class Lexer implements TokenSource {
     private int tokenIndex;
     private int lineno;
-    private final String sourceCode;
-    private final ArrayList<Token> tokens;
+    private final char[] sourceCode;  // 直接在字符缓冲区上扫描，token只记录起始偏移
+    private final int codeLength;
     private final ArrayList<Error> errors;
-    private final HashMap<String, TokenType> keywords = new HashMap<String, TokenType>() {{
-        put("main", TokenType.MAINTK);
-        put("const", TokenType.CONSTTK);
-        put("int", TokenType.INTTK);
-        put("char", TokenType.CHARTK);
-        put("break", TokenType.BREAKTK);
-        put("continue", TokenType.CONTINUETK);
-        put("if", TokenType.IFTK);
-        put("else", TokenType.ELSETK);
-        put("for", TokenType.FORTK);
-        put("getint", TokenType.GETINTTK);
-        put("getchar", TokenType.GETCHARTK);
-        put("printf", TokenType.PRINTFTK);
-        put("return", TokenType.RETURNTK);
-        put("void", TokenType.VOIDTK);
-    }};
+    private final NameTable nameTable;  // 关键字识别与标识符驻留
+    // 最近一次扫描到的token
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
 
     public Lexer(String programCode) {
-        tokens = new ArrayList<>();
+        this(programCode.toCharArray(), programCode.length());
+    }
+
+    public Lexer(CharBuffer programCode) {
+        this(programCode.hasArray() && programCode.arrayOffset() == 0 && programCode.position() == 0
+                ? programCode.array() : programCode.toString().toCharArray(), programCode.remaining());
+    }
+
+    public Lexer(char[] programCode, int codeLength) {
         errors = new ArrayList<>();
+        nameTable = new NameTable();
         tokenIndex = 0;
         lineno = 1;
         this.sourceCode = programCode;
+        this.codeLength = codeLength;
     }
 
-    public void analyzeCode() {
-        Token token;
-        while ((token = next()) != null) {
-            if (token.getType() != TokenType.ANNOTATION) {
-                tokens.add(token);
+    @Override
+    public TokenType scanToken() {
+        TokenType type;
+        while ((type = scan()) != null) {
+            if (type != TokenType.ANNOTATION) {
+                return type;
             }
         }
+        return null;
     }
 
-    public ArrayList<Token> getTokens() {
-        return tokens;
+    @Override
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    @Override
+    public int tokenLength() {
+        return tokenLength;
+    }
+
+    @Override
+    public int tokenLine() {
+        return tokenLine;
+    }
+
+    @Override
+    public String contentOf(TokenType type, int start, int length) {
+        if (type == TokenType.IDENFR || type.isKeyword()) {
+            // 标识符与关键字取驻留的字符串
+            int slot = nameTable.lookup(sourceCode, start, length, NameTable.hash(sourceCode, start, length));
+            return nameTable.getName(slot);
+        }
+        return new String(sourceCode, start, length);
+    }
+
+    @Override
+    public void writeContent(Writer out, int start, int length) throws IOException {
+        out.write(sourceCode, start, length);
     }
 
     public ArrayList<Error> getErrors() {
         return errors;
     }
 
-    public Token next() {
-        StringBuilder sb = new StringBuilder();
+    private TokenType emit(TokenType type, int start) {
+        tokenStart = start;
+        tokenLength = tokenIndex - start;
+        tokenLine = lineno;
+        return type;
+    }
+
+    private TokenType scan() {
         // 去掉多余空白符
-        while (tokenIndex < sourceCode.length() && (isSpace() || isTab() || isNewLine())) {
+        while (tokenIndex < codeLength && (isSpace() || isTab() || isNewLine())) {
             tokenIndex++;
         }
-        if (tokenIndex >= sourceCode.length()) {
+        if (tokenIndex >= codeLength) {
             return null;
         }
+        int start = tokenIndex;
         // 标识符 or 关键字
         if (isIdentNonDigit()) {
+            int hash = 0;
             while (isIdentNonDigit() || isDigit()) {
-                sb.append(sourceCode.charAt(tokenIndex));
+                hash = 31 * hash + sourceCode[tokenIndex];
                 tokenIndex++;
             }
-            if (keywords.containsKey(sb.toString())) {
-                return new Token(keywords.get(sb.toString()), sb.toString(), lineno);
-            }
-            return new Token(TokenType.IDENFR, sb.toString(), lineno);
+            int slot = nameTable.lookup(sourceCode, start, tokenIndex - start, hash);
+            return emit(nameTable.getType(slot), start);
         }
         // 数值常量
         else if (isDigit()) {
             while (isDigit()) {
-                sb.append(sourceCode.charAt(tokenIndex));
                 tokenIndex++;
             }
-            return new Token(TokenType.INTCON, sb.toString(), lineno);
+            return emit(TokenType.INTCON, start);
         }
         // 字符常量
-        else if (sourceCode.charAt(tokenIndex) == '\'') {
-            sb.append(sourceCode.charAt(tokenIndex));
+        else if (charAt(tokenIndex) == '\'') {
             tokenIndex++;
             if (isAscii()) {
-                sb.append(sourceCode.charAt(tokenIndex));
                 if (isEscape()) {
                     tokenIndex++;
-                    sb.append(sourceCode.charAt(tokenIndex));
                 }
                 tokenIndex++;
             }
-            if (sourceCode.charAt(tokenIndex) == '\'') {
-                sb.append(sourceCode.charAt(tokenIndex));
+            if (charAt(tokenIndex) == '\'') {
                 tokenIndex++;
             }
-            return new Token(TokenType.CHRCON, sb.toString(), lineno);
+            return emit(TokenType.CHRCON, start);
         }
         // 字符串常量
-        else if (sourceCode.charAt(tokenIndex) == '\"') {
-            sb.append(sourceCode.charAt(tokenIndex));
+        else if (charAt(tokenIndex) == '\"') {
             tokenIndex++;
-            while (isAscii() && sourceCode.charAt(tokenIndex) != '\"') {
-                sb.append(sourceCode.charAt(tokenIndex));
+            while (isAscii() && charAt(tokenIndex) != '\"') {
                 tokenIndex++;
             }
-            if (sourceCode.charAt(tokenIndex) == '\"') {
-                sb.append(sourceCode.charAt(tokenIndex));
+            if (charAt(tokenIndex) == '\"') {
                 tokenIndex++;
             }
-            return new Token(TokenType.STRCON, sb.toString(), lineno);
+            return emit(TokenType.STRCON, start);
         }
         // NOT or NEQ
-        else if (sourceCode.charAt(tokenIndex) == '!') {
+        else if (charAt(tokenIndex) == '!') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '=') {
+            if (charAt(tokenIndex) == '=') {
                 tokenIndex++;
-                return new Token(TokenType.NEQ, "!=", lineno);
+                return emit(TokenType.NEQ, start);
             }
-            return new Token(TokenType.NOT, "!", lineno);
+            return emit(TokenType.NOT, start);
         }
         // AND
-        else if (sourceCode.charAt(tokenIndex) == '&') {
+        else if (charAt(tokenIndex) == '&') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '&') {
+            if (charAt(tokenIndex) == '&') {
                 tokenIndex++;
-                return new Token(TokenType.AND, "&&", lineno);
+                return emit(TokenType.AND, start);
             } else {
                 //TODO: else errors
                 errors.add(new Error("a", lineno));
-                return new Token(TokenType.AND, "&", lineno);
+                return emit(TokenType.AND, start);
             }
         }
         // OR
-        else if (sourceCode.charAt(tokenIndex) == '|') {
+        else if (charAt(tokenIndex) == '|') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '|') {
+            if (charAt(tokenIndex) == '|') {
                 tokenIndex++;
-                return new Token(TokenType.OR, "||", lineno);
+                return emit(TokenType.OR, start);
             } else {
                 //TODO: else errors
                 errors.add(new Error("a", lineno));
-                return new Token(TokenType.OR, "|", lineno);
+                return emit(TokenType.OR, start);
             }
         }
         // PLUS
-        else if (sourceCode.charAt(tokenIndex) == '+') {
+        else if (charAt(tokenIndex) == '+') {
             tokenIndex++;
-            return new Token(TokenType.PLUS, "+", lineno);
+            return emit(TokenType.PLUS, start);
         }
         // MINU
-        else if (sourceCode.charAt(tokenIndex) == '-') {
+        else if (charAt(tokenIndex) == '-') {
             tokenIndex++;
-            return new Token(TokenType.MINU, "-", lineno);
+            return emit(TokenType.MINU, start);
         }
         // MULT
-        else if (sourceCode.charAt(tokenIndex) == '*') {
+        else if (charAt(tokenIndex) == '*') {
             tokenIndex++;
-            return new Token(TokenType.MULT, "*", lineno);
+            return emit(TokenType.MULT, start);
         }
         // DIV or Annotation
-        else if (sourceCode.charAt(tokenIndex) == '/') {
+        else if (charAt(tokenIndex) == '/') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '/') {
+            if (charAt(tokenIndex) == '/') {
                 tokenIndex++;
-                while ((sourceCode.charAt(tokenIndex) != '\n')) {
+                while (tokenIndex < codeLength && charAt(tokenIndex) != '\n') {
                     tokenIndex++;
                 }
-                return new Token(TokenType.ANNOTATION, "//", lineno);
-            } else if (sourceCode.charAt(tokenIndex) == '*') {
+                return emit(TokenType.ANNOTATION, start);
+            } else if (charAt(tokenIndex) == '*') {
                 tokenIndex++;
-                while ((sourceCode.charAt(tokenIndex) != '*')
-                        || (sourceCode.charAt(tokenIndex + 1) != '/')) {
-                    if (sourceCode.charAt(tokenIndex) == '\n') {
+                while (tokenIndex < codeLength
+                        && (charAt(tokenIndex) != '*' || charAt(tokenIndex + 1) != '/')) {
+                    if (charAt(tokenIndex) == '\n') {
                         lineno++;
                     }
                     tokenIndex++;
                 }
                 tokenIndex += 2;
-                return new Token(TokenType.ANNOTATION, "/**/", lineno);
+                return emit(TokenType.ANNOTATION, start);
             }
-            return new Token(TokenType.DIV, "/", lineno);
+            return emit(TokenType.DIV, start);
         }
         // MOD
-        else if (sourceCode.charAt(tokenIndex) == '%') {
+        else if (charAt(tokenIndex) == '%') {
             tokenIndex++;
-            return new Token(TokenType.MOD, "%", lineno);
+            return emit(TokenType.MOD, start);
         }
         // LEQ or LSS
-        else if (sourceCode.charAt(tokenIndex) == '<') {
+        else if (charAt(tokenIndex) == '<') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '=') {
+            if (charAt(tokenIndex) == '=') {
                 tokenIndex++;
-                return new Token(TokenType.LEQ, "<=", lineno);
+                return emit(TokenType.LEQ, start);
             }
-            return new Token(TokenType.LSS, "<", lineno);
+            return emit(TokenType.LSS, start);
         }
         // GEQ or GRE
-        else if (sourceCode.charAt(tokenIndex) == '>') {
+        else if (charAt(tokenIndex) == '>') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '=') {
+            if (charAt(tokenIndex) == '=') {
                 tokenIndex++;
-                return new Token(TokenType.GEQ, ">=", lineno);
+                return emit(TokenType.GEQ, start);
             }
-            return new Token(TokenType.GRE, ">", lineno);
+            return emit(TokenType.GRE, start);
         }
         // EQL or ASSIGN
-        else if (sourceCode.charAt(tokenIndex) == '=') {
+        else if (charAt(tokenIndex) == '=') {
             tokenIndex++;
-            if (sourceCode.charAt(tokenIndex) == '=') {
+            if (charAt(tokenIndex) == '=') {
                 tokenIndex++;
-                return new Token(TokenType.EQL, "==", lineno);
+                return emit(TokenType.EQL, start);
             }
-            return new Token(TokenType.ASSIGN, "=", lineno);
+            return emit(TokenType.ASSIGN, start);
         }
         // SEMICN
-        else if (sourceCode.charAt(tokenIndex) == ';') {
+        else if (charAt(tokenIndex) == ';') {
             tokenIndex++;
-            return new Token(TokenType.SEMICN, ";", lineno);
+            return emit(TokenType.SEMICN, start);
         }
         // COMMA
-        else if (sourceCode.charAt(tokenIndex) == ',') {
+        else if (charAt(tokenIndex) == ',') {
             tokenIndex++;
-            return new Token(TokenType.COMMA, ",", lineno);
+            return emit(TokenType.COMMA, start);
         }
         // LPARENT
-        else if (sourceCode.charAt(tokenIndex) == '(') {
+        else if (charAt(tokenIndex) == '(') {
             tokenIndex++;
-            return new Token(TokenType.LPARENT, "(", lineno);
+            return emit(TokenType.LPARENT, start);
         }
         // RPARENT
-        else if (sourceCode.charAt(tokenIndex) == ')') {
+        else if (charAt(tokenIndex) == ')') {
             tokenIndex++;
-            return new Token(TokenType.RPARENT, ")", lineno);
+            return emit(TokenType.RPARENT, start);
         }
         // LBRACK
-        else if (sourceCode.charAt(tokenIndex) == '[') {
+        else if (charAt(tokenIndex) == '[') {
             tokenIndex++;
-            return new Token(TokenType.LBRACK, "[", lineno);
+            return emit(TokenType.LBRACK, start);
         }
         // RBRACK
-        else if (sourceCode.charAt(tokenIndex) == ']') {
+        else if (charAt(tokenIndex) == ']') {
             tokenIndex++;
-            return new Token(TokenType.RBRACK, "]", lineno);
+            return emit(TokenType.RBRACK, start);
         }
         // LBRACE
-        else if (sourceCode.charAt(tokenIndex) == '{') {
+        else if (charAt(tokenIndex) == '{') {
             tokenIndex++;
-            return new Token(TokenType.LBRACE, "{", lineno);
+            return emit(TokenType.LBRACE, start);
         }
         // RBRACE
-        else if (sourceCode.charAt(tokenIndex) == '}') {
+        else if (charAt(tokenIndex) == '}') {
             tokenIndex++;
-            return new Token(TokenType.RBRACE, "}", lineno);
+            return emit(TokenType.RBRACE, start);
         }
         return null;
     }
 
+    private char charAt(int index) {
+        return index < codeLength ? sourceCode[index] : '\0';
+    }
+
     public boolean isSpace() {
-        return sourceCode.charAt(tokenIndex) == ' ';
+        return charAt(tokenIndex) == ' ' || charAt(tokenIndex) == '\r';
     }
 
     public boolean isTab() {
-        return sourceCode.charAt(tokenIndex) == '\t';
+        return charAt(tokenIndex) == '\t';
     }
 
     public boolean isNewLine() {
-        if (sourceCode.charAt(tokenIndex) == '\n') {
+        if (charAt(tokenIndex) == '\n') {
             lineno++;
             return true;
         }
@@ -274,31 +305,31 @@ public class Lexer {
     }
 
     public boolean isDigit() {
-        return sourceCode.charAt(tokenIndex) >= '0' && sourceCode.charAt(tokenIndex) <= '9';
+        return charAt(tokenIndex) >= '0' && charAt(tokenIndex) <= '9';
     }
 
     public boolean isIdentNonDigit() {
-        char chr = sourceCode.charAt(tokenIndex);
-        return Character.isLowerCase(chr) || Character.isUpperCase(chr) || chr == '_';
+        char chr = charAt(tokenIndex);
+        return (chr >= 'a' && chr <= 'z') || (chr >= 'A' && chr <= 'Z') || chr == '_';
     }
 
     public boolean isAscii() {
-        return sourceCode.charAt(tokenIndex) >= 32
-                && sourceCode.charAt(tokenIndex) <= 126
+        return charAt(tokenIndex) >= 32
+                && charAt(tokenIndex) <= 126
                 || isEscape();
     }
 
     public boolean isEscape() {
-        return sourceCode.charAt(tokenIndex) == '\\' &&
-                (sourceCode.charAt(tokenIndex + 1) == 'a'
-                || sourceCode.charAt(tokenIndex + 1) == 'b'
-                || sourceCode.charAt(tokenIndex + 1) == 't'
-                || sourceCode.charAt(tokenIndex + 1) == 'n'
-                || sourceCode.charAt(tokenIndex + 1) == 'v'
-                || sourceCode.charAt(tokenIndex + 1) == 'f'
-                || sourceCode.charAt(tokenIndex + 1) == '\"'
-                || sourceCode.charAt(tokenIndex + 1) == '\''
-                || sourceCode.charAt(tokenIndex + 1) == '\\'
-                || sourceCode.charAt(tokenIndex + 1) == '0');
+        return charAt(tokenIndex) == '\\' &&
+                (charAt(tokenIndex + 1) == 'a'
+                || charAt(tokenIndex + 1) == 'b'
+                || charAt(tokenIndex + 1) == 't'
+                || charAt(tokenIndex + 1) == 'n'
+                || charAt(tokenIndex + 1) == 'v'
+                || charAt(tokenIndex + 1) == 'f'
+                || charAt(tokenIndex + 1) == '\"'
+                || charAt(tokenIndex + 1) == '\''
+                || charAt(tokenIndex + 1) == '\\'
+                || charAt(tokenIndex + 1) == '0');
     }
 }
@@ -0,0 +1,118 @@
+package frontend;
+
+/**
+ * 标识符驻留表：直接以源码缓冲区中的字符区间查表，命中时不产生新的字符串。
+ * 关键字预先放入表中，查到即得其TokenType，因此关键字识别与标识符驻留共用一次哈希。
+ */
+public class NameTable {
+    private String[] names;
+    private TokenType[] types;
+    private int[] hashes;
+    private int size;
+
+    public NameTable() {
+        names = new String[256];
+        types = new TokenType[256];
+        hashes = new int[256];
+        size = 0;
+        for (TokenType type : TokenType.values()) {
+            if (type.isKeyword()) {
+                String keyword = type.getValue();
+                insert(keyword, type, hash(keyword.toCharArray(), 0, keyword.length()));
+            }
+        }
+    }
+
+    public static int hash(char[] buf, int start, int len) {
+        int h = 0;
+        for (int i = start; i < start + len; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h;
+    }
+
+    /**
+     * @param buf   源码缓冲区
+     * @param start 标识符起始位置
+     * @param len   标识符长度
+     * @param hash  扫描时顺带算出的哈希值
+     * @return 表中的槽位，通过getName/getType取内容
+     */
+    public int lookup(char[] buf, int start, int len, int hash) {
+        int mask = names.length - 1;
+        int slot = mix(hash) & mask;
+        while (names[slot] != null) {
+            if (hashes[slot] == hash && matches(names[slot], buf, start, len)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // 未出现过的标识符，驻留
+        String name = new String(buf, start, len);
+        if ((size + 1) * 2 > names.length) {
+            grow();
+            return insert(name, TokenType.IDENFR, hash);
+        }
+        names[slot] = name;
+        types[slot] = TokenType.IDENFR;
+        hashes[slot] = hash;
+        size++;
+        return slot;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public TokenType getType(int slot) {
+        return types[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int insert(String name, TokenType type, int hash) {
+        int mask = names.length - 1;
+        int slot = mix(hash) & mask;
+        while (names[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        types[slot] = type;
+        hashes[slot] = hash;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        TokenType[] oldTypes = types;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        types = new TokenType[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        size = 0;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                insert(oldNames[i], oldTypes[i], oldHashes[i]);
+            }
+        }
+    }
+
+    private static boolean matches(String name, char[] buf, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
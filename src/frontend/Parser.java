@@ -1,29 +1,36 @@
 package frontend;
 
 import frontend.ast.*;
-import frontend.ast.Character;
-import frontend.ast.Number;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
 
 public class Parser {
-    private final ArrayList<Token> lexerCode;
+    private static final int NONE = AstArena.NONE;
+    private final TokenStream tokens;
+    private final AstArena arena;   // 表达式结点
     private final ArrayList<Error> errors;
-    private int lexerIndex;
+    private final ArrayList<Error> lexerErrors;
     private CompUnit compUnit;
     private String curFuncName;
 
-    public Parser(ArrayList<Token> lexerCode, ArrayList<Error> errors) {
-        this.lexerCode = lexerCode;
-        lexerIndex = 0;
+    /**
+     * @param tokens 从词法分析器按需拉取token的流
+     * @param lexerErrors 词法分析器的错误表，词法分析与语法分析交替进行，语法分析结束后再合并
+     */
+    public Parser(TokenStream tokens, ArrayList<Error> lexerErrors) {
+        this.tokens = tokens;
+        this.arena = new AstArena(tokens.getSource());
         compUnit = null;
-        this.errors = errors;
+        this.lexerErrors = lexerErrors;
+        this.errors = new ArrayList<>();
     }
 
     public void analyzeTokens() {
-        lexerIndex = 0;
         compUnit = parseCompUnit();
+        tokens.drain();
+        errors.addAll(0, lexerErrors);
     }
 
     public CompUnit getCompUnit() {
@@ -31,19 +38,35 @@ public class Parser {
     }
 
     public Token sym() {
-        return lexerCode.get(lexerIndex);
+        return tokens.peek(0);
     }
 
     public Token sym(int bis) {
-        return lexerCode.get(lexerIndex + bis);
+        return tokens.peek(bis);
+    }
+
+    public TokenType symType() {
+        return tokens.peekType(0);
+    }
+
+    public TokenType symType(int bis) {
+        return tokens.peekType(bis);
+    }
+
+    public int symLine() {
+        return tokens.peekLine(0);
+    }
+
+    public int symLine(int bis) {
+        return tokens.peekLine(bis);
     }
 
     public void nextSym() {
-        lexerIndex++;
+        tokens.advance(1);
     }
 
     public void nextSym(int bis) {
-        lexerIndex += bis;
+        tokens.advance(bis);
     }
 
     public CompUnit parseCompUnit() {
@@ -52,13 +75,13 @@ public class Parser {
         MainFuncDef mainFuncDef = null;
         try {
             // MainFuncDef
-            if (sym(1).getType() == TokenType.MAINTK) {
+            if (symType(1) == TokenType.MAINTK) {
                 curFuncName = "main";
                 mainFuncDef = parseMainFuncDef();
                 return new CompUnit(decls, funcDefs, mainFuncDef);
             } else { // Decl
-                while (sym(2).getType() != TokenType.LPARENT) {
-                    if (sym().getType() == TokenType.CONSTTK) {
+                while (symType(2) != TokenType.LPARENT) {
+                    if (symType() == TokenType.CONSTTK) {
                         decls.add(parseConstDecl());
                     } else {
                         decls.add(parseVarDecl());
@@ -66,13 +89,13 @@ public class Parser {
                 }
             }
             // Main
-            if (sym(1).getType() == TokenType.MAINTK) {
+            if (symType(1) == TokenType.MAINTK) {
                 curFuncName = "main";
                 mainFuncDef = parseMainFuncDef();
                 return new CompUnit(decls, funcDefs, mainFuncDef);
             } else { // FuncDef
-                while (sym(2).getType() == TokenType.LPARENT
-                        && sym(1).getType() != TokenType.MAINTK) {
+                while (symType(2) == TokenType.LPARENT
+                        && symType(1) != TokenType.MAINTK) {
                     funcDefs.add(parseFuncDef());
                 }
             }
@@ -85,12 +108,12 @@ public class Parser {
     }
 
     public MainFuncDef parseMainFuncDef() throws Error {
-        int lineno = sym().getLineno();
+        int lineno = symLine();
         nextSym(3);  // int main (
-        if (sym().getType() == TokenType.RPARENT) {
+        if (symType() == TokenType.RPARENT) {
             nextSym();
         } else {
-            errors.add(new Error("j", sym(-1).getLineno()));
+            errors.add(new Error("j", symLine(-1)));
         }
         return new MainFuncDef(parseBlock(), lineno);
     }
@@ -102,14 +125,14 @@ public class Parser {
         nextSym();
         ArrayList<ConstDef> constDefs = new ArrayList<>();
         constDefs.add(parseConstDef());
-        while (sym().getType() == TokenType.COMMA) {
+        while (symType() == TokenType.COMMA) {
             nextSym();
             constDefs.add(parseConstDef());
         }
-        if (sym().getType() == TokenType.SEMICN) {
+        if (symType() == TokenType.SEMICN) {
             nextSym();
         } else {
-            errors.add(new Error("i", sym(-1).getLineno()));
+            errors.add(new Error("i", symLine(-1)));
         }
         return new ConstDecl(type, constDefs);
     }
@@ -120,14 +143,14 @@ public class Parser {
         nextSym();
         ArrayList<VarDef> varDefs = new ArrayList<>();
         varDefs.add(parseVarDef());
-        while (sym().getType() == TokenType.COMMA) {
+        while (symType() == TokenType.COMMA) {
             nextSym();
             varDefs.add(parseVarDef());
         }
-        if (sym().getType() == TokenType.SEMICN) {
+        if (symType() == TokenType.SEMICN) {
             nextSym();
         } else {
-            errors.add(new Error("i", sym(-1).getLineno()));
+            errors.add(new Error("i", symLine(-1)));
         }
         return new VarDecl(type, varDefs);
     }
@@ -135,45 +158,45 @@ public class Parser {
     public FuncDef parseFuncDef() throws Error {
         FuncType funcType = new FuncType(sym());
         nextSym();
-        if (sym().getType() != TokenType.IDENFR) {
-            throw new Error("myError", sym().getLineno());
+        if (symType() != TokenType.IDENFR) {
+            throw new Error("myError", symLine());
         }
         Token ident = sym();
         curFuncName = ident.getContent();
         nextSym();
         nextSym(); // 跳过左括号
         FuncFParams funcFParams;
-        if (sym().getType() != TokenType.RPARENT && isBType(sym())) { // 有params
+        if (symType() != TokenType.RPARENT && isBType(symType())) { // 有params
             funcFParams = parseFuncFParams();
-            if (sym().getType() == TokenType.RPARENT) {
+            if (symType() == TokenType.RPARENT) {
                 nextSym(); // 跳过右括号
             } else {
-                errors.add(new Error("j", sym(-1).getLineno()));
+                errors.add(new Error("j", symLine(-1)));
             }
             return new FuncDef(funcType, ident, funcFParams, parseBlock());
         }
-        if (sym().getType() == TokenType.RPARENT) {
+        if (symType() == TokenType.RPARENT) {
             nextSym(); // 跳过右括号
         } else {
-            errors.add(new Error("j", sym(-1).getLineno()));
+            errors.add(new Error("j", symLine(-1)));
         }
         return new FuncDef(funcType, ident, parseBlock());
     }
 
     public ConstDef parseConstDef() throws Error {
-        if (sym().getType() != TokenType.IDENFR) {
-            throw new Error("myError", sym().getLineno());
+        if (symType() != TokenType.IDENFR) {
+            throw new Error("myError", symLine());
         }
         Token ident = sym();
         nextSym();
         // 数组
-        if (sym().getType() == TokenType.LBRACK) {
+        if (symType() == TokenType.LBRACK) {
             nextSym();
             ConstExp constExp = new ConstExp(parseAddExp());
-            if (sym().getType() == TokenType.RBRACK) {
+            if (symType() == TokenType.RBRACK) {
                 nextSym(); // 跳过]
             } else {
-                errors.add(new Error("k", sym(-1).getLineno()));
+                errors.add(new Error("k", symLine(-1)));
             }
             nextSym(); // 跳过=
             return new ConstDef(ident, constExp, parseConstInitVal());
@@ -183,26 +206,26 @@ public class Parser {
     }
 
     public VarDef parseVarDef() throws Error {
-        if (sym().getType() != TokenType.IDENFR) {
-            throw new Error("myError", sym().getLineno());
+        if (symType() != TokenType.IDENFR) {
+            throw new Error("myError", symLine());
         }
         Token ident = sym();
         nextSym();
-        if (sym().getType() == TokenType.LBRACK) {
+        if (symType() == TokenType.LBRACK) {
             nextSym();
             ConstExp constExp = new ConstExp(parseAddExp());
-            if (sym().getType() == TokenType.RBRACK) {
+            if (symType() == TokenType.RBRACK) {
                 nextSym(); // 跳过]
             } else {
-                errors.add(new Error("k", sym(-1).getLineno()));
+                errors.add(new Error("k", symLine(-1)));
             }
-            if (sym().getType() == TokenType.ASSIGN) {
+            if (symType() == TokenType.ASSIGN) {
                 nextSym();
                 return new VarDef(ident, constExp, parseInitVal());
             }
             return new VarDef(ident, constExp);
         } else {
-            if (sym().getType() == TokenType.ASSIGN) {
+            if (symType() == TokenType.ASSIGN) {
                 nextSym();
                 return new VarDef(ident, parseInitVal());
             }
@@ -213,7 +236,7 @@ public class Parser {
     public FuncFParams parseFuncFParams() {
         ArrayList<FuncFParam> funcFParams = new ArrayList<>();
         funcFParams.add(parseFuncFParam());
-        while (sym().getType() == TokenType.COMMA) {
+        while (symType() == TokenType.COMMA) {
             nextSym();
             funcFParams.add(parseFuncFParam());
         }
@@ -225,48 +248,38 @@ public class Parser {
         nextSym();
         Token ident = sym();
         nextSym();
-        if (sym().getType() == TokenType.LBRACK) {
+        if (symType() == TokenType.LBRACK) {
             nextSym();
-            if (sym().getType() == TokenType.RBRACK) {
+            if (symType() == TokenType.RBRACK) {
                 nextSym();
             } else {
-                errors.add(new Error("k", sym(-1).getLineno()));
+                errors.add(new Error("k", symLine(-1)));
             }
             return new FuncFParam(type, ident, true);
         }
         return new FuncFParam(type, ident, false);
     }
 
-    public FuncRParams parseFuncRParams() throws Error {
-        ArrayList<Exp> exps = new ArrayList<>();
-        exps.add(new Exp(parseAddExp()));
-        while (sym().getType() == TokenType.COMMA) {
-            nextSym();
-            exps.add(new Exp(parseAddExp()));
-        }
-        return new FuncRParams(exps);
-    }
-
     public Block parseBlock() throws Error {
         ArrayList<AstNode> blockItems = new ArrayList<>();
         nextSym(); // 跳过{
         boolean hasRet = false;
-        while (sym().getType() != TokenType.RBRACE) {
+        while (symType() != TokenType.RBRACE) {
             AstNode astNode = parseBlockItem();
             blockItems.add(astNode);
             if (astNode instanceof Stmt && ((Stmt) astNode).getType() == Stmt.StmtType.RETURN) {
                 hasRet = true;
             }
         }
-        int lineno = sym().getLineno();
+        int lineno = symLine();
         nextSym(); // 跳过}
         return new Block(blockItems, hasRet, lineno);
     }
 
     public AstNode parseBlockItem() throws Error {
-        if (sym().getType() == TokenType.CONSTTK) {
+        if (symType() == TokenType.CONSTTK) {
             return parseConstDecl();
-        } else if (isBType(sym())) {
+        } else if (isBType(symType())) {
             return parseVarDecl();
         } else {
             return parseStmt();
@@ -274,20 +287,20 @@ public class Parser {
     }
 
     public ConstInitVal parseConstInitVal() throws Error {
-        if (sym().getType() == TokenType.LBRACE) {
+        if (symType() == TokenType.LBRACE) {
             nextSym();
             ArrayList<ConstExp> constExps = new ArrayList<>();
-            while (sym().getType() != TokenType.RBRACE) {
+            while (symType() != TokenType.RBRACE) {
                 constExps.add(new ConstExp(parseAddExp()));
-                if (sym().getType() == TokenType.COMMA) {
+                if (symType() == TokenType.COMMA) {
                     nextSym();
                 }
             }
-            if (sym().getType() == TokenType.RBRACE) {
+            if (symType() == TokenType.RBRACE) {
                 nextSym();
             }
             return new ConstInitVal(constExps);
-        } else if (sym().getType() == TokenType.STRCON) {
+        } else if (symType() == TokenType.STRCON) {
             Token stringConst = sym();
             nextSym();
             return new ConstInitVal(stringConst);
@@ -297,20 +310,20 @@ public class Parser {
     }
 
     public InitVal parseInitVal() throws Error {
-        if (sym().getType() == TokenType.LBRACE) {
+        if (symType() == TokenType.LBRACE) {
             nextSym();
             ArrayList<Exp> exps = new ArrayList<>();
-            while (sym().getType() != TokenType.RBRACE) {
+            while (symType() != TokenType.RBRACE) {
                 exps.add(new Exp(parseAddExp()));
-                if (sym().getType() == TokenType.COMMA) {
+                if (symType() == TokenType.COMMA) {
                     nextSym();
                 }
             }
-            if (sym().getType() == TokenType.RBRACE) {
+            if (symType() == TokenType.RBRACE) {
                 nextSym();
             }
             return new InitVal(exps);
-        } else if (sym().getType() == TokenType.STRCON) {
+        } else if (symType() == TokenType.STRCON) {
             Token stringConst = sym();
             nextSym();
             return new InitVal(stringConst);
@@ -322,150 +335,144 @@ public class Parser {
     public Stmt parseStmt() throws Error {
         Stmt.StmtType stmtType;
         ArrayList<AstNode> stmts = new ArrayList<>();
-        int lineno = sym().getLineno();
-        if (sym().getType() == TokenType.IFTK) {
+        int lineno = symLine();
+        if (symType() == TokenType.IFTK) {
             stmtType = Stmt.StmtType.IF;
             nextSym(2); // 跳过 if (
             stmts.add(new Cond(parseLOrExp())); // cond
-            if (sym().getType() == TokenType.RPARENT) {
+            if (symType() == TokenType.RPARENT) {
                 nextSym(); // )
             } else {
-                errors.add(new Error("j", sym(-1).getLineno()));
+                errors.add(new Error("j", symLine(-1)));
             }
             stmts.add(parseStmt()); // stmt
-            if (sym().getType() == TokenType.ELSETK) {
+            if (symType() == TokenType.ELSETK) {
                 nextSym();
                 stmts.add(parseStmt());
             }
-        } else if (sym().getType() == TokenType.FORTK) {
+        } else if (symType() == TokenType.FORTK) {
             stmtType = Stmt.StmtType.FOR;
             nextSym(2); // for (
-            if (sym().getType() != TokenType.SEMICN) {
+            if (symType() != TokenType.SEMICN) {
                 stmts.add(parseForStmt());
             } else {
                 stmts.add(null);
             }
             nextSym(); // ;
-            if (sym().getType() != TokenType.SEMICN) {
+            if (symType() != TokenType.SEMICN) {
                 stmts.add(new Cond(parseLOrExp()));
             } else {
                 stmts.add(null);
             }
             nextSym(); // ;
-            if (sym().getType() != TokenType.RPARENT) {
+            if (symType() != TokenType.RPARENT) {
                 stmts.add(parseForStmt());
             } else {
                 stmts.add(null);
             }
             nextSym(); // )
             stmts.add(parseStmt());
-        } else if (sym().getType() == TokenType.BREAKTK) {
+        } else if (symType() == TokenType.BREAKTK) {
             stmtType = Stmt.StmtType.BREAK;
             nextSym();
-            if (sym().getType() == TokenType.SEMICN) {
+            if (symType() == TokenType.SEMICN) {
                 nextSym();
             } else {
-                errors.add(new Error("i", sym(-1).getLineno()));
+                errors.add(new Error("i", symLine(-1)));
             }
-        } else if (sym().getType() == TokenType.CONTINUETK) {
+        } else if (symType() == TokenType.CONTINUETK) {
             stmtType = Stmt.StmtType.CONTINUE;
             nextSym();
-            if (sym().getType() == TokenType.SEMICN) {
+            if (symType() == TokenType.SEMICN) {
                 nextSym();
             } else {
-                errors.add(new Error("i", sym(-1).getLineno()));
+                errors.add(new Error("i", symLine(-1)));
             }
-        } else if (sym().getType() == TokenType.RETURNTK) {
+        } else if (symType() == TokenType.RETURNTK) {
             stmtType = Stmt.StmtType.RETURN;
             nextSym(); // return
-            int preLexerIndex = lexerIndex;
-            if (sym().getType() != TokenType.SEMICN) {
+            if (isExpFirst(symType())) {
                 try {
                     stmts.add(new Exp(parseAddExp()));
-                } catch (Error e) {
-                    lexerIndex = preLexerIndex;
+                } catch (Error ignored) {
+                    // 表达式残缺，从出错的token处继续
                 }
             }
-            if (sym().getType() == TokenType.SEMICN) {
+            if (symType() == TokenType.SEMICN) {
                 nextSym();
             } else {
-                errors.add(new Error("i", sym(-1).getLineno()));
+                errors.add(new Error("i", symLine(-1)));
             }
-        } else if (sym().getType() == TokenType.PRINTFTK) {
+        } else if (symType() == TokenType.PRINTFTK) {
             stmtType = Stmt.StmtType.PRINTF;
             nextSym(2); // printf (
             Token stringConst = sym();
             nextSym();
-            while (sym().getType() == TokenType.COMMA) {
+            while (symType() == TokenType.COMMA) {
                 nextSym(); // ,
                 stmts.add(new Exp(parseAddExp()));
             }
-            if (sym().getType() == TokenType.RPARENT) {
+            if (symType() == TokenType.RPARENT) {
                 nextSym(); // )
             } else  {
-                errors.add(new Error("j", sym(-1).getLineno()));
+                errors.add(new Error("j", symLine(-1)));
             }
-            if (sym().getType() == TokenType.SEMICN) {
+            if (symType() == TokenType.SEMICN) {
                 nextSym(); // ;
             } else {
-                errors.add(new Error("i", sym(-1).getLineno()));
+                errors.add(new Error("i", symLine(-1)));
             }
             return new Stmt(stmts, stringConst, stmtType);
-        } else if (sym().getType() == TokenType.SEMICN) {
+        } else if (symType() == TokenType.SEMICN) {
             stmtType = Stmt.StmtType.NONE;
             nextSym();
-        } else if (sym().getType() == TokenType.LBRACE) {
+        } else if (symType() == TokenType.LBRACE) {
             stmtType = Stmt.StmtType.BLOCK;
             stmts.add(parseBlock());
         } else {
-            int preLexerIndex = lexerIndex;
-            boolean isExp = false;
+            // Ident后不是(时先按LVal分析，再看下一个token是否为=，
+            // 不是则以该LVal作为表达式的第一个因子继续分析，无需回溯
             LVal lVal = null;
-            try {
+            if (symType() == TokenType.IDENFR && symType(1) != TokenType.LPARENT) {
                 lVal = parseLVal();
-                if (sym().getType() != TokenType.ASSIGN) {
-                    lexerIndex = preLexerIndex;
-                    isExp = true;
-                }
-            } catch (Error ignored) {
-                lexerIndex = preLexerIndex;
-                isExp = true; // 可能是[Exp] ;或其i类错误
             }
-            if (isExp) {
+            if (lVal == null || symType() != TokenType.ASSIGN) {
                 stmtType = Stmt.StmtType.EXP;
-                try {
-                    stmts.add(new Exp(parseAddExp()));
-                } catch (Error e) {
-                    lexerIndex = preLexerIndex;
+                if (lVal != null || isExpFirst(symType())) {
+                    try {
+                        stmts.add(new Exp(parseAddExp(lVal)));
+                    } catch (Error ignored) {
+                        // 可能是[Exp] ;或其i类错误
+                    }
                 }
             } else {
                 stmts.add(lVal);
                 nextSym(); // =
-                if (sym().getType() == TokenType.GETINTTK) {
+                if (symType() == TokenType.GETINTTK) {
                     stmtType = Stmt.StmtType.GETINT;
                     nextSym(2); // getint(
-                    if (sym().getType() == TokenType.RPARENT) {
+                    if (symType() == TokenType.RPARENT) {
                         nextSym(); // )
                     } else {
-                        errors.add(new Error("j", sym(-1).getLineno()));
+                        errors.add(new Error("j", symLine(-1)));
                     }
-                } else if (sym().getType() == TokenType.GETCHARTK) {
+                } else if (symType() == TokenType.GETCHARTK) {
                     stmtType = Stmt.StmtType.GETCHAR;
                     nextSym(2); // getchar(
-                    if (sym().getType() == TokenType.RPARENT) {
+                    if (symType() == TokenType.RPARENT) {
                         nextSym(); // )
                     } else {
-                        errors.add(new Error("j", sym(-1).getLineno()));
+                        errors.add(new Error("j", symLine(-1)));
                     }
                 } else {
                     stmtType = Stmt.StmtType.ASSIGN;
                     stmts.add(new Exp(parseAddExp()));
                 }
             }
-            if (sym().getType() == TokenType.SEMICN) {
+            if (symType() == TokenType.SEMICN) {
                 nextSym(); // ;
             } else {
-                errors.add(new Error("i", sym(-1).getLineno()));
+                errors.add(new Error("i", symLine(-1)));
             }
         }
         return new Stmt(stmts, stmtType, lineno);
@@ -473,7 +480,7 @@ public class Parser {
 
     public ForStmt parseForStmt() throws Error {
         LVal lVal = parseLVal();
-        if (sym().getType() == TokenType.ASSIGN) {
+        if (symType() == TokenType.ASSIGN) {
             nextSym();
         }
         Exp exp = new Exp(parseAddExp());
@@ -481,107 +488,190 @@ public class Parser {
     }
 
     public AddExp parseAddExp() throws Error {
-        ArrayList<MulExp> mulExps = new ArrayList<>();
-        ArrayList<Token> ops = new ArrayList<>();
-        mulExps.add(parseMulExp());
-        while (sym().getType() == TokenType.PLUS || sym().getType() == TokenType.MINU) {
-            ops.add(sym());
-            nextSym();
-            mulExps.add(parseMulExp());
+        return parseAddExp(null);
+    }
+
+    /**
+     * 用显式栈代替AddExp-MulExp-UnaryExp-PrimaryExp的相互递归：括号、数组下标与函数实参中的子表达式
+     * 各压一帧，分析完再弹出接回外层，因此表达式嵌套再深也不会加深调用栈。
+     * 结点直接建在AstArena中，返回的AddExp只是句柄
+     * @param head 已经分析出的第一个LVal，为null时从当前token开始分析
+     */
+    private AddExp parseAddExp(LVal head) throws Error {
+        ArrayDeque<ExpFrame> stack = new ArrayDeque<>();
+        ExpFrame frame = new ExpFrame(ExpFrame.Kind.ROOT, AstArena.NONE, arena.newNode(AstArena.Kind.ADD, NONE));
+        int operand = head == null ? NONE : head.getId();
+        while (true) {
+            if (operand == NONE) {
+                while (isUnaryOp(symType())) {
+                    int unary = arena.newNode(AstArena.Kind.UNARY, keepSym());
+                    if (frame.unaryTail == NONE) {
+                        frame.unaryHead = unary;
+                    } else {
+                        arena.append(frame.unaryTail, NONE, unary);
+                    }
+                    frame.unaryTail = unary;
+                    nextSym();
+                }
+                if (symType() == TokenType.LPARENT) {
+                    nextSym();
+                    stack.push(frame);
+                    frame = new ExpFrame(ExpFrame.Kind.PAREN, arena.newNode(AstArena.Kind.PAREN, NONE),
+                            arena.newNode(AstArena.Kind.ADD, NONE));
+                    continue;
+                } else if (symType() == TokenType.IDENFR && symType(1) == TokenType.LPARENT) {
+                    int call = arena.newNode(AstArena.Kind.CALL, keepSym());
+                    nextSym(2); // 跳过 ident (
+                    if (isExpFirst(symType())) {
+                        stack.push(frame);
+                        frame = new ExpFrame(ExpFrame.Kind.CALL, call, arena.newNode(AstArena.Kind.ADD, NONE));
+                        continue;
+                    }
+                    if (symType() == TokenType.RPARENT) {
+                        nextSym(); //跳过)
+                    } else {
+                        errors.add(new Error("j", symLine(-1)));
+                    }
+                    operand = call;
+                } else if (symType() == TokenType.IDENFR) {
+                    int lVal = arena.newNode(AstArena.Kind.LVAL, keepSym());
+                    nextSym();
+                    if (symType() == TokenType.LBRACK) {
+                        nextSym();
+                        stack.push(frame);
+                        frame = new ExpFrame(ExpFrame.Kind.INDEX, lVal, arena.newNode(AstArena.Kind.ADD, NONE));
+                        continue;
+                    }
+                    operand = lVal;
+                } else if (symType() == TokenType.INTCON) {
+                    operand = arena.newNode(AstArena.Kind.NUMBER, keepSym());
+                    nextSym();
+                } else if (symType() == TokenType.CHRCON) {
+                    operand = arena.newNode(AstArena.Kind.CHAR, keepSym());
+                    nextSym();
+                } else {
+                    throw new Error("myError", symLine());
+                }
+            }
+            // 运算数挂到前面的单目运算符链上
+            if (frame.unaryTail != NONE) {
+                arena.append(frame.unaryTail, NONE, operand);
+                operand = frame.unaryHead;
+                frame.unaryHead = NONE;
+                frame.unaryTail = NONE;
+            }
+            if (frame.mul == NONE) {
+                frame.mul = arena.newNode(AstArena.Kind.MUL, NONE);
+                frame.lastMulChild = NONE;
+                frame.lastAddChild = arena.append(frame.add, frame.lastAddChild, frame.mul);
+            }
+            frame.lastMulChild = arena.append(frame.mul, frame.lastMulChild, operand);
+            operand = NONE;
+            if (symType() == TokenType.MULT
+                    || symType() == TokenType.DIV
+                    || symType() == TokenType.MOD) {
+                int op = arena.newNode(AstArena.Kind.OP, keepSym());
+                frame.lastMulChild = arena.append(frame.mul, frame.lastMulChild, op);
+                nextSym();
+                continue;
+            }
+            frame.mul = NONE;
+            if (symType() == TokenType.PLUS || symType() == TokenType.MINU) {
+                int op = arena.newNode(AstArena.Kind.OP, keepSym());
+                frame.lastAddChild = arena.append(frame.add, frame.lastAddChild, op);
+                nextSym();
+                continue;
+            }
+            if (frame.kind == ExpFrame.Kind.ROOT) {
+                return new AddExp(arena, frame.add);
+            } else if (frame.kind == ExpFrame.Kind.PAREN) {
+                if (symType() == TokenType.RPARENT) {
+                    nextSym();
+                } else {
+                    errors.add(new Error("j", symLine(-1)));
+                }
+                arena.append(frame.owner, NONE, frame.add);
+            } else if (frame.kind == ExpFrame.Kind.INDEX) {
+                if (symType() == TokenType.RBRACK) {
+                    nextSym();
+                } else {
+                    errors.add(new Error("k", symLine(-1)));
+                }
+                arena.append(frame.owner, NONE, frame.add);
+            } else {
+                frame.lastArg = arena.append(frame.owner, frame.lastArg, frame.add);
+                if (symType() == TokenType.COMMA) {
+                    nextSym();
+                    frame.add = arena.newNode(AstArena.Kind.ADD, NONE);
+                    frame.lastAddChild = NONE;
+                    continue;
+                }
+                if (symType() == TokenType.RPARENT) {
+                    nextSym(); //跳过)
+                } else {
+                    errors.add(new Error("j", symLine(-1)));
+                }
+            }
+            operand = frame.owner;
+            frame = stack.pop();
         }
-        return new AddExp(mulExps, ops);
     }
 
-    public MulExp parseMulExp() throws Error {
-        ArrayList<UnaryExp> unaryExps = new ArrayList<>();
-        ArrayList<Token> ops = new ArrayList<>();
-        unaryExps.add(parseUnaryExp());
-        while (sym().getType() == TokenType.MULT
-                || sym().getType() == TokenType.DIV
-                || sym().getType() == TokenType.MOD) {
-            ops.add(sym());
-            nextSym();
-            unaryExps.add(parseUnaryExp());
+    /**
+     * 表达式分析栈中的一帧，对应一层括号、数组下标或函数实参表
+     */
+    private static class ExpFrame {
+        private enum Kind {
+            ROOT, PAREN, INDEX, CALL
         }
-        return new MulExp(unaryExps, ops);
-    }
 
-    public UnaryExp parseUnaryExp() throws Error {
-        if (isUnaryOp(sym())) {
-            UnaryOp unaryOp = new UnaryOp(sym());
-            nextSym();
-            return new UnaryExp(unaryOp, parseUnaryExp());
-        } else if (sym().getType() == TokenType.IDENFR && sym(1).getType() == TokenType.LPARENT) {
-            Token ident = sym();
-            nextSym(2); // 跳过 ident (
-            FuncRParams funcRParams = null;
-            int preLexerIndex = lexerIndex;
-            try {
-                funcRParams = parseFuncRParams();
-            } catch (Error e) {
-                lexerIndex = preLexerIndex;
-            }
-            if (sym().getType() == TokenType.RPARENT) {
-                nextSym(); //跳过)
-            } else {
-                errors.add(new Error("j", sym(-1).getLineno()));
-            }
-            if (funcRParams == null) {
-                return new UnaryExp(ident);
-            }
-            return new UnaryExp(ident, funcRParams);
-        } else {
-            return new UnaryExp(parsePrimaryExp());
-        }
-    }
+        private final Kind kind;
+        private final int owner;    // 本帧分析完后接上子表达式的PAREN/LVAL/CALL结点
+        private int add;
+        private int lastAddChild = NONE;
+        private int mul = NONE;
+        private int lastMulChild = NONE;
+        private int unaryHead = NONE;   // 尚未接上运算数的单目运算符链
+        private int unaryTail = NONE;
+        private int lastArg = NONE;
 
-    public PrimaryExp parsePrimaryExp() throws Error {
-        if (sym().getType() == TokenType.LPARENT) {
-            nextSym();
-            Exp exp = new Exp(parseAddExp());
-            if (sym().getType() == TokenType.RPARENT) {
-                nextSym();
-            } else {
-                errors.add(new Error("j", sym(-1).getLineno()));
-            }
-            return new PrimaryExp(exp);
-        } else if (sym().getType() == TokenType.INTCON) {
-            Token number = sym();
-            nextSym();
-            return new PrimaryExp(new Number(number));
-        } else if (sym().getType() == TokenType.CHRCON) {
-            Token charConst = sym();
-            nextSym();
-            return new PrimaryExp(new Character(charConst));
-        } else {
-            return new PrimaryExp(parseLVal());
+        ExpFrame(Kind kind, int owner, int add) {
+            this.kind = kind;
+            this.owner = owner;
+            this.add = add;
         }
     }
 
     public LVal parseLVal() throws Error {
-        if (sym().getType() != TokenType.IDENFR) {
-            throw new Error("myError", sym().getLineno());
+        if (symType() != TokenType.IDENFR) {
+            throw new Error("myError", symLine());
         }
-        Token ident = sym();
+        int lVal = arena.newNode(AstArena.Kind.LVAL, keepSym());
         nextSym();
-        if (sym().getType() == TokenType.LBRACK) {
+        if (symType() == TokenType.LBRACK) {
             nextSym();
-            Exp exp = new Exp(parseAddExp());
-            if (sym().getType() == TokenType.RBRACK) {
+            arena.append(lVal, NONE, parseAddExp().getId());
+            if (symType() == TokenType.RBRACK) {
                 nextSym();
             } else {
-                errors.add(new Error("k", sym(-1).getLineno()));
+                errors.add(new Error("k", symLine(-1)));
             }
-            return new LVal(ident, exp);
-        } else {
-            return new LVal(ident);
         }
+        return new LVal(arena, lVal);
+    }
+
+    /**
+     * 把当前token记入AstArena，供结点引用
+     * @return token下标
+     */
+    private int keepSym() {
+        return arena.addToken(symType(), tokens.peekStart(0), tokens.peekLength(0), symLine());
     }
 
     public LOrExp parseLOrExp() throws Error {
         ArrayList<LAndExp> lAndExps = new ArrayList<>();
         lAndExps.add(parseLAndExp());
-        while (sym().getType() == TokenType.OR) {
+        while (symType() == TokenType.OR) {
             nextSym();
             lAndExps.add(parseLAndExp());
         }
@@ -591,7 +681,7 @@ public class Parser {
     public LAndExp parseLAndExp() throws Error {
         ArrayList<EqExp> eqExps = new ArrayList<>();
         eqExps.add(parseEqExp());
-        while (sym().getType() == TokenType.AND) {
+        while (symType() == TokenType.AND) {
             nextSym();
             eqExps.add(parseEqExp());
         }
@@ -602,7 +692,7 @@ public class Parser {
         ArrayList<RelExp> relExps = new ArrayList<>();
         relExps.add(parseRelExp());
         ArrayList<Token> ops = new ArrayList<>();
-        while (sym().getType() == TokenType.EQL || sym().getType() == TokenType.NEQ) {
+        while (symType() == TokenType.EQL || symType() == TokenType.NEQ) {
             ops.add(sym());
             nextSym();
             relExps.add(parseRelExp());
@@ -614,7 +704,7 @@ public class Parser {
         ArrayList<AddExp> addExps = new ArrayList<>();
         ArrayList<Token> ops = new ArrayList<>();
         addExps.add(parseAddExp());
-        while (isRelOp(sym())) {
+        while (isRelOp(symType())) {
             ops.add(sym());
             nextSym();
             addExps.add(parseAddExp());
@@ -622,25 +712,47 @@ public class Parser {
         return new RelExp(addExps, ops);
     }
 
-    public boolean isBType(Token type) {
-        return type.getType() == TokenType.INTTK
-                || type.getType() == TokenType.CHARTK;
+    public boolean isBType(TokenType type) {
+        return type == TokenType.INTTK
+                || type == TokenType.CHARTK;
+    }
+
+    /**
+     * @return type是否属于Exp的FIRST集
+     */
+    public boolean isExpFirst(TokenType type) {
+        return type == TokenType.IDENFR
+                || type == TokenType.INTCON
+                || type == TokenType.CHRCON
+                || type == TokenType.LPARENT
+                || isUnaryOp(type);
     }
 
-    public boolean isUnaryOp(Token op) {
-        return op.getType() == TokenType.PLUS
-                || op.getType() == TokenType.MINU
-                || op.getType() == TokenType.NOT;
+    public boolean isUnaryOp(TokenType op) {
+        return op == TokenType.PLUS
+                || op == TokenType.MINU
+                || op == TokenType.NOT;
     }
 
-    public boolean isRelOp(Token op) {
-        return op.getType() == TokenType.GRE
-                || op.getType() == TokenType.LSS
-                || op.getType() == TokenType.GEQ
-                || op.getType() == TokenType.LEQ;
+    public boolean isRelOp(TokenType op) {
+        return op == TokenType.GRE
+                || op == TokenType.LSS
+                || op == TokenType.GEQ
+                || op == TokenType.LEQ;
     }
 
     public ArrayList<Error> getErrors() {
         return errors;
     }
+
+    public int getTokensTotal() {
+        return tokens.getFetchedCount();
+    }
+
+    /**
+     * @return 查看token类型/内容的总次数，每个token被查看的次数有常数上界
+     */
+    public int getTokensExamined() {
+        return tokens.getExaminedCount();
+    }
 }
@@ -4,11 +4,17 @@ public class Token {
     private final TokenType type;
     private final String content;
     private final int lineno;
+    private final int offset;   // 在源码缓冲区中的起始位置
 
     public Token(TokenType type, String content, int lineno) {
+        this(type, content, lineno, -1);
+    }
+
+    public Token(TokenType type, String content, int lineno, int offset) {
         this.type = type;
         this.content = content;
         this.lineno = lineno;
+        this.offset = offset;
     }
 
     public TokenType getType() {
@@ -23,6 +29,10 @@ public class Token {
         return lineno;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
     @Override
     public String toString() {
         return type + " " + content;
@@ -0,0 +1,69 @@
+package frontend;
+
+import java.util.Arrays;
+
+/**
+ * 按列存放的token表：类型序号、起始偏移、长度、行号各占一个int数组，
+ * 不为每个token创建对象，Token只在错误处理等需要时按下标临时构造。AST结点引用的token存放于此。
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private final TokenSource source;
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    public TokenBuffer(TokenSource source) {
+        this.source = source;
+        types = new int[64];
+        starts = new int[64];
+        lengths = new int[64];
+        lines = new int[64];
+        size = 0;
+    }
+
+    public void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public String getContent(int index) {
+        return source.contentOf(getType(index), starts[index], lengths[index]);
+    }
+
+    public Token getToken(int index) {
+        return new Token(getType(index), getContent(index), lines[index], starts[index]);
+    }
+}
@@ -0,0 +1,32 @@
+package frontend;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 按需产生token的来源，Parser通过TokenStream从中拉取token。
+ * 扫描时只给出类型与源码区间，字符串内容在确实需要时才取出。
+ */
+public interface TokenSource {
+    /**
+     * 扫描下一个有效token（不含注释），其位置通过tokenStart/tokenLength/tokenLine读取
+     * @return token类型，读完时返回null
+     */
+    TokenType scanToken();
+
+    int tokenStart();
+
+    int tokenLength();
+
+    int tokenLine();
+
+    /**
+     * @return 源码区间[start, start + length)对应的token内容
+     */
+    String contentOf(TokenType type, int start, int length);
+
+    /**
+     * 直接把源码区间写出，不经过中间字符串
+     */
+    void writeContent(Writer out, int start, int length) throws IOException;
+}
@@ -0,0 +1,181 @@
+package frontend;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * 基于环形缓冲区的有界前瞻token流。
+ * Parser是确定的LL(k)分析，不回溯，只需保留当前位置之前的少量token（供sym(-1)回看）与前瞻窗口，
+ * 因此词法分析与语法分析可以在一趟中流水进行，不必先得到完整的token表。
+ * 缓冲区按列存放类型、偏移、长度与行号，Token对象仅在调用peek时才构造并缓存在对应槽位。
+ */
+public class TokenStream {
+    private static final int LOOK_BEHIND = 1;
+    private static final TokenType[] TYPES = TokenType.values();
+    private final TokenSource source;
+    private final Writer tee;   // 可选，边读边输出lexer.txt
+    private int[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private Token[] materialized;
+    private int fetched;    // 已从source取出的token数
+    private int pos;        // 当前token的绝对下标
+    private boolean exhausted = false;
+    private Token eof;
+    private int lastLineno = 1;
+    private int examined = 0;   // peek的次数
+
+    public TokenStream(TokenSource source) {
+        this(source, null);
+    }
+
+    public TokenStream(TokenSource source, Writer tee) {
+        this.source = source;
+        this.tee = tee;
+        allocate(16);
+        fetched = 0;
+        pos = 0;
+    }
+
+    /**
+     * @param bis 相对当前位置的偏移，可为负（最多回看LOOK_BEHIND个）
+     * @return 对应的token，越过末尾时返回EOF
+     */
+    public Token peek(int bis) {
+        int index = locate(bis);
+        if (index >= fetched) {
+            if (eof == null) {
+                eof = new Token(TokenType.EOF, "", lastLineno);
+            }
+            return eof;
+        }
+        int slot = index & (types.length - 1);
+        if (materialized[slot] == null) {
+            TokenType type = TYPES[types[slot]];
+            materialized[slot] = new Token(type, source.contentOf(type, starts[slot], lengths[slot]),
+                    lines[slot], starts[slot]);
+        }
+        return materialized[slot];
+    }
+
+    public TokenType peekType(int bis) {
+        int index = locate(bis);
+        return index >= fetched ? TokenType.EOF : TYPES[types[index & (types.length - 1)]];
+    }
+
+    public int peekLine(int bis) {
+        int index = locate(bis);
+        return index >= fetched ? lastLineno : lines[index & (types.length - 1)];
+    }
+
+    public int peekStart(int bis) {
+        int index = locate(bis);
+        return index >= fetched ? -1 : starts[index & (types.length - 1)];
+    }
+
+    public int peekLength(int bis) {
+        int index = locate(bis);
+        return index >= fetched ? 0 : lengths[index & (types.length - 1)];
+    }
+
+    public TokenSource getSource() {
+        return source;
+    }
+
+    public void advance(int bis) {
+        pos += bis;
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * 把source中剩余的token全部取完，保证词法错误与lexer.txt完整
+     */
+    public void drain() {
+        while (!exhausted) {
+            fill(fetched);
+            pos = fetched;
+        }
+    }
+
+    public int getExaminedCount() {
+        return examined;
+    }
+
+    public int getFetchedCount() {
+        return fetched;
+    }
+
+    private int locate(int bis) {
+        int index = pos + bis;
+        examined++;
+        if (index < 0 || index < pos - LOOK_BEHIND) {
+            throw new IndexOutOfBoundsException("token " + index + " is no longer buffered");
+        }
+        fill(index);
+        return index;
+    }
+
+    private void fill(int index) {
+        while (fetched <= index && !exhausted) {
+            TokenType type = source.scanToken();
+            if (type == null) {
+                exhausted = true;
+                return;
+            }
+            ensureCapacity();
+            int slot = fetched & (types.length - 1);
+            types[slot] = type.ordinal();
+            starts[slot] = source.tokenStart();
+            lengths[slot] = source.tokenLength();
+            lines[slot] = source.tokenLine();
+            materialized[slot] = null;
+            fetched++;
+            lastLineno = lines[slot];
+            if (tee != null) {
+                try {
+                    tee.write(type.toString());
+                    tee.write(' ');
+                    source.writeContent(tee, starts[slot], lengths[slot]);
+                    tee.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        types = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        materialized = new Token[capacity];
+    }
+
+    private void ensureCapacity() {
+        int oldest = Math.max(0, pos - LOOK_BEHIND);
+        if (fetched - oldest < types.length) {
+            return;
+        }
+        int[] oldTypes = types;
+        int[] oldStarts = starts;
+        int[] oldLengths = lengths;
+        int[] oldLines = lines;
+        Token[] oldMaterialized = materialized;
+        int oldMask = oldTypes.length - 1;
+        allocate(oldTypes.length * 2);
+        int mask = types.length - 1;
+        for (int i = oldest; i < fetched; i++) {
+            types[i & mask] = oldTypes[i & oldMask];
+            starts[i & mask] = oldStarts[i & oldMask];
+            lengths[i & mask] = oldLengths[i & oldMask];
+            lines[i & mask] = oldLines[i & oldMask];
+            materialized[i & mask] = oldMaterialized[i & oldMask];
+        }
+    }
+}
@@ -42,7 +42,8 @@ public enum TokenType {
     RBRACK("]"),
     LBRACE("{"),
     RBRACE("}"),
-    ANNOTATION("annotation");
+    ANNOTATION("annotation"),
+    EOF("eof");
 
     private final String value;
 
@@ -54,6 +55,10 @@ public enum TokenType {
         return value;
     }
 
+    public boolean isKeyword() {
+        return name().endsWith("TK");
+    }
+
     @Override
     public String toString() {
         return super.toString();
@@ -1,44 +1,39 @@
 package frontend.ast;
 
-import frontend.Token;
-
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 
+/**
+ * AstArena中ADD结点的句柄
+ */
 public class AddExp implements AstNode {
-    private final ArrayList<MulExp> mulExps;
-    private final ArrayList<Token> ops;
+    private final AstArena arena;
+    private final int id;
 
-    public AddExp(ArrayList<MulExp> mulExps, ArrayList<Token> ops) {
-        this.mulExps = mulExps;
-        this.ops = ops;
+    public AddExp(AstArena arena, int id) {
+        this.arena = arena;
+        this.id = id;
     }
 
-    public boolean isArray() {
-        if (mulExps.size() == 1) {
-            return mulExps.get(0).isArray();
-        }
-        return false;
+    public AstArena getArena() {
+        return arena;
     }
 
-    public int getLineno() {
-        return mulExps.get(0).getLineno();
+    public int getId() {
+        return id;
     }
 
-    public String getIdentName() {
-        if (mulExps.size() == 1) {
-            return mulExps.get(0).getIdentName();
-        }
-        return "";
+    public boolean isArray() {
+        return arena.isArray(id);
     }
 
-    public ArrayList<MulExp> getMulExps() {
-        return mulExps;
+    public int getLineno() {
+        return arena.getLineno(id);
     }
 
-    public ArrayList<Token> getOps() {
-        return ops;
+    public String getIdentName() {
+        return arena.getIdentName(id);
     }
 
     @Override
@@ -48,17 +43,11 @@ public class AddExp implements AstNode {
 
     @Override
     public ArrayList<AstNode> getAstChild() {
-        return new ArrayList<>(mulExps);
+        return new ArrayList<>();   // 子结点在AstArena中，见AstNode.getAstChild
     }
 
     @Override
     public void printToFile(BufferedWriter bw) throws IOException {
-        for (int i = 0; i < mulExps.size(); i++) {
-            mulExps.get(i).printToFile(bw);
-            bw.write(getSymbol() + "\n");
-            if (i < ops.size()) {
-                bw.write(ops.get(i) + "\n");
-            }
-        }
+        ExpPrinter.print(arena, id, bw);
     }
 }
@@ -0,0 +1,176 @@
+package frontend.ast;
+
+import frontend.Token;
+import frontend.TokenBuffer;
+import frontend.TokenSource;
+import frontend.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * 表达式结点的平铺存储。
+ * 结点以下标为编号，种类、第一个子结点、下一个兄弟结点、token下标各占一个int数组，
+ * 结点引用的token按列存放在TokenBuffer中。AddExp与LVal只是指向其中某个结点的句柄，
+ * 表达式内部不再为每一层语法成分创建对象和子结点表。
+ */
+public class AstArena {
+    public enum Kind {
+        ADD,        // AddExp：子结点为MUL与OP交替
+        MUL,        // MulExp：子结点为一元层结点与OP交替
+        OP,         // 双目运算符
+        UNARY,      // UnaryOp UnaryExp：唯一子结点为操作数
+        CALL,       // Ident '(' [FuncRParams] ')'：子结点为各实参的ADD
+        PAREN,      // '(' Exp ')'：唯一子结点为ADD
+        LVAL,       // Ident ['[' Exp ']']：子结点为下标的ADD
+        NUMBER,
+        CHAR
+    }
+
+    public static final int NONE = -1;
+    private static final Kind[] KINDS = Kind.values();
+    private final TokenBuffer tokens;
+    private int[] kinds;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] tokenIndexes;
+    private int size;
+
+    public AstArena(TokenSource source) {
+        tokens = new TokenBuffer(source);
+        kinds = new int[256];
+        firstChildren = new int[256];
+        nextSiblings = new int[256];
+        tokenIndexes = new int[256];
+        size = 0;
+    }
+
+    /**
+     * 记录结点要引用的token
+     * @return token下标
+     */
+    public int addToken(TokenType type, int start, int length, int line) {
+        tokens.add(type, start, length, line);
+        return tokens.size() - 1;
+    }
+
+    public int newNode(Kind kind, int token) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            tokenIndexes = Arrays.copyOf(tokenIndexes, capacity);
+        }
+        kinds[size] = kind.ordinal();
+        firstChildren[size] = NONE;
+        nextSiblings[size] = NONE;
+        tokenIndexes[size] = token;
+        return size++;
+    }
+
+    /**
+     * 把child接到parent的子结点末尾
+     * @param lastChild parent当前的最后一个子结点，没有时为NONE
+     * @return child，即新的最后一个子结点
+     */
+    public int append(int parent, int lastChild, int child) {
+        if (lastChild == NONE) {
+            firstChildren[parent] = child;
+        } else {
+            nextSiblings[lastChild] = child;
+        }
+        return child;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int getChildCount(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public String getContent(int node) {
+        return tokens.getContent(tokenIndexes[node]);
+    }
+
+    public Token getToken(int node) {
+        return tokens.getToken(tokenIndexes[node]);
+    }
+
+    public int getTokenLineno(int node) {
+        return tokens.getLine(tokenIndexes[node]);
+    }
+
+    // 以下查询以ADD结点为起点，沿第一个运算数向下找，括号在循环里展开
+
+    /**
+     * @return 表达式的行号，即第一个运算数的行号
+     */
+    public int getLineno(int add) {
+        int node = firstChildren[firstChildren[add]];
+        while (getKind(node) == Kind.PAREN) {
+            node = firstChildren[firstChildren[firstChildren[node]]];
+        }
+        return getTokenLineno(node);
+    }
+
+    /**
+     * @return 表达式是否恰为一个数组元素
+     */
+    public boolean isArray(int add) {
+        int node = singleOperand(add);
+        while (node != NONE && getKind(node) == Kind.PAREN) {
+            node = singleOperand(firstChildren[node]);
+        }
+        return node != NONE && getKind(node) == Kind.LVAL && firstChildren[node] != NONE;
+    }
+
+    /**
+     * @return 表达式只有一个运算数时该运算数中的标识符，否则为空串
+     */
+    public String getIdentName(int add) {
+        int node = singleOperand(add);
+        while (node != NONE) {
+            switch (getKind(node)) {
+                case UNARY:
+                    node = firstChildren[node];
+                    break;
+                case PAREN:
+                    node = singleOperand(firstChildren[node]);
+                    break;
+                case CALL:
+                case LVAL:
+                    return getContent(node);
+                default:
+                    return "";
+            }
+        }
+        return "";
+    }
+
+    private int singleOperand(int add) {
+        int mul = firstChildren[add];
+        if (nextSiblings[mul] != NONE) {
+            return NONE;
+        }
+        int operand = firstChildren[mul];
+        return nextSiblings[operand] == NONE ? operand : NONE;
+    }
+}
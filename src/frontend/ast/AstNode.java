@@ -7,6 +7,10 @@ import java.util.ArrayList;
 public interface AstNode {
     String getSymbol();
 
+    /**
+     * @return 以对象形式存在的子结点。表达式内部平铺在AstArena中，AddExp对此方法是叶子，
+     * 遍历表达式要从AddExp的getArena()/getId()出发，用AstArena.getFirstChild/getNextSibling
+     */
     ArrayList<AstNode> getAstChild();
 
     void printToFile(BufferedWriter bw) throws IOException;
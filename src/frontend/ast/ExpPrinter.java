@@ -0,0 +1,118 @@
+package frontend.ast;
+
+import frontend.TokenType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * 表达式子树的非递归输出。
+ * 用显式栈展开AstArena中的结点，按原先各语法成分逐层输出的格式写出parser.txt。
+ */
+final class ExpPrinter {
+    private ExpPrinter() {
+    }
+
+    static void print(AstArena arena, int root, BufferedWriter bw) throws IOException {
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        ArrayList<Object> items = new ArrayList<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object top = stack.pop();
+            if (top instanceof String) {
+                bw.write((String) top);
+                continue;
+            }
+            items.clear();
+            expand(arena, (Integer) top, items);
+            for (int i = items.size() - 1; i >= 0; i--) {
+                stack.push(items.get(i));
+            }
+        }
+    }
+
+    /**
+     * 按输出顺序列出结点的各部分：子结点编号或待输出的行
+     */
+    private static void expand(AstArena arena, int node, ArrayList<Object> items) {
+        switch (arena.getKind(node)) {
+            case ADD:
+            case MUL:
+                String symbol = arena.getKind(node) == AstArena.Kind.ADD ? "<AddExp>\n" : "<MulExp>\n";
+                for (int child = arena.getFirstChild(node); child != AstArena.NONE;
+                     child = arena.getNextSibling(child)) {
+                    if (arena.getKind(child) == AstArena.Kind.OP) {
+                        items.add(arena.getToken(child) + "\n");
+                    } else {
+                        addOperand(arena, child, items);
+                        items.add(symbol);
+                    }
+                }
+                break;
+            case UNARY:
+                items.add(arena.getToken(node) + "\n");
+                items.add("<UnaryOp>\n");
+                addOperand(arena, arena.getFirstChild(node), items);
+                items.add("<UnaryExp>\n");
+                break;
+            case CALL:
+                items.add(arena.getToken(node) + "\n");
+                items.add(TokenType.LPARENT + " (\n");
+                if (arena.getFirstChild(node) != AstArena.NONE) {
+                    for (int arg = arena.getFirstChild(node); arg != AstArena.NONE; arg = arena.getNextSibling(arg)) {
+                        if (arg != arena.getFirstChild(node)) {
+                            items.add(TokenType.COMMA + " ,\n");
+                        }
+                        items.add(arg);
+                        items.add("<Exp>\n");
+                    }
+                    items.add("<FuncRParams>\n");
+                }
+                items.add(TokenType.RPARENT + " )\n");
+                items.add("<UnaryExp>\n");
+                break;
+            case PAREN:
+                items.add(TokenType.LPARENT + " (\n");
+                items.add(arena.getFirstChild(node));
+                items.add("<Exp>\n");
+                items.add(TokenType.RPARENT + " )\n");
+                items.add("<PrimaryExp>\n");
+                items.add("<UnaryExp>\n");
+                break;
+            case LVAL:
+                items.add(arena.getToken(node) + "\n");
+                if (arena.getFirstChild(node) != AstArena.NONE) {
+                    items.add(TokenType.LBRACK + " [\n");
+                    items.add(arena.getFirstChild(node));
+                    items.add("<Exp>\n");
+                    items.add(TokenType.RBRACK + " ]\n");
+                }
+                items.add("<LVal>\n");
+                break;
+            case NUMBER:
+                items.add(arena.getToken(node) + "\n");
+                items.add("<Number>\n");
+                break;
+            case CHAR:
+                items.add(arena.getToken(node) + "\n");
+                items.add("<Character>\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 一元层的运算数：LVal、Number、Character外面还有PrimaryExp与UnaryExp两层
+     */
+    private static void addOperand(AstArena arena, int node, ArrayList<Object> items) {
+        items.add(node);
+        AstArena.Kind kind = arena.getKind(node);
+        if (kind == AstArena.Kind.LVAL || kind == AstArena.Kind.NUMBER || kind == AstArena.Kind.CHAR) {
+            items.add("<PrimaryExp>\n");
+            items.add("<UnaryExp>\n");
+        }
+    }
+}
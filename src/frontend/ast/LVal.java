@@ -1,44 +1,49 @@
 package frontend.ast;
 
 import frontend.Token;
-import frontend.TokenType;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 
+/**
+ * AstArena中LVAL结点的句柄
+ */
 public class LVal implements AstNode {
-    private final Token ident;
-    private final Exp exp;
+    private final AstArena arena;
+    private final int id;
 
-    public LVal(Token ident, Exp exp) {
-        this.exp = exp;
-        this.ident = ident;
+    public LVal(AstArena arena, int id) {
+        this.arena = arena;
+        this.id = id;
     }
 
-    public LVal(Token ident) {
-        this.exp = null;
-        this.ident = ident;
+    public AstArena getArena() {
+        return arena;
+    }
+
+    public int getId() {
+        return id;
     }
 
     public int getLineno() {
-        return ident.getLineno();
+        return arena.getTokenLineno(id);
     }
 
     public Token getIdent() {
-        return ident;
+        return arena.getToken(id);
     }
 
     public String getIdentName() {
-        return ident.getContent();
+        return arena.getContent(id);
     }
 
     public boolean isArrayElement() {
-        return exp != null;
+        return arena.getFirstChild(id) != AstArena.NONE;
     }
 
     public Exp getExp() {
-        return exp;
+        return isArrayElement() ? new Exp(new AddExp(arena, arena.getFirstChild(id))) : null;
     }
 
     @Override
@@ -49,18 +54,12 @@ public class LVal implements AstNode {
     @Override
     public ArrayList<AstNode> getAstChild() {
         ArrayList<AstNode> astNodes = new ArrayList<>();
-        astNodes.add(exp);
+        astNodes.add(getExp());
         return astNodes;
     }
 
     @Override
     public void printToFile(BufferedWriter bw) throws IOException {
-        bw.write(ident + "\n");
-        if (exp != null) {
-            bw.write(TokenType.LBRACK + " [\n");
-            exp.printToFile(bw);
-            bw.write(TokenType.RBRACK + " ]\n");
-        }
-        bw.write(getSymbol() + "\n");
+        ExpPrinter.print(arena, id, bw);
     }
 }
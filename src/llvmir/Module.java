@@ -2,8 +2,8 @@ package llvmir;
 
 import llvmir.values.Function;
 import llvmir.values.GlobalVariable;
-import utils.SlotTracker;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -53,25 +53,30 @@ public class Module extends Value {
 
     public void setVirtualName() {
         for (Function function: functions) {
-            SlotTracker.reset();
             function.setVirtualName();
         }
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+    public void appendTo(Appendable out) throws IOException {
         for (Function declare : declares.values()) {
-            sb.append(declare.toString()).append('\n');
+            declare.appendTo(out);
+            out.append('\n');
         }
-        sb.append("\n");
+        out.append('\n');
         for (GlobalVariable globalValue : globalValues) {
-            sb.append(globalValue.toString()).append('\n');
+            globalValue.appendTo(out);
+            out.append('\n');
         }
-        sb.append("\n");
+        out.append('\n');
         for (Function function : functions) {
-            sb.append(function.toString()).append('\n');
+            function.appendTo(out);
+            out.append('\n');
         }
-        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return appendToString();
     }
 }
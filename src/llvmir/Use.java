@@ -0,0 +1,39 @@
+package llvmir;
+
+/**
+ * 一条使用边：user的第index个操作数是value。
+ * 边同时挂在user的操作数表和value的使用链表上，增删都是O(1)
+ */
+public class Use {
+    private final User user;
+    private Value value;
+    private int index;
+    Use prev;
+    Use next;
+
+    Use(User user, Value value, int index) {
+        this.user = user;
+        this.value = value;
+        this.index = index;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    void setValue(Value value) {
+        this.value = value;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+}
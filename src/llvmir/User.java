@@ -6,10 +6,12 @@ import java.util.ArrayList;
 
 public class User extends Value {
     protected ArrayList<Value> operands; // 操作数
+    private final ArrayList<Use> uses;   // 与operands一一对应的使用边
 
     public User(ValueType.Type vt, String name) {
         super(vt, name);
         operands = new ArrayList<>();
+        uses = new ArrayList<>();
     }
 
     public ArrayList<Value> getOperands() {
@@ -17,17 +19,40 @@ public class User extends Value {
     }
 
     public void addOperands(Value value) {
+        Use use = new Use(this, value, operands.size());
         operands.add(value); // 使用这个value作为操作数
+        uses.add(use);
         if (value != null) {
-            value.addUser(this); // value被自己使用
+            value.addUse(use); // value被自己使用
         }
     }
 
     public void removeOperands(Value value) {
-        operands.remove(value);
+        int index = operands.indexOf(value);
+        if (index < 0) {
+            return;
+        }
         if (value != null) {
-            value.removeUser(this);
+            value.removeUse(uses.get(index));
+        }
+        operands.remove(index);
+        uses.remove(index);
+        for (int i = index; i < uses.size(); i++) {
+            uses.get(i).setIndex(i);
+        }
+    }
+
+    /**
+     * 断开所有操作数的使用边并清空操作数
+     */
+    public void dropOperands() {
+        for (Use use: uses) {
+            if (use.getValue() != null) {
+                use.getValue().removeUse(use);
+            }
         }
+        operands.clear();
+        uses.clear();
     }
 
     /**将就操作数替换为新操作数
@@ -37,15 +62,19 @@ public class User extends Value {
     public void replaceValue(Value newValue, Value oldValue) {
         for (int i = 0; i < operands.size(); i++) {
             if (operands.get(i).equals(oldValue)) {
-                operands.set(i, newValue);
-                newValue.addUser(this);
+                replaceValue(newValue, i);
             }
         }
     }
 
     public void replaceValue(Value newValue, int index) {
+        Use use = uses.get(index);
+        if (use.getValue() != null) {
+            use.getValue().removeUse(use);
+        }
         operands.set(index, newValue);
-        newValue.addUser(this);
+        use.setValue(newValue);
+        newValue.addUse(use);
     }
 
     @Override
@@ -2,6 +2,8 @@ package llvmir;
 
 import utils.SlotTracker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Objects;
 
@@ -10,27 +12,63 @@ public class Value {
     protected String name;
     protected ValueType.Type tp;    // 返回值类型
     protected String id = localId;
-    public static String globalId = "@";
-    public static String localId = "%";
-    public static String constId = "#";
-    protected ArrayList<User> usersList; // 使用这个value的user
+    public static final String globalId = "@";
+    public static final String localId = "%";
+    public static final String constId = "#";
+    private Use firstUse;   // 使用链表，按加入顺序
+    private Use lastUse;
+    private int useCount;
+    protected int number;   // 稠密编号，由需要的pass在开始时重新分配
 
     public Value(ValueType.Type vt, String name) {
         this.name = name;
         this.tp = vt;
-        usersList = new ArrayList<>();
     }
 
-    public void addUser(User user) {
-        usersList.add(user);
+    protected void addUse(Use use) {
+        use.prev = lastUse;
+        use.next = null;
+        if (lastUse == null) {
+            firstUse = use;
+        } else {
+            lastUse.next = use;
+        }
+        lastUse = use;
+        useCount++;
     }
 
-    public void removeUser(User user) {
-        usersList.remove(user);
+    protected void removeUse(Use use) {
+        if (use.prev == null && firstUse != use) {
+            return;     // 已不在链表上
+        }
+        if (use.prev == null) {
+            firstUse = use.next;
+        } else {
+            use.prev.next = use.next;
+        }
+        if (use.next == null) {
+            lastUse = use.prev;
+        } else {
+            use.next.prev = use.prev;
+        }
+        use.prev = null;
+        use.next = null;
+        useCount--;
     }
 
+    /**
+     * @return 使用者的快照，同一user每使用一次出现一次，遍历时可以放心修改使用关系
+     */
     public ArrayList<User> getUsersList() {
-        return usersList;
+        ArrayList<User> users = new ArrayList<>(useCount);
+        for (Use use = firstUse; use != null; use = use.next) {
+            users.add(use.getUser());
+        }
+        return users;
+    }
+
+    public int getUseCount() {
+        return useCount;
     }
 
     public String getName() {
@@ -49,6 +87,14 @@ public class Value {
         this.tp = tp;
     }
 
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
     public String getFullName() {
         return id + name;
     }
@@ -61,16 +107,59 @@ public class Value {
         return getTp().toString() + " " + getFullName();
     }
 
+    public void appendFullName(Appendable out) throws IOException {
+        out.append(id).append(name);
+    }
+
+    public void appendDef(Appendable out) throws IOException {
+        getTp().appendTo(out);
+        out.append(' ');
+        appendFullName(out);
+    }
+
+    /**
+     * 将IR文本直接写入out，输出整个模块时不再拼接中间字符串
+     */
+    public void appendTo(Appendable out) throws IOException {
+        out.append(toString());
+    }
+
+    // 覆写了appendTo的子类用它实现toString
+    protected String appendToString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            appendTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
     public void remove() {
-        usersList.clear();
+        Use use = firstUse;
+        while (use != null) {
+            Use next = use.next;
+            use.prev = null;
+            use.next = null;
+            use = next;
+        }
+        firstUse = null;
+        lastUse = null;
+        useCount = 0;
     }
 
     /**将使用旧value作为操作数的user替换旧操作数为新value
      * @param newValue 新的操作数
      */
     public void replaceAllUses(Value newValue) {
-        for (User user: usersList) {
-            user.replaceValue(newValue, this);
+        if (newValue == this) {
+            return;
+        }
+        Use use = firstUse;
+        while (use != null) {
+            Use next = use.next;    // 替换后use会挂到newValue上
+            use.getUser().replaceValue(newValue, use.getIndex());
+            use = next;
         }
     }
 
@@ -78,8 +167,8 @@ public class Value {
         return this;
     }
 
-    public void setVirtualName() {
-        setName(SlotTracker.slot());
+    public void setVirtualName(SlotTracker slots) {
+        setName(slots.slot());
     }
 
     @Override
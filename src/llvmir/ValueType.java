@@ -1,5 +1,7 @@
 package llvmir;
 
+import java.io.IOException;
+
 public class ValueType {
 
     public enum DataType {
@@ -72,6 +74,10 @@ public class ValueType {
             return this.dataType == o.dataType;
         }
 
+        public void appendTo(Appendable out) throws IOException {
+            out.append(dataType.toString());
+        }
+
         @Override
         public String toString() {
             return dataType.toString();
@@ -124,6 +130,12 @@ public class ValueType {
             return this.actType.equals(o.actType) && this.getDataType().equals(o.getDataType());
         }
 
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            actType.appendTo(out);
+            out.append('*');
+        }
+
         @Override
         public String toString() {
             return actType.toString() + "*";
@@ -175,6 +187,13 @@ public class ValueType {
             return this.dim == o.dim && this.getDataType().equals(o.getDataType());
         }
 
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            out.append('[').append(String.valueOf(dim)).append(" x ");
+            super.appendTo(out);
+            out.append(']');
+        }
+
         @Override
         public String toString() {
             return "[" + dim + " x " + super.toString() + "]";
@@ -4,38 +4,44 @@ import llvmir.Value;
 import llvmir.ValueType;
 import llvmir.values.instr.Branch;
 import llvmir.values.instr.Instruction;
+import llvmir.values.instr.InstructionList;
 import llvmir.values.instr.Phi;
+import utils.SlotTracker;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 
 public class BasicBlock extends Value {
-    private final LinkedList<Instruction> instructions;
+    private final InstructionList instructions;
     private final Function parent;
     private boolean needName = false;   // 需要SlotTracker提供一个名字
     private boolean isLabeled;  // 需要打印出名字
     private boolean isTerminator;
     private Instruction terminator;
-    private final HashSet<BasicBlock> subsequents = new HashSet<>();
-    private final HashSet<BasicBlock> precursor = new HashSet<>();
-    private HashSet<BasicBlock> dom = new HashSet<>();  // 被支配的基本块集合
-    private final HashSet<BasicBlock> domChild = new HashSet<>();
-    private HashSet<BasicBlock> DF = new HashSet<>();
+    private final HashSet<BasicBlock> subsequents = new LinkedHashSet<>();
+    private final HashSet<BasicBlock> precursor = new LinkedHashSet<>();
+    private final HashSet<BasicBlock> domChild = new LinkedHashSet<>();
+    // 支配树先序编号及子树中最大的先序编号，不可达块为-1
+    private int domPre = -1;
+    private int domPost = -1;
+    private HashSet<BasicBlock> DF = new LinkedHashSet<>();
     private BasicBlock iDom;
     private int domDepth = 0;
-    private HashSet<Value> uses = new HashSet<>();
-    private HashSet<Value> defs = new HashSet<>();
-    private HashSet<Value> ins = new HashSet<>();
-    private HashSet<Value> outs = new HashSet<>();
+    // 活跃变量集合，下标为LiveAnalyze分配的稠密编号
+    private BitSet uses = new BitSet();
+    private BitSet defs = new BitSet();
+    private BitSet ins = new BitSet();
+    private BitSet outs = new BitSet();
     private BasicBlock neighbour;
     protected int loopDepth = 0;
 
     public BasicBlock(String name, Function function) {
         super(new ValueType.Type(ValueType.DataType.LabelTy), name);
-        instructions = new LinkedList<>();
+        instructions = new InstructionList(this);
         parent = function;
-        dom.add(this);
         iDom = null;
     }
 
@@ -84,27 +90,25 @@ public class BasicBlock extends Value {
         precursor.remove(basicBlock);
     }
 
-    public void setDom(HashSet<BasicBlock> dom) {
-        this.dom = dom;
+    /**
+     * 重新计算支配树前清空上一次的结果
+     */
+    public void resetDom() {
+        iDom = null;
+        domChild.clear();
+        DF = new LinkedHashSet<>();
+        domDepth = 0;
+        domPre = -1;
+        domPost = -1;
     }
 
-    public HashSet<BasicBlock> getDom() {
-        return dom;
+    public void setiDom(BasicBlock iDom) {
+        this.iDom = iDom;
     }
 
-    public void calDirectDom() {
-        int maxDom = 0;
-        for (BasicBlock block: dom) {
-            if (!block.equals(this)) {
-                if (block.getDom().size() > maxDom) {
-                    maxDom = block.getDom().size();
-                    iDom = block;
-                }
-            }
-        }
-        if (iDom != null) {
-            iDom.addDomChild(this);
-        }
+    public void setDomRange(int pre, int post) {
+        domPre = pre;
+        domPost = post;
     }
 
     public void addDomChild(BasicBlock block) {
@@ -128,11 +132,15 @@ public class BasicBlock extends Value {
     }
 
     public boolean isDomBy(BasicBlock basicBlock) {   // basicBlock 支配 this
-        return dom.contains(basicBlock);
+        if (this == basicBlock) {
+            return true;
+        }
+        return domPre >= 0 && basicBlock.domPre >= 0
+                && basicBlock.domPre <= domPre && domPre <= basicBlock.domPost;
     }
 
     public boolean isStrictDomBy(BasicBlock basicBlock) {
-        return dom.contains(basicBlock) && !this.equals(basicBlock);
+        return this != basicBlock && isDomBy(basicBlock);
     }
 
     public HashSet<BasicBlock> getDF() {
@@ -159,7 +167,6 @@ public class BasicBlock extends Value {
         if (!isTerminator) {
             instr.setNeedName(setName);
             instructions.add(instr);
-            instr.setParent(this);
             if (instr instanceof Branch) {
                 Branch branch = (Branch) instr;
                 if (branch.getOperands().size() == 1) {
@@ -171,9 +178,7 @@ public class BasicBlock extends Value {
             }
             return;
         }
-        for (Value operand: instr.getOperands()) {
-            operand.removeUser(instr);
-        }
+        instr.dropOperands();
     }
 
     public void removeInstr(Instruction instr) {
@@ -183,34 +188,29 @@ public class BasicBlock extends Value {
     public void remove() {
         super.remove();
         while (!instructions.isEmpty()) {
-            instructions.get(0).remove();
+            instructions.getFirst().remove();
         }
     }
 
     public void insertBeforeInstr(Instruction pre, Instruction next) {
         if (pre == null) {
             instructions.add(next);
-            next.setParent(this);
         } else if (instructions.contains(pre)) {
-            int index = instructions.indexOf(pre);
-            instructions.add(index, next);
-            next.setParent(this);
+            instructions.insertBefore(pre, next);
         }
     }
 
     public Phi insertPhi(Value value) {
         Phi phi = new Phi(value, "");
         phi.setNeedName(true);
-        phi.setParent(this);
         phi.setPreBlocks(new ArrayList<>(this.getPrecursor()));
-        instructions.add(0, phi);
+        instructions.addFirst(phi);
         return phi;
     }
 
     public void insertBeforeTerminator(Instruction instruction) {
-        instruction.setParent(this);
         if (isTerminator) {
-            instructions.add(instructions.size() - 1, instruction);
+            instructions.insertBefore(instructions.getLast(), instruction);
         } else {
             instructions.add(instruction);
         }
@@ -224,7 +224,7 @@ public class BasicBlock extends Value {
             Value trueBlock = br.getOperands().get(1);
             Value falseBlock = br.getOperands().get(2);
             if (judge instanceof Constant) {
-                if (judge.getName().equals("0")) {  // 永远为假
+                if (((Constant) judge).getValue() == 0) {  // 永远为假
                     br.removeOperands(trueBlock);
                     br.removeOperands(judge);
                 } else {    // 永远为真
@@ -264,13 +264,13 @@ public class BasicBlock extends Value {
         }
     }
 
-    public void setVirtualName() {
+    public void setVirtualName(SlotTracker slots) {
         for (Instruction instruction: instructions) {
-            instruction.setVirtualName();
+            instruction.setVirtualName(slots);
         }
     }
 
-    public LinkedList<Instruction> getInstructions() {
+    public InstructionList getInstructions() {
         return instructions;
     }
 
@@ -282,68 +282,83 @@ public class BasicBlock extends Value {
         return precursor;
     }
 
-    public void setDefs(HashSet<Value> def) {
+    public void setDefs(BitSet def) {
         this.defs = def;
     }
 
-    public void setUses(HashSet<Value> use) {
+    public void setUses(BitSet use) {
         this.uses = use;
     }
 
-    public void setIns(HashSet<Value> ins) {
+    public void setIns(BitSet ins) {
         this.ins = ins;
     }
 
-    public HashSet<Value> getOuts() {
+    public BitSet getOuts() {
         return outs;
     }
 
-    public HashSet<Value> getUses() {
+    public BitSet getUses() {
         return uses;
     }
 
-    public HashSet<Value> getDefs() {
+    public BitSet getDefs() {
         return defs;
     }
 
-    public HashSet<Value> getIns() {
+    public BitSet getIns() {
         return ins;
     }
 
-    public void setOuts(HashSet<Value> outs) {
+    public void setOuts(BitSet outs) {
         this.outs = outs;
     }
 
+    public boolean isLiveIn(Value value) {
+        return ins.get(value.getNumber());
+    }
+
+    public boolean isLiveOut(Value value) {
+        return outs.get(value.getNumber());
+    }
+
     @Override
     public String getDef() {
         return super.getDef();
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+    public void appendTo(Appendable out) throws IOException {
         if (isLabeled) {
-            sb.append(getName()).append(": ");
-            sb.append("\n");
+            out.append(getName()).append(": ");
+            out.append('\n');
         }
         if (!precursor.isEmpty()) {
-            sb.append("; pred = ");
+            out.append("; pred = ");
             for (BasicBlock basicBlock: precursor) {
-                sb.append(basicBlock.getFullName()).append(", ");
+                basicBlock.appendFullName(out);
+                out.append(", ");
             }
-            sb.append("\n");
+            out.append('\n');
         }
         if (!subsequents.isEmpty()) {
-            sb.append("; next = ");
+            out.append("; next = ");
             for (BasicBlock basicBlock: subsequents) {
-                sb.append(basicBlock.getFullName()).append(", ");
+                basicBlock.appendFullName(out);
+                out.append(", ");
             }
-            sb.append("\n");
+            out.append('\n');
         }
         for (Instruction instr: instructions) {
-            sb.append("\t").append(instr.toString()).append("\n");
+            out.append('\t');
+            instr.appendTo(out);
+            out.append('\n');
         }
-        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return appendToString();
     }
 
     public static class ForBlock extends BasicBlock {
@@ -1,20 +1,82 @@
 package llvmir.values;
 
+import llvmir.Use;
 import llvmir.Value;
 import llvmir.ValueType;
 
-import java.util.ArrayList;
+import java.io.IOException;
 
+/**
+ * 整数常量直接保存int值，小整数按类型驻留，折叠与代码生成时不再解析名字。
+ * 驻留的常量被多处共享，因此常量不记录使用者；驻留常量的类型不可修改，需要别的类型时用get重新取
+ */
 public class Constant extends Value {
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final Constant[][] cache = new Constant[ValueType.DataType.values().length][];
+
+    // 驻留常量的类型，改类型会波及所有共享它的地方，以及同一JVM中之后的每次编译
+    private static final class InternedType extends ValueType.Type {
+        private InternedType(ValueType.DataType dataType) {
+            super(dataType);
+        }
+
+        @Override
+        public void setDataType(ValueType.DataType dataType) {
+            throw new UnsupportedOperationException("interned constant type is immutable");
+        }
+    }
+
+    // 整数类型的驻留表在类加载时建好，之后只读，各函数的优化并行执行、编译服务复用JVM时共享
+    static {
+        ValueType.DataType[] intTypes = {ValueType.DataType.Integer1Ty, ValueType.DataType.Integer8Ty,
+            ValueType.DataType.Integer32Ty, ValueType.DataType.Integer64Ty};
+        for (ValueType.DataType dataType: intTypes) {
+            Constant[] table = new Constant[CACHE_HIGH - CACHE_LOW + 1];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = new Constant(new InternedType(dataType), i + CACHE_LOW);
+            }
+            cache[dataType.ordinal()] = table;
+        }
+    }
+
     private boolean isString;
+    private final int value;
 
-    public Constant(String name) {
-        super(new ValueType.Type(ValueType.DataType.Integer32Ty), name);
+    private Constant(ValueType.Type type, int value) {
+        super(type, String.valueOf(value));
         id = constId;
+        this.value = value;
     }
 
+    // 字符串常量
     public Constant(ValueType.Type type, String name) {
         super(type, name);
+        id = constId;
+        this.value = 0;
+    }
+
+    public static Constant get(int value) {
+        return get(ValueType.DataType.Integer32Ty, value);
+    }
+
+    public static Constant get(ValueType.DataType dataType, int value) {
+        Constant[] table = cache[dataType.ordinal()];
+        if (table == null || value < CACHE_LOW || value > CACHE_HIGH) {
+            return new Constant(new ValueType.Type(dataType), value);
+        }
+        return table[value - CACHE_LOW];
+    }
+
+    public static Constant get(ValueType.Type type, int value) {
+        if (type.getClass() == ValueType.Type.class || type instanceof InternedType) {
+            return get(type.getDataType(), value);
+        }
+        return new Constant(type, value);
+    }
+
+    public int getValue() {
+        return value;
     }
 
     public void setString(boolean string) {
@@ -26,24 +88,39 @@ public class Constant extends Value {
     }
 
     public void setTp(ValueType.Type tp) {
+        if (this.tp instanceof InternedType) {
+            throw new UnsupportedOperationException("interned constant type is immutable");
+        }
         super.setTp(tp);
     }
 
+    @Override
+    protected void addUse(Use use) {
+    }
+
+    @Override
+    protected void removeUse(Use use) {
+    }
+
     @Override
     public String getFullName() {
         return name;
     }
 
+    @Override
+    public void appendFullName(Appendable out) throws IOException {
+        out.append(name);
+    }
+
     @Override
     public String getName() {
         return super.getName();
     }
 
     public Constant deepClone() {
-        Constant constant = new Constant(this.name);
-        constant.setTp(this.tp.deepClone());
+        Constant constant = isString ? new Constant(tp.deepClone(), name)
+                : new Constant(tp.deepClone(), value);
         constant.setString(this.isString);
-        constant.usersList = new ArrayList<>(usersList);
         return constant;
     }
 
@@ -1,14 +1,20 @@
 package llvmir.values;
 
+import llvmir.Use;
+import llvmir.User;
 import llvmir.Value;
 import llvmir.ValueType;
 import llvmir.values.instr.Call;
 import llvmir.values.instr.Return;
 import utils.SlotTracker;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 public class Function extends Value {
     private final ArrayList<Argument> funcFParams;
@@ -19,7 +25,10 @@ public class Function extends Value {
     private HashMap<Value, Integer> globalRegsMap;
     private HashSet<Value> valueInStack;
     private boolean noSideEffect = true;
-    private final HashSet<Call> callers = new HashSet<>();
+    private final HashSet<Call> callers = new LinkedHashSet<>();   // 函数内对自定义函数的调用，只在串行阶段读写
+    private HashSet<Integer> clobberedRegs = new HashSet<>();    // 调用该函数后可能被改写的寄存器
+    private HashSet<Integer> calleeSavedRegs = new HashSet<>();  // 序言保存、返回前恢复的$s寄存器
+    private HashMap<Value, Integer> stackSlots = new LinkedHashMap<>();  // 栈上变量 -> 共用的栈位置编号
 
     public Function(ValueType.Type vt, String name,
                     boolean isDefine) {
@@ -32,6 +41,37 @@ public class Function extends Value {
         id = globalId;
     }
 
+    // 调用者分布在各个函数中，并行优化时会同时增删使用边，读写使用链表都要加同一把锁
+    @Override
+    protected synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    protected synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
+    @Override
+    public synchronized ArrayList<User> getUsersList() {
+        return super.getUsersList();
+    }
+
+    @Override
+    public synchronized int getUseCount() {
+        return super.getUseCount();
+    }
+
+    @Override
+    public synchronized void replaceAllUses(Value newValue) {
+        super.replaceAllUses(newValue);
+    }
+
+    @Override
+    public synchronized void remove() {
+        super.remove();
+    }
+
     public int getArgc() {
         return funcFParams.size();
     }
@@ -119,6 +159,7 @@ public class Function extends Value {
     }
 
     public void addChild(Call function) {
+        assert !(Thread.currentThread() instanceof ForkJoinWorkerThread) : "callers只在串行阶段修改";
         callers.add(function);
     }
 
@@ -127,15 +168,16 @@ public class Function extends Value {
     }
 
     public void setVirtualName() {
+        SlotTracker slots = new SlotTracker();
         for (Argument argument: funcFParams) {
             if (argument.isNeedName()) {
-                argument.setName(SlotTracker.slot());
+                argument.setName(slots.slot());
             }
         }
         for (BasicBlock basicBlock: basicBlocks) {
-            basicBlock.setName(SlotTracker.slot());
+            basicBlock.setName(slots.slot());
             basicBlock.setNeedName(false);
-            basicBlock.setVirtualName();
+            basicBlock.setVirtualName(slots);
         }
     }
 
@@ -155,6 +197,30 @@ public class Function extends Value {
         this.valueInStack = valueInStack;
     }
 
+    public HashSet<Integer> getClobberedRegs() {
+        return clobberedRegs;
+    }
+
+    public void setClobberedRegs(HashSet<Integer> clobberedRegs) {
+        this.clobberedRegs = clobberedRegs;
+    }
+
+    public HashSet<Integer> getCalleeSavedRegs() {
+        return calleeSavedRegs;
+    }
+
+    public void setCalleeSavedRegs(HashSet<Integer> calleeSavedRegs) {
+        this.calleeSavedRegs = calleeSavedRegs;
+    }
+
+    public HashMap<Value, Integer> getStackSlots() {
+        return stackSlots;
+    }
+
+    public void setStackSlots(HashMap<Value, Integer> stackSlots) {
+        this.stackSlots = stackSlots;
+    }
+
     @Override
     public String getFullName() {
         return super.getFullName();
@@ -181,33 +247,57 @@ public class Function extends Value {
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+    public void appendDef(Appendable out) throws IOException {
+        tp.appendTo(out);
+        out.append(' ');
+        appendFullName(out);
+        out.append('(');
+        for (int i = 0; i < funcFParams.size(); i++) {
+            funcFParams.get(i).appendDef(out);
+            if (i < funcFParams.size() - 1) {
+                out.append(", ");
+            }
+        }
+        out.append(')');
+    }
+
+    @Override
+    public void appendTo(Appendable out) throws IOException {
         if (isDefine) {
-            sb.append("define dso_local ").append(tp.toString()).append(" ");
-            sb.append(getFullName()).append("(");
+            out.append("define dso_local ");
+            tp.appendTo(out);
+            out.append(' ');
+            appendFullName(out);
+            out.append('(');
             for (int i = 0; i < funcFParams.size(); i++) {
-                sb.append(funcFParams.get(i).toString());
+                funcFParams.get(i).appendDef(out);
                 if (i < funcFParams.size() - 1) {
-                    sb.append(", ");
+                    out.append(", ");
                 }
             }
-            sb.append(") {\n");
+            out.append(") {\n");
             for (BasicBlock basicBlock: basicBlocks) {
-                sb.append(basicBlock.toString());
+                basicBlock.appendTo(out);
             }
-            sb.append("}\n");
+            out.append("}\n");
         } else {
-            sb.append("declare ").append(tp.toString()).append(" ");
-            sb.append(getFullName()).append("(");
+            out.append("declare ");
+            tp.appendTo(out);
+            out.append(' ');
+            appendFullName(out);
+            out.append('(');
             for (int i = 0; i < funcFParams.size(); i++) {
-                sb.append(funcFParams.get(i).getTp().toString());
+                funcFParams.get(i).getTp().appendTo(out);
                 if (i < funcFParams.size() - 1) {
-                    sb.append(", ");
+                    out.append(", ");
                 }
             }
-            sb.append(")");
+            out.append(')');
         }
-        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return appendToString();
     }
 }
@@ -1,5 +1,7 @@
 package llvmir.values;
 
+import llvmir.Use;
+import llvmir.User;
 import llvmir.Value;
 import llvmir.ValueType;
 import utils.Transform;
@@ -18,6 +20,37 @@ public class GlobalVariable extends Value {
         initVal = new ArrayList<>();
     }
 
+    // 全局变量被多个函数使用，各函数并行优化时会同时增删它的使用边，读写使用链表都要加同一把锁
+    @Override
+    protected synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    protected synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
+    @Override
+    public synchronized ArrayList<User> getUsersList() {
+        return super.getUsersList();
+    }
+
+    @Override
+    public synchronized int getUseCount() {
+        return super.getUseCount();
+    }
+
+    @Override
+    public synchronized void replaceAllUses(Value newValue) {
+        super.replaceAllUses(newValue);
+    }
+
+    @Override
+    public synchronized void remove() {
+        super.remove();
+    }
+
     public void setUnnamed(boolean unnamed) {
         this.unnamed = unnamed;
     }
@@ -55,9 +88,11 @@ public class GlobalVariable extends Value {
             }
         }
         if (!isString()) {
-            for (Value init: initVal) {
-                if (init.getTp().getDataType() != tp.getDataType()) {
-                    init.getTp().setDataType(tp.getDataType());
+            // 初值多为驻留常量，不能就地改类型，换成元素类型的常量
+            for (int i = 0; i < initVal.size(); i++) {
+                Value init = initVal.get(i);
+                if (init.getTp().getDataType() != tp.getDataType() && init instanceof Constant) {
+                    initVal.set(i, Constant.get(tp.getDataType(), ((Constant) init).getValue()));
                 }
             }
         }
@@ -107,14 +142,14 @@ public class GlobalVariable extends Value {
             String content = initVal.get(0).getName();
             if (bis < content.length()) {
                 int init = Transform.str2int(String.valueOf(content.charAt(bis)));
-                return new Constant(getElementType(), String.valueOf(init));
+                return Constant.get(getElementType(), init);
             }
-            return new Constant(getElementType(),"0");
+            return Constant.get(getElementType(), 0);
         }
         if (bis < initVal.size()) {
             return initVal.get(bis);
         }
-        return new Constant(getElementType(),"0");
+        return Constant.get(getElementType(), 0);
     }
 
     public ValueType.Type getElementType() {
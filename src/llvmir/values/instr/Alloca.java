@@ -4,6 +4,7 @@ import llvmir.Value;
 import llvmir.ValueType;
 import llvmir.values.Constant;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class Alloca extends Instruction {
@@ -51,7 +52,7 @@ public class Alloca extends Instruction {
         if (bis < constInits.size()) {
             return constInits.get(bis);
         }
-        return new Constant(getElementType(),"0");
+        return Constant.get(getElementType(), 0);
     }
 
     public int getDim() {
@@ -68,7 +69,9 @@ public class Alloca extends Instruction {
     }
 
     @Override
-    public String toString() {
-        return getFullName() + " = alloca " + getTp().getInnerType().toString();
+    public void appendTo(Appendable out) throws IOException {
+        appendFullName(out);
+        out.append(" = alloca ");
+        getTp().getInnerType().appendTo(out);
     }
 }
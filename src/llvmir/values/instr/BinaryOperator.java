@@ -3,6 +3,8 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class BinaryOperator extends Instruction {
 
     public BinaryOperator(ValueType.Type vt, Type type, String name) {
@@ -10,13 +12,13 @@ public class BinaryOperator extends Instruction {
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+    public void appendTo(Appendable out) throws IOException {
         Value value1 = getOperands().get(0);
         Value value2 = getOperands().get(1);
-        sb.append(id).append(name).append(" = ");
-        sb.append(getIrType()).append(" ");
-        sb.append(value1.getDef()).append(", ").append(value2.getFullName());
-        return sb.toString();
+        out.append(id).append(name).append(" = ");
+        out.append(getIrType().toString()).append(' ');
+        value1.appendDef(out);
+        out.append(", ");
+        value2.appendFullName(out);
     }
 }
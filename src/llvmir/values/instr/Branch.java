@@ -3,7 +3,9 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Branch extends Instruction {
 
@@ -17,7 +19,7 @@ public class Branch extends Instruction {
 
     @Override
     public HashSet<Value> use() {
-        HashSet<Value> use = new HashSet<>();
+        HashSet<Value> use = new LinkedHashSet<>();
         if (getOperands().size() != 1) {
             use.add(getOperands().get(0));
         }
@@ -25,16 +27,14 @@ public class Branch extends Instruction {
     }
 
     @Override
-    public String toString() {
-        if (getOperands().size() == 1) {
-            return "br " + getOperands().get(0).getDef();
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("br ");
-            sb.append(getOperands().get(0).getDef()).append(", ");
-            sb.append(getOperands().get(1).getDef()).append(", ");
-            sb.append(getOperands().get(2).getDef());
-            return sb.toString();
+    public void appendTo(Appendable out) throws IOException {
+        out.append("br ");
+        getOperands().get(0).appendDef(out);
+        if (getOperands().size() > 1) {
+            out.append(", ");
+            getOperands().get(1).appendDef(out);
+            out.append(", ");
+            getOperands().get(2).appendDef(out);
         }
     }
 }
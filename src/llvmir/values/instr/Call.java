@@ -4,9 +4,11 @@ import llvmir.Value;
 import llvmir.ValueType;
 import llvmir.values.Function;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Call extends Instruction {
     private Function callFunc;
@@ -73,22 +75,18 @@ public class Call extends Instruction {
     @Override
     public HashSet<Value> use() {
         if (callFunc.getName().equals("putstr")) {
-            return new HashSet<>();
+            return new LinkedHashSet<>();
         }
-        HashSet<Value> use = new HashSet<>(operands);
+        HashSet<Value> use = new LinkedHashSet<>(operands);
         use.remove(callFunc);
         return use;
     }
 
     @Override
-    public void replaceValue(Value newValue, Value oldValue) {
-        for (int i = 0; i < operands.size(); i++) {
-            if (operands.get(i).equals(oldValue)) {
-                operands.set(i, newValue);
-                newValue.addUser(this);
-                int index = funcRParams.indexOf(oldValue);
-                funcRParams.set(index, newValue);
-            }
+    public void replaceValue(Value newValue, int index) {
+        super.replaceValue(newValue, index);
+        if (index > 0) {    // 0号操作数是被调函数
+            funcRParams.set(index - 1, newValue);
         }
     }
 
@@ -107,11 +105,22 @@ public class Call extends Instruction {
     }
 
     @Override
-    public String toString() {
-        if (tp.getDataType().equals(ValueType.DataType.VoidTy)) {
-            return "call " + getCall();
-        } else {
-            return getFullName() + " = call " + getCall();
+    public void appendTo(Appendable out) throws IOException {
+        if (!tp.getDataType().equals(ValueType.DataType.VoidTy)) {
+            appendFullName(out);
+            out.append(" = ");
+        }
+        out.append("call ");
+        callFunc.getTp().appendTo(out);
+        out.append(' ');
+        callFunc.appendFullName(out);
+        out.append('(');
+        for (int i = 0; i < funcRParams.size(); i++) {
+            operands.get(i + 1).appendDef(out);
+            if (i < funcRParams.size() - 1) {
+                out.append(", ");
+            }
         }
+        out.append(')');
     }
 }
@@ -2,6 +2,8 @@ package llvmir.values.instr;
 
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Compare extends Instruction {
     private CondType condType;
 
@@ -58,9 +60,11 @@ public class Compare extends Instruction {
     }
 
     @Override
-    public String toString() {
-        return getFullName() + " = icmp " + condType + " "
-                + getOperands().get(0).getDef() + ", "
-                + getOperands().get(1).getFullName();
+    public void appendTo(Appendable out) throws IOException {
+        appendFullName(out);
+        out.append(" = icmp ").append(condType.toString()).append(' ');
+        getOperands().get(0).appendDef(out);
+        out.append(", ");
+        getOperands().get(1).appendFullName(out);
     }
 }
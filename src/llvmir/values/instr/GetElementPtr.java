@@ -2,6 +2,8 @@ package llvmir.values.instr;
 
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class GetElementPtr extends Instruction {
 
     // 传进来的是[]* 或 i_*
@@ -32,15 +34,33 @@ public class GetElementPtr extends Instruction {
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(getFullName()).append(" = getelementptr inbounds ");
-        sb.append(tp.getInnerType()).append(", ");
-        sb.append(getOperands().get(0).getDef());
-        sb.append(", ").append(getOperands().get(1).getDef());
+    public void appendDef(Appendable out) throws IOException {
+        if (name != null) {
+            super.appendDef(out);
+            return;
+        }
+        getTp().appendTo(out);
+        out.append(" getelementptr inbounds (");
+        appendIndexes(out);
+        out.append(')');
+    }
+
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        appendFullName(out);
+        out.append(" = getelementptr inbounds ");
+        appendIndexes(out);
+    }
+
+    private void appendIndexes(Appendable out) throws IOException {
+        tp.getInnerType().appendTo(out);
+        out.append(", ");
+        getOperands().get(0).appendDef(out);
+        out.append(", ");
+        getOperands().get(1).appendDef(out);
         if (getOperands().size() > 2) {
-            sb.append(", ").append(getOperands().get(2).getDef());
+            out.append(", ");
+            getOperands().get(2).appendDef(out);
         }
-        return sb.toString();
     }
 }
@@ -7,11 +7,16 @@ import llvmir.values.BasicBlock;
 import utils.SlotTracker;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Instruction extends User {
     private final Type irType;
     private BasicBlock parent;
     private boolean needName = false;
+    // 所在InstructionList中的前后指针
+    Instruction prev;
+    Instruction next;
+    InstructionList owner;
 
     public Instruction(ValueType.Type vt, Type irType, String name) {
         super(vt, name);
@@ -97,27 +102,38 @@ public class Instruction extends User {
         return parent;
     }
 
+    public Instruction getPrev() {
+        return prev;
+    }
+
+    public Instruction getNext() {
+        return next;
+    }
+
     public Value def() {
         return super.def();
     }
 
     public HashSet<Value> use() {
-        return new HashSet<>(operands);
+        return new LinkedHashSet<>(operands);
     }
 
     public void remove() {
         parent.removeInstr(this);
         parent = null;
         super.remove();
-        for (Value operand: operands) {
-            operand.removeUser(this);
-        }
-        operands.clear();
+        dropOperands();
     }
 
-    public void setVirtualName() {
+    @Override
+    public void setVirtualName(SlotTracker slots) {
         if (needName) {
-            setName(SlotTracker.slot());
+            setName(slots.slot());
         }
     }
+
+    @Override
+    public String toString() {
+        return appendToString();
+    }
 }
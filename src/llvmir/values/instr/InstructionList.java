@@ -0,0 +1,229 @@
+package llvmir.values.instr;
+
+import llvmir.values.BasicBlock;
+
+import java.util.AbstractSequentialList;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 基本块的指令链表，前后指针直接存放在Instruction中。
+ * 插入、删除、判断归属都是O(1)；迭代器预先记住下一条指令，
+ * 遍历时删除或移走当前指令不影响继续遍历
+ */
+public class InstructionList extends AbstractSequentialList<Instruction> {
+    private final BasicBlock block;
+    private Instruction head;
+    private Instruction tail;
+    private int size;
+
+    public InstructionList(BasicBlock block) {
+        this.block = block;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Instruction getFirst() {
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        return head;
+    }
+
+    public Instruction getLast() {
+        if (tail == null) {
+            throw new NoSuchElementException();
+        }
+        return tail;
+    }
+
+    @Override
+    public boolean add(Instruction instr) {
+        link(instr, null);
+        return true;
+    }
+
+    public void addFirst(Instruction instr) {
+        link(instr, head);
+    }
+
+    /**
+     * 将instr插到pos之前，pos为null时插到末尾；instr原先在别的链表中时会先被移出
+     */
+    public void insertBefore(Instruction pos, Instruction instr) {
+        link(instr, pos);
+    }
+
+    public void insertAfter(Instruction pos, Instruction instr) {
+        link(instr, pos.next);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Instruction && ((Instruction) o).owner == this;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) {
+            return false;
+        }
+        unlink((Instruction) o);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        while (head != null) {
+            unlink(head);
+        }
+    }
+
+    private void link(Instruction instr, Instruction pos) {
+        if (instr.owner != null) {
+            instr.owner.unlink(instr);
+        }
+        Instruction prev = pos == null ? tail : pos.prev;
+        instr.prev = prev;
+        instr.next = pos;
+        if (prev == null) {
+            head = instr;
+        } else {
+            prev.next = instr;
+        }
+        if (pos == null) {
+            tail = instr;
+        } else {
+            pos.prev = instr;
+        }
+        instr.owner = this;
+        instr.setParent(block);
+        size++;
+        modCount++;
+    }
+
+    private void unlink(Instruction instr) {
+        if (instr.prev == null) {
+            head = instr.next;
+        } else {
+            instr.prev.next = instr.next;
+        }
+        if (instr.next == null) {
+            tail = instr.prev;
+        } else {
+            instr.next.prev = instr.prev;
+        }
+        instr.prev = null;
+        instr.next = null;
+        instr.owner = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public ListIterator<Instruction> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Itr itr = new Itr();
+        for (int i = 0; i < index; i++) {
+            itr.next();
+        }
+        return itr;
+    }
+
+    private class Itr implements ListIterator<Instruction> {
+        private Instruction next = head;
+        private Instruction lastReturned;
+        private int nextIndex;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Instruction next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next == null ? tail != null : next.prev != null;
+        }
+
+        @Override
+        public Instruction previous() {
+            Instruction prev = next == null ? tail : next.prev;
+            if (prev == null) {
+                throw new NoSuchElementException();
+            }
+            next = prev;
+            lastReturned = prev;
+            nextIndex--;
+            return prev;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (lastReturned == next) {
+                next = next.next;
+            } else {
+                nextIndex--;
+            }
+            if (lastReturned.owner == InstructionList.this) {
+                unlink(lastReturned);
+            }
+            lastReturned = null;
+        }
+
+        @Override
+        public void set(Instruction instr) {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            Instruction pos = lastReturned.next;
+            boolean wasNext = next == lastReturned;
+            unlink(lastReturned);
+            link(instr, pos);
+            if (wasNext) {
+                next = instr;
+            }
+            lastReturned = instr;
+        }
+
+        @Override
+        public void add(Instruction instr) {
+            link(instr, next);
+            nextIndex++;
+            lastReturned = null;
+        }
+    }
+}
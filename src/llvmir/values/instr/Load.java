@@ -2,6 +2,8 @@ package llvmir.values.instr;
 
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Load extends Instruction {
 
     public Load(ValueType.Type vt, String name) {
@@ -9,8 +11,11 @@ public class Load extends Instruction {
     }
 
     @Override
-    public String toString() {
-        return getFullName() + " = load " + tp.toString() + ", "
-                + getOperands().get(0).getDef();
+    public void appendTo(Appendable out) throws IOException {
+        appendFullName(out);
+        out.append(" = load ");
+        tp.appendTo(out);
+        out.append(", ");
+        getOperands().get(0).appendDef(out);
     }
 }
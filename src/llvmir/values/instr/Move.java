@@ -3,8 +3,11 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 import llvmir.values.BasicBlock;
+import utils.SlotTracker;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Move extends Instruction {
     private Value dst;
@@ -25,14 +28,22 @@ public class Move extends Instruction {
         return src;
     }
 
+    public void setDst(Value dst) {
+        this.dst = dst;
+    }
+
+    public void setSrc(Value src) {
+        this.src = src;
+    }
+
     @Override
-    public void setVirtualName() {
-        dst.setVirtualName();
+    public void setVirtualName(SlotTracker slots) {
+        dst.setVirtualName(slots);
     }
 
     @Override
     public HashSet<Value> use() {
-        HashSet<Value> use = new HashSet<>();
+        HashSet<Value> use = new LinkedHashSet<>();
         use.add(src);
         return use;
     }
@@ -43,7 +54,10 @@ public class Move extends Instruction {
     }
 
     @Override
-    public String toString() {
-        return "move " + dst.getFullName() + ", " + src.getFullName();
+    public void appendTo(Appendable out) throws IOException {
+        out.append("move ");
+        dst.appendFullName(out);
+        out.append(", ");
+        src.appendFullName(out);
     }
 }
@@ -3,6 +3,7 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 
@@ -39,15 +40,15 @@ public class Pc extends Instruction {
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
+    public void appendTo(Appendable out) throws IOException {
         for (Value value: dst) {
-            sb.append(value.getFullName()).append(" ");
+            value.appendFullName(out);
+            out.append(' ');
         }
-        sb.append("= pc ");
+        out.append("= pc ");
         for (Value value: src) {
-            sb.append(value.getFullName()).append(" ");
+            value.appendFullName(out);
+            out.append(' ');
         }
-        return sb.toString();
     }
 }
@@ -3,9 +3,12 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.values.BasicBlock;
 import llvmir.values.Constant;
+import utils.SlotTracker;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Phi extends Instruction {
     private ArrayList<BasicBlock> preBlocks = new ArrayList<>();
@@ -17,10 +20,14 @@ public class Phi extends Instruction {
     public void setPreBlocks(ArrayList<BasicBlock> preBlocks) {
         this.preBlocks = preBlocks;
         for (int i = 0; i < preBlocks.size(); i++) {
-            operands.add(new Constant(tp, "0"));
+            addOperands(Constant.get(tp, 0));
         }
     }
 
+    public ArrayList<BasicBlock> getPreBlocks() {
+        return preBlocks;
+    }
+
     public void replaceValue(Value value, BasicBlock block) {
         int index = preBlocks.indexOf(block);
         if (index >= 0) {
@@ -37,7 +44,7 @@ public class Phi extends Instruction {
                 }
             }
         }
-        HashSet<BasicBlock> fromBlocks = new HashSet<>();
+        HashSet<BasicBlock> fromBlocks = new LinkedHashSet<>();
         for (int i = 0; i < preBlocks.size(); i++) {
             if (indexs.contains(i)) {
                 fromBlocks.add(preBlocks.get(i));
@@ -47,24 +54,26 @@ public class Phi extends Instruction {
     }
 
     @Override
-    public void setVirtualName() {
-        super.setVirtualName();
+    public void setVirtualName(SlotTracker slots) {
+        super.setVirtualName(slots);
         setNeedName(false);
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(getFullName()).append(" = phi ").append(tp.toString()).append(" ");
+    public void appendTo(Appendable out) throws IOException {
+        appendFullName(out);
+        out.append(" = phi ");
+        tp.appendTo(out);
+        out.append(' ');
         for (int i = 0; i < preBlocks.size(); i++) {
-            sb.append("[ ");
-            sb.append(getOperands().get(i).getFullName());
-            sb.append(", ").append(preBlocks.get(i).getFullName());
-            sb.append(" ]");
+            out.append("[ ");
+            getOperands().get(i).appendFullName(out);
+            out.append(", ");
+            preBlocks.get(i).appendFullName(out);
+            out.append(" ]");
             if (i < preBlocks.size() - 1) {
-                sb.append(", ");
+                out.append(", ");
             }
         }
-        return sb.toString();
     }
 }
@@ -3,6 +3,8 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Return extends Instruction {
 
     public Return(String name) {
@@ -20,11 +22,12 @@ public class Return extends Instruction {
     }
 
     @Override
-    public String toString() {
+    public void appendTo(Appendable out) throws IOException {
         if (tp.getDataType().equals(ValueType.DataType.VoidTy)) {
-            return "ret void";
+            out.append("ret void");
         } else {
-            return "ret " + getOperands().get(0).getDef();
+            out.append("ret ");
+            getOperands().get(0).appendDef(out);
         }
     }
 }
@@ -3,6 +3,8 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Store extends Instruction {
 
     public Store(ValueType.Type vt, String name) {
@@ -14,8 +16,10 @@ public class Store extends Instruction {
     }
 
     @Override
-    public String toString() {
-        return "store " + getOperands().get(0).getDef() + ", "
-                + getOperands().get(1).getDef();
+    public void appendTo(Appendable out) throws IOException {
+        out.append("store ");
+        getOperands().get(0).appendDef(out);
+        out.append(", ");
+        getOperands().get(1).appendDef(out);
     }
 }
@@ -3,19 +3,21 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Trunc extends Instruction {
     public Trunc(ValueType.Type vt, String name) {
         super(vt, Type.TRUNC, name);
     }
 
     @Override
-    public String toString() {
-        // <result> = zext <ty> <value> to <ty2>
-        StringBuilder sb = new StringBuilder();
+    public void appendTo(Appendable out) throws IOException {
+        // <result> = trunc <ty> <value> to <ty2>
         Value value1 = getOperands().get(0);
-        sb.append(id).append(name).append(" = ");
-        sb.append("trunc ").append(value1.getDef());
-        sb.append(" to ").append(tp);
-        return sb.toString();
+        out.append(id).append(name).append(" = ");
+        out.append("trunc ");
+        value1.appendDef(out);
+        out.append(" to ");
+        tp.appendTo(out);
     }
 }
@@ -3,6 +3,8 @@ package llvmir.values.instr;
 import llvmir.Value;
 import llvmir.ValueType;
 
+import java.io.IOException;
+
 public class Zext extends Instruction {
 
     public Zext(ValueType.Type vt, String name) {
@@ -10,13 +12,13 @@ public class Zext extends Instruction {
     }
 
     @Override
-    public String toString() {
+    public void appendTo(Appendable out) throws IOException {
         // <result> = zext <ty> <value> to <ty2>
-        StringBuilder sb = new StringBuilder();
         Value value1 = getOperands().get(0);
-        sb.append(id).append(name).append(" = ");
-        sb.append("zext ").append(value1.getDef());
-        sb.append(" to ").append(tp);
-        return sb.toString();
+        out.append(id).append(name).append(" = ");
+        out.append("zext ");
+        value1.appendDef(out);
+        out.append(" to ");
+        tp.appendTo(out);
     }
 }
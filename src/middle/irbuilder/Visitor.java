@@ -4,8 +4,6 @@ import frontend.Error;
 import frontend.Token;
 import frontend.TokenType;
 import frontend.ast.*;
-import frontend.ast.Character;
-import frontend.ast.Number;
 import llvmir.Module;
 import llvmir.Value;
 import llvmir.ValueType;
@@ -30,6 +28,7 @@ public class Visitor {
     private BasicBlock curBasicBlock;
     private final ArrayDeque<BasicBlock.ForBlock> loopBlockStack; // TODO： 设置成栈
     private final ArrayList<Error> errors;  // 错误处理
+    private final SlotTracker strTracker = new SlotTracker();   // 字符串常量命名
 
     public Visitor(CompUnit compUnit, ArrayList<Error> errors) {
         this.root = compUnit;
@@ -177,7 +176,7 @@ public class Visitor {
         if (constDef.hasArray()) {
             Value dim = visitConstExp(constDef.getConstExp());
             type = getDataType(varType + "Array");
-            ((ValueType.ArrayType) type).setDim(Integer.parseInt(dim.getName()));
+            ((ValueType.ArrayType) type).setDim(((Constant) dim).getValue());
         }
         // 判断是否为全局变量
         if (curTable.getFatherTable() == null) { // 全局变量
@@ -210,19 +209,19 @@ public class Visitor {
                     GetElementPtr getElementPtr = new GetElementPtr(prePtr.getTp(), "1");
                     getElementPtr.addOperands(prePtr);
                     if (i == 0) {
-                        getElementPtr.addOperands(new Constant("0"));
-                        getElementPtr.addOperands(new Constant("0"));
+                        getElementPtr.addOperands(Constant.get(0));
+                        getElementPtr.addOperands(Constant.get(0));
                     } else {
-                        getElementPtr.addOperands(new Constant("1"));
+                        getElementPtr.addOperands(Constant.get(1));
                     }
                     curBasicBlock.appendInstr(getElementPtr, true);
                     Store store = new Store(new ValueType.Type(VoidTy), "");
                     Value res;
                     if (i < str2int.size()) {
-                        res = new Constant(new ValueType.Type(Integer8Ty), String.valueOf(str2int.get(i)));
+                        res = Constant.get(Integer8Ty, str2int.get(i));
                         store.addOperands(res);
                     } else {
-                        res = new Constant(new ValueType.Type(Integer8Ty), "0");
+                        res = Constant.get(Integer8Ty, 0);
                         store.addOperands(res);
                     }
                     store.addOperands(getElementPtr);
@@ -236,8 +235,8 @@ public class Visitor {
             } else if (alloca.isArray()) {
                 GetElementPtr getElementPtr = new GetElementPtr(alloca.getTp(), "2");
                 getElementPtr.addOperands(alloca);
-                getElementPtr.addOperands(new Constant("0"));
-                getElementPtr.addOperands(new Constant("0"));
+                getElementPtr.addOperands(Constant.get(0));
+                getElementPtr.addOperands(Constant.get(0));
                 curBasicBlock.appendInstr(getElementPtr, true);
                 Value res;
                 if (initVal != null) {
@@ -279,10 +278,10 @@ public class Visitor {
                 GetElementPtr getElementPtr = new GetElementPtr(prePtr.getTp(),"3");
                 getElementPtr.addOperands(prePtr);
                 if (i == 0) {
-                    getElementPtr.addOperands(new Constant("0"));
-                    getElementPtr.addOperands(new Constant("0"));
+                    getElementPtr.addOperands(Constant.get(0));
+                    getElementPtr.addOperands(Constant.get(0));
                 } else {
-                    getElementPtr.addOperands(new Constant("1"));
+                    getElementPtr.addOperands(Constant.get(1));
                 }
                 Value res = null;
                 if (i < inits.size()) {
@@ -297,7 +296,7 @@ public class Visitor {
                     }
                 } else if (isConst) {
                     curBasicBlock.appendInstr(getElementPtr, true);
-                    res = buildInit(getElementPtr, new Constant(new ValueType.Type(alloca.getDataType()), "0"));
+                    res = buildInit(getElementPtr, Constant.get(alloca.getDataType(), 0));
                 } else {    // TODO: 删除无关的getelementptr
                     getElementPtr.removeOperands(prePtr);
                 }
@@ -333,14 +332,10 @@ public class Visitor {
     public ArrayList<Value> visitConstInitVal(ConstInitVal constInitVal, ValueType.DataType type) {
         ArrayList<Value> constants = new ArrayList<>();
         if (constInitVal.isConstExp()) {
-            Constant constant = visitConstExp(constInitVal.getConstExp()).deepClone();
-            constant.setTp(new ValueType.Type(type));
-            constants.add(constant);
+            constants.add(Constant.get(type, visitConstExp(constInitVal.getConstExp()).getValue()));
         } else if (constInitVal.isConstExps()) {
             for (ConstExp constExp : constInitVal.getConstExps()) {
-                Constant constant = visitConstExp(constExp).deepClone();
-                constant.setTp(new ValueType.Type(type));
-                constants.add(constant);
+                constants.add(Constant.get(type, visitConstExp(constExp).getValue()));
             }
         } else {
             Constant constant = visitStringConst(constInitVal.getStringConst()).deepClone();
@@ -371,7 +366,7 @@ public class Visitor {
         if (varDef.hasConstExp()) {
             Value dim = visitConstExp(varDef.getConstExp());
             type = getDataType(varType + "Array");
-            ((ValueType.ArrayType) type).setDim(Integer.parseInt(dim.getName()));
+            ((ValueType.ArrayType) type).setDim(((Constant) dim).getValue());
         }
         if (curTable.getFatherTable() == null) {
             GlobalVariable globalVariable = new GlobalVariable(type, varName);
@@ -721,7 +716,7 @@ public class Visitor {
                 if (!globalStr.isEmpty()) {
                     ValueType.ArrayType arrayType = new ValueType.ArrayType(Integer8Ty);
                     arrayType.setDim(Transform.charList2string(globalStr).length() + 1);
-                    GlobalVariable var = new GlobalVariable(arrayType, SlotTracker.slotStr());
+                    GlobalVariable var = new GlobalVariable(arrayType, strTracker.slotStr());
                     var.setUnnamed(true);
                     var.setConstant(true);
                     var.addInitVal(new Constant(new ValueType.ArrayType(Integer8Ty), globalStr));
@@ -742,7 +737,7 @@ public class Visitor {
         if (!globalStr.isEmpty()) {
             ValueType.ArrayType arrayType = new ValueType.ArrayType(Integer8Ty);
             arrayType.setDim(Transform.charList2string(globalStr).length() + 1);
-            GlobalVariable var = new GlobalVariable(arrayType, SlotTracker.slotStr());
+            GlobalVariable var = new GlobalVariable(arrayType, strTracker.slotStr());
             var.setUnnamed(true);
             var.setConstant(true);
             var.setString(true);
@@ -765,8 +760,8 @@ public class Visitor {
             curBasicBlock.appendInstr(call, false);
             GetElementPtr getElementPtr = new GetElementPtr(var.getTp(), null);
             getElementPtr.addOperands(var);
-            getElementPtr.addOperands(new Constant(new ValueType.Type(Integer64Ty), "0"));
-            getElementPtr.addOperands(new Constant(new ValueType.Type(Integer64Ty), "0"));
+            getElementPtr.addOperands(Constant.get(Integer64Ty, 0));
+            getElementPtr.addOperands(Constant.get(Integer64Ty, 0));
             call.addFuncRParam(getElementPtr);
         } else if (c == 'c') {
             Function putch = module.getDeclare("putch");
@@ -831,7 +826,7 @@ public class Visitor {
                 // 不为0则为真
                 Compare compare = new Compare("", Compare.CondType.NE);
                 compare.addOperands(value);
-                compare.addOperands(new Constant("0"));
+                compare.addOperands(Constant.get(0));
                 curBasicBlock.appendInstr(compare, true);
                 value = compare;
             }
@@ -874,7 +869,7 @@ public class Visitor {
                 // 不为0则为真
                 Compare compare = new Compare("", Compare.CondType.NE);
                 compare.addOperands(value);
-                compare.addOperands(new Constant("0"));
+                compare.addOperands(Constant.get(0));
                 curBasicBlock.appendInstr(compare, true);
                 value = compare;
             }
@@ -958,26 +953,19 @@ public class Visitor {
     }
 
     public Constant cmpConst(Constant value1, Constant value2, Compare.CondType type) {
-        ValueType.Type valueType = new ValueType.Type(Integer1Ty);
         switch (type) {
             case EQ:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        == Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() == value2.getValue() ? 1 : 0);
             case NE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        != Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() != value2.getValue() ? 1 : 0);
             case SGE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        >= Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() >= value2.getValue() ? 1 : 0);
             case SGT:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        > Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() > value2.getValue() ? 1 : 0);
             case SLE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        <= Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() <= value2.getValue() ? 1 : 0);
             case SLT:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                    < Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() < value2.getValue() ? 1 : 0);
             default:
                 return null;
         }
@@ -1003,20 +991,15 @@ public class Visitor {
     public Constant calConst(Constant value1, Constant value2, Type type) {
         switch (type) {
             case ADD:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        + Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() + value2.getValue());
             case SUB:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        - Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() - value2.getValue());
             case MUL:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        * Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() * value2.getValue());
             case SDIV:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        / Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() / value2.getValue());
             case SREM:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        % Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() % value2.getValue());
             default:
                 return null;
         }
@@ -1024,9 +1007,7 @@ public class Visitor {
 
     public Value zext(Value value) {
         if (value instanceof Constant) {
-            Constant constant = ((Constant) value).deepClone();
-            constant.setTp(new ValueType.Type(Integer32Ty));
-            return constant;
+            return Constant.get(Integer32Ty, ((Constant) value).getValue());
         }
         if (value.getTp().getDataType() != Integer32Ty) {
             Zext zext = new Zext(new ValueType.Type(Integer32Ty), "");
@@ -1039,9 +1020,7 @@ public class Visitor {
 
     public Value trunc(Value value) {
         if (value instanceof Constant) {
-            Constant constant = ((Constant) value).deepClone();
-            constant.setTp(new ValueType.Type(Integer8Ty));
-            return constant;
+            return Constant.get(Integer8Ty, ((Constant) value).getValue());
         }
         if (value.getTp().getDataType() != Integer8Ty) {
             Trunc trunc = new Trunc(new ValueType.Type(Integer8Ty), "");
@@ -1052,125 +1031,288 @@ public class Visitor {
         return value;
     }
 
+    /**
+     * 表达式的IR生成。括号、数组下标与函数实参中的子表达式各压一帧显式栈，
+     * 代替visitAddExp-visitMulExp-visitUnaryExp-visitPrimaryExp的相互递归，
+     * 指令生成顺序与逐层递归时相同，嵌套再深也不会加深调用栈
+     */
     public Value visitAddExp(AddExp addExp) {
-        if (addExp.getMulExps().size() == 1) {
-            return visitMulExp(addExp.getMulExps().get(0));
+        return lowerExp(new AddExpFrame(addExp.getArena(), addExp.getId()));
+    }
+
+    public Value visitLVal(LVal lVal, boolean isOperand) {
+        return lowerExp(new LValFrame(lVal.getArena(), lVal.getId(), isOperand));
+    }
+
+    private Value lowerExp(ExpFrame root) {
+        ArrayDeque<ExpFrame> stack = new ArrayDeque<>();
+        stack.push(root);
+        Value value = null;
+        while (true) {
+            ExpFrame frame = stack.peek();
+            ExpFrame child = frame.resume(value);
+            if (child != null) {
+                stack.push(child);
+                value = null;
+            } else {
+                stack.pop();
+                value = frame.result;
+                if (stack.isEmpty()) {
+                    return value;
+                }
+            }
         }
-        Value res = null;
-        for (int i = 1; i < addExp.getMulExps().size(); i++) {
-            Value value1 = i == 1 ? visitMulExp(addExp.getMulExps().get(0)) : res;
-            Value value2 = visitMulExp(addExp.getMulExps().get(i));
-            // 如果value1 和 value2 是Const
-            res = getBinInstr(value1, value2, Type.getOp(addExp.getOps().get(i - 1).getContent()));
+    }
+
+    /**
+     * 表达式求值栈中的一帧，对应AstArena中的一个结点
+     */
+    private abstract static class ExpFrame {
+        protected final AstArena arena;
+        protected Value result;
+
+        ExpFrame(AstArena arena) {
+            this.arena = arena;
         }
-        return res;
+
+        /**
+         * @param sub 本帧上一次请求的子表达式的值，首次调用时无意义
+         * @return 需要先求值的子表达式帧；返回null表示本帧已完成，值在result中
+         */
+        abstract ExpFrame resume(Value sub);
     }
 
-    public Value visitMulExp(MulExp mulExp) {
-        if (mulExp.getUnaryExps().size() == 1) {
-            return visitUnaryExp(mulExp.getUnaryExps().get(0));
+    private class AddExpFrame extends ExpFrame {
+        private final ArrayList<String> unaryOps = new ArrayList<>();
+        private int mul;                    // 当前MUL结点
+        private int addOp = AstArena.NONE;  // mul之前的加减运算符
+        private int unary;                  // mul中当前的运算数
+        private int mulOp = AstArena.NONE;  // unary之前的乘除运算符
+        private Value addValue;
+        private Value mulValue;
+        private boolean waiting = false;
+
+        AddExpFrame(AstArena arena, int add) {
+            super(arena);
+            mul = arena.getFirstChild(add);
+            unary = arena.getFirstChild(mul);
         }
-        Value res = null;
-        for (int i = 1; i < mulExp.getUnaryExps().size(); i++) {
-            Value value1 = i == 1 ? visitUnaryExp(mulExp.getUnaryExps().get(0)) : res;
-            Value value2 = visitUnaryExp(mulExp.getUnaryExps().get(i));
-            // 如果value1 和 value2 是Const
-            res = getBinInstr(value1, value2, Type.getOp(mulExp.getOps().get(i - 1).getContent()));
+
+        @Override
+        ExpFrame resume(Value sub) {
+            while (mul != AstArena.NONE) {
+                while (unary != AstArena.NONE) {
+                    Value value;
+                    if (waiting) {
+                        waiting = false;
+                        value = sub;
+                    } else {
+                        int node = unary;
+                        unaryOps.clear();
+                        while (arena.getKind(node) == AstArena.Kind.UNARY) {
+                            unaryOps.add(arena.getContent(node));
+                            node = arena.getFirstChild(node);
+                        }
+                        switch (arena.getKind(node)) {
+                            case CALL:
+                                waiting = true;
+                                return new CallFrame(arena, node);
+                            case PAREN:
+                                waiting = true;
+                                return new AddExpFrame(arena, arena.getFirstChild(node));
+                            case LVAL:
+                                waiting = true;
+                                return new LValFrame(arena, node, true);
+                            case NUMBER:
+                                value = Constant.get(Integer.parseInt(arena.getContent(node)));
+                                break;
+                            default:
+                                String charConst = arena.getContent(node);
+                                int ascii = Transform.str2int(charConst.substring(1, charConst.length() - 1));
+                                value = Constant.get(Integer8Ty, ascii);
+                                break;
+                        }
+                    }
+                    // 单目运算符由内向外作用
+                    for (int i = unaryOps.size() - 1; i >= 0; i--) {
+                        value = visitUnaryOp(unaryOps.get(i), value);
+                    }
+                    mulValue = mulOp == AstArena.NONE ? value
+                            : getBinInstr(mulValue, value, Type.getOp(arena.getContent(mulOp)));
+                    mulOp = arena.getNextSibling(unary);
+                    unary = mulOp == AstArena.NONE ? AstArena.NONE : arena.getNextSibling(mulOp);
+                }
+                addValue = addOp == AstArena.NONE ? mulValue
+                        : getBinInstr(addValue, mulValue, Type.getOp(arena.getContent(addOp)));
+                addOp = arena.getNextSibling(mul);
+                mul = addOp == AstArena.NONE ? AstArena.NONE : arena.getNextSibling(addOp);
+                unary = mul == AstArena.NONE ? AstArena.NONE : arena.getFirstChild(mul);
+            }
+            result = addValue;
+            return null;
         }
-        return res;
     }
 
-    public Value visitUnaryExp(UnaryExp unaryExp) {
-        if (unaryExp.isIdent()) {
-            String name = unaryExp.getIdentName();
-            Symbol symbol;
-            if ((symbol = curTable.findSym(name, "Func")) == null) {
-                errors.add(new Error("c", unaryExp.getIdent().getLineno()));
-                return null;
+    private class LValFrame extends ExpFrame {
+        private final int lVal;
+        private final boolean isOperand;
+        private Value value;
+
+        LValFrame(AstArena arena, int lVal, boolean isOperand) {
+            super(arena);
+            this.lVal = lVal;
+            this.isOperand = isOperand;
+        }
+
+        @Override
+        ExpFrame resume(Value sub) {
+            Value index = null;
+            boolean isArrayElement = arena.getFirstChild(lVal) != AstArena.NONE;
+            if (value == null) {
+                Symbol symbol;
+                if ((symbol = curTable.findSym(arena.getContent(lVal), "Var")) == null) {
+                    errors.add(new Error("c", arena.getTokenLineno(lVal)));
+                    result = new Value(new ValueType.Type(Integer32Ty), "null");
+                    return null;
+                }
+                value = symbol.getValue();
+                if (isArrayElement && !(isOperand && isConstScalar(value))) {
+                    return new AddExpFrame(arena, arena.getFirstChild(lVal));
+                }
+            } else {
+                index = sub;
             }
-            Function callFunc = (Function) symbol.getValue();
-            Call call = new Call(callFunc);
-            if (unaryExp.hasFuncRParams()) {
-                if (unaryExp.getArgc() != ((Function) symbol.getValue()).getArgc()) {
-                    errors.add(new Error("d", unaryExp.getLineno()));
-                } else {
-                    call.setFuncRParams(visitFuncRParams(symbol.getFuncFParams(), unaryExp.getFuncRParams()));
+            // 如果是左值，只能是非Const类型的，并且要的是地址
+            result = isOperand ? visitOperand(isArrayElement, value, index) : visitLeft(isArrayElement, value, index);
+            return null;
+        }
+    }
+
+    private class CallFrame extends ExpFrame {
+        private final int callNode;
+        private Function callFunc;
+        private Call call;
+        private FuncFParams ffp;
+        private ArrayList<Value> params;
+        private int arg;            // 当前实参的ADD结点
+        private int argIndex = 0;
+        private boolean argIsArray;
+
+        CallFrame(AstArena arena, int callNode) {
+            super(arena);
+            this.callNode = callNode;
+        }
+
+        @Override
+        ExpFrame resume(Value sub) {
+            if (call == null) {
+                Symbol symbol;
+                if ((symbol = curTable.findSym(arena.getContent(callNode), "Func")) == null) {
+                    errors.add(new Error("c", arena.getTokenLineno(callNode)));
+                    result = null;
+                    return null;
+                }
+                callFunc = (Function) symbol.getValue();
+                call = new Call(callFunc);
+                arg = arena.getFirstChild(callNode);
+                if (arg == AstArena.NONE) {
+                    return finish();
                 }
+                int argc = arena.getChildCount(callNode);
+                if (argc != callFunc.getArgc()) {
+                    errors.add(new Error("d", arena.getTokenLineno(callNode)));
+                    return finish();
+                }
+                ffp = symbol.getFuncFParams();
+                params = new ArrayList<>();
+                if (ffp.getArgc() != argc) {
+                    call.setFuncRParams(params);
+                    return finish();
+                }
+            } else {
+                FuncFParam fp = ffp.getParam(argIndex);
+                Value value = sub; // TODO: 类型匹配
+                if (!argIsArray && fp.getType().getContent().equals("int")) {
+                    value = zext(value);
+                } else if (!argIsArray && fp.getType().getContent().equals("char")) {
+                    value = trunc(value);
+                }
+                params.add(value);
+                argIndex++;
+                arg = arena.getNextSibling(arg);
             }
-            curBasicBlock.appendInstr(call, callFunc.isNotVoid());
-            return call;
-        } else if (unaryExp.isPrimaryExp()) {
-            return visitPrimaryExp(unaryExp.getPrimaryExp());
-        } else { //
-            if (unaryExp.getUnaryOp().equals("-")) {
-                Value value1 = new Constant("0");
-                Value value2 = visitUnaryExp(unaryExp.getUnaryExp());
-                return getBinInstr(value1, value2, Type.SUB);
-            } else if (unaryExp.getUnaryOp().equals("+")) {
-                return visitUnaryExp(unaryExp.getUnaryExp());
-            } else { // 取反操作就是与0比较是否相等
-                Value value1 = visitUnaryExp(unaryExp.getUnaryExp());
-                Value value2 = new Constant("0");
-                Compare compare = new Compare("", Compare.CondType.getOp("=="));
-                compare.addOperands(value1);
-                compare.addOperands(value2);
-                curBasicBlock.appendInstr(compare, true);
-                return compare;
+            if (arg != AstArena.NONE) {
+                FuncFParam fp = ffp.getParam(argIndex);
+                argIsArray = false;    //  是否为数组
+                String type = "";        //  类型为what, 只考虑数组情况。
+                Symbol sym;
+                if ((sym = curTable.findSym(arena.getIdentName(arg), "Var")) != null) {
+                    SymType st = sym.getType();
+                    argIsArray = st.isArray() && !arena.isArray(arg);
+                    type = st.getType().toLowerCase();
+                }
+                if (argIsArray != fp.isArray()  // array or var不匹配
+                        || argIsArray && !type.equals(fp.getType().getContent())) {    // char or int 不匹配
+                    errors.add(new Error("e", arena.getLineno(arg)));
+                    call.setFuncRParams(params);
+                    return finish();
+                }
+                return new AddExpFrame(arena, arg);
             }
+            call.setFuncRParams(params);
+            return finish();
+        }
+
+        private ExpFrame finish() {
+            curBasicBlock.appendInstr(call, callFunc.isNotVoid());
+            result = call;
+            return null;
         }
     }
 
-    public Value visitPrimaryExp(PrimaryExp primaryExp) {
-        AstNode node = primaryExp.getPrimaryExp();
-        if (node instanceof Exp) {
-            return visitAddExp(((Exp) node).getAddExp());
-        } else if (node instanceof LVal) {
-            return visitLVal((LVal) node, true);
-        } else if (node instanceof Number) {
-            return new Constant(((Number) node).getNumber());
-        } else if (node instanceof Character) {
-            return new Constant(new ValueType.Type(Integer8Ty), ((Character) node).getChar());
-        }
-        return null;
+    public Value visitUnaryOp(String op, Value value) {
+        if (op.equals("-")) {
+            return getBinInstr(Constant.get(0), value, Type.SUB);
+        } else if (op.equals("+")) {
+            return value;
+        } else { // 取反操作就是与0比较是否相等
+            Compare compare = new Compare("", Compare.CondType.getOp("=="));
+            compare.addOperands(value);
+            compare.addOperands(Constant.get(0));
+            curBasicBlock.appendInstr(compare, true);
+            return compare;
+        }
     }
 
-    public Value visitLVal(LVal lVal, boolean isOperand) {
-        String name = lVal.getIdentName();
-        Symbol symbol;
-        if ((symbol = curTable.findSym(name, "Var")) == null) {
-            errors.add(new Error("c", lVal.getIdent().getLineno()));
-            return new Value(new ValueType.Type(Integer32Ty), "null");
-        }
-        Value value = symbol.getValue();
-        // 如果是左值，只能是非Const类型的，并且要的是地址
-        if (isOperand) {
-            return visitOperand(lVal, value);
-        } else {
-            return visitLeft(lVal, value);
+    private boolean isConstScalar(Value value) {
+        if (value instanceof GlobalVariable && ((GlobalVariable) value).isConstant()) {
+            return !((GlobalVariable) value).isArray();
         }
+        return value instanceof Alloca && ((Alloca) value).isConst() && !((Alloca) value).isArray();
     }
 
     /**
-     * @param lVal  ast中的左值结点
+     * @param isArrayElement 是否为数组元素
      * @param value 左值
+     * @param index 已求值的数组下标，不是数组元素时为null
      *              只能是非Const类型的，返回类型是地址
      * @return 左值地址
      */
-    public Value visitLeft(LVal lVal, Value value) {
+    public Value visitLeft(boolean isArrayElement, Value value, Value index) {
         Value res = value;
-        if (lVal.isArrayElement()) { // 数组元素
-            Value index = visitAddExp(lVal.getExp().getAddExp());
+        if (isArrayElement) { // 数组元素
             res = getElement(value, index);
         }
         return res;
     }
 
     /**
-     * @param lVal ast语法书中的左值节点
+     * @param isArrayElement 是否为数组元素
      * @param value 操作数
+     * @param index 已求值的数组下标，不是数组元素时为null
      * @return 操作数的值
      */
-    public Value visitOperand(LVal lVal, Value value) {
+    public Value visitOperand(boolean isArrayElement, Value value, Value index) {
         Value operand = value;
         // 包含以下情况：
         // 1. 全局：常量（包括数组和数组元素），变量
@@ -1180,14 +1322,11 @@ public class Visitor {
             // 获取全局常量和常量数组元素的值
             GlobalVariable globalVar = (GlobalVariable) value;
             if (!globalVar.isArray()) { // 常量
-                return ((Constant) globalVar.getInitVal().get(0)).deepClone();
-            } else if (globalVar.isArray() && lVal.isArrayElement()) {  // 数组元素
-                Value index = visitAddExp(lVal.getExp().getAddExp());
+                return globalVar.getInitVal().get(0);
+            } else if (globalVar.isArray() && isArrayElement) {  // 数组元素
                 if (index instanceof Constant) {    // 下标是常数
-                    int bis = Integer.parseInt(index.getName());
-                    return ((Constant) globalVar.getInit(bis)).deepClone();
-                }  else {    // 下标不确定
-                    operand = getElement(value, index); // 获取地址
+                    int bis = ((Constant) index).getValue();
+                    return globalVar.getInit(bis);
                 }
             }
         }
@@ -1195,30 +1334,26 @@ public class Visitor {
             // 获取局部常量和常量数组元素的值
             Alloca alloca = (Alloca) value;
             if (!alloca.isArray()) {
-                return ((Constant) alloca.getConstInits().get(0)).deepClone();
-            } else if (alloca.isArray() && lVal.isArrayElement()) { // 数组元素
-                Value index = visitAddExp(lVal.getExp().getAddExp());
+                return alloca.getConstInits().get(0);
+            } else if (alloca.isArray() && isArrayElement) { // 数组元素
                 if (index instanceof Constant) {    // 下标确定
-                    int bis = Integer.parseInt(index.getName());
-                    return ((Constant) alloca.getInit(bis)).deepClone();
-                } else {    // 下标不确定
-                    operand = getElement(value, index);
+                    int bis = ((Constant) index).getValue();
+                    return alloca.getInit(bis);
                 }
             }
         }
         // 全局和局部数组，需要传递数组的指针
-        if (!lVal.isArrayElement() && value.getTp() instanceof ValueType.PointerType
+        if (!isArrayElement && value.getTp() instanceof ValueType.PointerType
                 && value.getTp().getInnerType() instanceof ValueType.ArrayType) {
             GetElementPtr getElementPtr = new GetElementPtr(value.getTp(), "4");
             getElementPtr.addOperands(value);
-            getElementPtr.addOperands(new Constant("0"));
-            getElementPtr.addOperands(new Constant("0"));
+            getElementPtr.addOperands(Constant.get(0));
+            getElementPtr.addOperands(Constant.get(0));
             curBasicBlock.appendInstr(getElementPtr, true);
             operand = getElementPtr;
             return operand;
         }
-        if (lVal.isArrayElement()) { // 数组元素
-            Value index = visitAddExp(lVal.getExp().getAddExp());
+        if (isArrayElement) { // 数组元素，下标不确定时计算偏移地址
             operand = getElement(value, index);
         }
         // 全局和局部变量，以及数组元素指针：直接load
@@ -1246,7 +1381,7 @@ public class Visitor {
         getElementPtr.addOperands(operand);
         if (operand.getTp().getInnerType() instanceof ValueType.ArrayType) {
             // 如果是数组指针则需要索引添加0
-            getElementPtr.addOperands(new Constant("0"));
+            getElementPtr.addOperands(Constant.get(0));
         }
         getElementPtr.addOperands(index); // TODO: 有变化 原本为bis
         curBasicBlock.appendInstr(getElementPtr, true);
@@ -1254,43 +1389,6 @@ public class Visitor {
         return operand;
     }
 
-    public ArrayList<Value> visitFuncRParams(FuncFParams ffp, FuncRParams frp) {
-        ArrayList<Value> params = new ArrayList<>();
-        if (ffp.getArgc() != frp.getArgc()) {
-            return params;
-        }
-        for (int i = 0; i < ffp.getArgc(); i++) {
-            FuncFParam fp = ffp.getParam(i);
-            Exp rp = frp.getParam(i);
-            boolean isArray = false;    //  是否为数组
-            String type = "";        //  类型为what, 只考虑数组情况。
-            String name = rp.getIdentName();    //获取符号
-            Symbol sym;
-            if ((sym = curTable.findSym(name, "Var")) != null) {
-                SymType st = sym.getType();
-                isArray = sym.getType().isArray() && !rp.isArray();
-                type = st.getType().toLowerCase();
-            }
-            if (isArray != fp.isArray()) {  // array or var不匹配
-                errors.add(new Error("e", rp.getLineno()));
-                return params;
-            } else if (isArray && fp.isArray()) {    // char or int 不匹配
-                if (!type.equals(fp.getType().getContent())) {
-                    errors.add(new Error("e", rp.getLineno()));
-                    return params;
-                }
-            }
-            Value value = visitAddExp(rp.getAddExp()); // TODO: 类型匹配
-            if (!isArray && fp.getType().getContent().equals("int")) {
-                value = zext(value);
-            } else if (!isArray && fp.getType().getContent().equals("char")) {
-                value = trunc(value);
-            }
-            params.add(value);
-        }
-        return params;
-    }
-
     public String getType(Token type) {
         if (type.getType() == TokenType.INTTK) {
             return "Int";
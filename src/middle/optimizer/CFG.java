@@ -4,8 +4,17 @@ import llvmir.Module;
 import llvmir.values.BasicBlock;
 import llvmir.values.Function;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 
+/**
+ * 支配树采用Cooper-Harvey-Kennedy算法：按逆后序给基本块编号，
+ * 沿iDom链求交直到不动点，之后在支配树上编先序区间，支配查询为O(1)
+ */
 public class CFG {
     private final Module module;
 
@@ -14,87 +23,141 @@ public class CFG {
     }
 
     public void buildCFG() {
-        buildDom();         // 计算支配关系
-        calDF();            // 计算支配边界
-        calDomDepth();      // 计算支配深度
-    }
-
-    private void buildDom() {
         for (Function function: module.getFunctions()) {
-            buildFuncDom(function);
+            buildCFG(function);
         }
     }
 
+    public void buildCFG(Function function) {
+        buildFuncDom(function);     // 计算支配树、支配深度
+        calFuncDF(function);        // 计算支配边界
+    }
+
     private void buildFuncDom(Function function) {
-        boolean changed;
-        BasicBlock first = function.getBasicBlocks().get(0);
         for (BasicBlock block: function.getBasicBlocks()) {
-            if (block.equals(first)) {
-                HashSet<BasicBlock> initDom = new HashSet<>();
-                initDom.add(block);
-                block.setDom(initDom);
-                continue;
-            }
-            HashSet<BasicBlock> initDom = new HashSet<>(function.getBasicBlocks());
-            block.setDom(initDom);
+            block.resetDom();
+            block.setNumber(-1);
+        }
+        ArrayList<BasicBlock> rpo = reversePostOrder(function.getBasicBlocks().get(0));
+        int n = rpo.size();
+        for (int i = 0; i < n; i++) {
+            rpo.get(i).setNumber(i);
         }
+        int[] idom = new int[n];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed;
         do {
             changed = false;
-            for (BasicBlock block: function.getBasicBlocks()) {
-                if (block.equals(first)) {
-                    continue;
-                }
-                HashSet<BasicBlock> dom = new HashSet<>(function.getBasicBlocks());
-                for (BasicBlock pre: block.getPrecursor()) {
-                    dom.retainAll(pre.getDom());
+            for (int i = 1; i < n; i++) {
+                int newIdom = -1;
+                for (BasicBlock pre: rpo.get(i).getPrecursor()) {
+                    int p = pre.getNumber();
+                    if (p < 0 || p >= n || rpo.get(p) != pre || idom[p] < 0) {
+                        continue;   // 不可达或尚未处理的前驱
+                    }
+                    newIdom = newIdom < 0 ? p : intersect(idom, p, newIdom);
                 }
-                dom.add(block);
-                if (!dom.equals(block.getDom())) {
+                if (idom[i] != newIdom) {
+                    idom[i] = newIdom;
                     changed = true;
-                    block.setDom(dom);
                 }
             }
         } while (changed);
+        for (int i = 1; i < n; i++) {
+            rpo.get(i).setiDom(rpo.get(idom[i]));
+        }
+        // 按基本块原有顺序登记支配树孩子
+        for (BasicBlock block: function.getBasicBlocks()) {
+            if (block.getiDom() != null) {
+                block.getiDom().addDomChild(block);
+            }
+        }
+        numberDomTree(rpo.get(0));
     }
 
-    private void calDF() {
-        for (Function function: module.getFunctions()) {
-            calFuncDF(function);
+    private int intersect(int[] idom, int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = idom[a];
+            }
+            while (b > a) {
+                b = idom[b];
+            }
         }
+        return a;
     }
 
-    private void calFuncDF(Function function) {
-        // 计算直接支配
-        for (BasicBlock block: function.getBasicBlocks()) {
-            block.setDF(new HashSet<>());
-            block.calDirectDom();
-        }
-        for (BasicBlock b: function.getBasicBlocks()) {
-            for (BasicBlock p: b.getPrecursor()) {
-                BasicBlock a = p;
-                while (!b.isStrictDomBy(a)) {
-                    if (a.getiDom() != null) {
-                        HashSet<BasicBlock> DF = a.getDF();
-                        DF.add(b);
-                        a = a.getiDom();
-                    } else {
-                        break;
-                    }
+    private ArrayList<BasicBlock> reversePostOrder(BasicBlock entry) {
+        ArrayList<BasicBlock> postOrder = new ArrayList<>();
+        HashSet<BasicBlock> visited = new LinkedHashSet<>();
+        ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+        ArrayDeque<Iterator<BasicBlock>> nexts = new ArrayDeque<>();
+        visited.add(entry);
+        blocks.push(entry);
+        nexts.push(entry.getSubsequents().iterator());
+        while (!blocks.isEmpty()) {
+            Iterator<BasicBlock> it = nexts.peek();
+            if (it.hasNext()) {
+                BasicBlock next = it.next();
+                if (visited.add(next)) {
+                    blocks.push(next);
+                    nexts.push(next.getSubsequents().iterator());
                 }
+            } else {
+                postOrder.add(blocks.pop());
+                nexts.pop();
             }
         }
+        ArrayList<BasicBlock> rpo = new ArrayList<>(postOrder.size());
+        for (int i = postOrder.size() - 1; i >= 0; i--) {
+            rpo.add(postOrder.get(i));
+        }
+        return rpo;
     }
 
-    private void calDomDepth() {
-        for (Function function: module.getFunctions()) {
-            calDomDepthForFunc(function.getBasicBlocks().get(0), 0);
+    /**
+     * 在支配树上编先序号与子树区间，同时得到支配深度
+     */
+    private void numberDomTree(BasicBlock entry) {
+        int counter = 0;
+        ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+        ArrayDeque<Iterator<BasicBlock>> children = new ArrayDeque<>();
+        ArrayDeque<Integer> pres = new ArrayDeque<>();
+        blocks.push(entry);
+        children.push(entry.getDomChild().iterator());
+        pres.push(counter++);
+        entry.setDomDepth(0);
+        while (!blocks.isEmpty()) {
+            Iterator<BasicBlock> it = children.peek();
+            if (it.hasNext()) {
+                BasicBlock child = it.next();
+                child.setDomDepth(blocks.peek().getDomDepth() + 1);
+                blocks.push(child);
+                children.push(child.getDomChild().iterator());
+                pres.push(counter++);
+            } else {
+                blocks.pop().setDomRange(pres.pop(), counter - 1);
+                children.pop();
+            }
         }
     }
 
-    private void calDomDepthForFunc(BasicBlock first, int depth) {
-        first.setDomDepth(depth);
-        for (BasicBlock next: first.getDomChild()) {
-            calDomDepthForFunc(next, depth + 1);
+    private void calFuncDF(Function function) {
+        for (BasicBlock b: function.getBasicBlocks()) {
+            if (b.getPrecursor().size() < 2 && b.getiDom() != null) {
+                continue;
+            }
+            for (BasicBlock p: b.getPrecursor()) {
+                BasicBlock a = p;
+                if (a.getNumber() < 0) {
+                    continue;   // 不可达的前驱
+                }
+                while (a != b.getiDom() && a.getiDom() != null) {
+                    a.getDF().add(b);
+                    a = a.getiDom();
+                }
+            }
         }
     }
 }
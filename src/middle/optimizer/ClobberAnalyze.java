@@ -0,0 +1,156 @@
+package middle.optimizer;
+
+import backend.mips.MipsRegister;
+import llvmir.Module;
+import llvmir.values.BasicBlock;
+import llvmir.values.Function;
+import llvmir.values.instr.Call;
+import llvmir.values.instr.Instruction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * 寄存器分配之后，沿调用图自底向上求每个函数调用后可能被改写的寄存器：
+ * 自身分到的寄存器，加上其调用的各函数改写的寄存器，递归时迭代到不动点。
+ * 调用处只需保存调用后仍活跃且被被调用函数改写的寄存器。
+ * <p>
+ * $s寄存器可以由被调用者保存：函数在序言中保存、返回前恢复它(及其调用的函数)改写的$s寄存器，
+ * 对调用者就不再改写$s。调用链上多层都有活跃值时这样更省；逐个函数尝试，按循环深度估计的全程序保存次数下降才保留
+ */
+public class ClobberAnalyze {
+    private final Module module;
+    private final HashMap<Function, HashSet<Integer>> own = new HashMap<>();
+    private final HashMap<Function, ArrayList<Call>> callSites = new HashMap<>();
+    private final HashSet<Function> preserveS = new HashSet<>();
+
+    public ClobberAnalyze(Module module) {
+        this.module = module;
+    }
+
+    public void analyze() {
+        for (Function function: module.getFunctions()) {
+            collectCallers(function);
+            own.put(function, new HashSet<>(function.getGlobalRegsMap().values()));
+            callSites.put(function, new ArrayList<>());
+        }
+        for (Function function: module.getFunctions()) {
+            for (Call call: function.getCallers()) {
+                callSites.get(call.getCallFunc()).add(call);
+            }
+        }
+        // 逐个函数尝试改为自己保存$s寄存器，全程序估计的保存次数下降才保留
+        propagate();
+        double best = totalCost();
+        for (Function function: module.getFunctions()) {
+            if (savedRegs(function, all(function)).isEmpty()) {
+                continue;
+            }
+            preserveS.add(function);
+            propagate();
+            double cost = totalCost();
+            if (cost < best) {
+                best = cost;
+            } else {
+                preserveS.remove(function);
+            }
+        }
+        propagate();
+        for (Function function: module.getFunctions()) {
+            function.setCalleeSavedRegs(preserveS.contains(function)
+                    ? savedRegs(function, all(function)) : new HashSet<>());
+            for (Call call: function.getCallers()) {
+                call.getSaveMap().keySet().retainAll(call.getCallFunc().getClobberedRegs());
+            }
+        }
+    }
+
+    /**
+     * 记录函数内调用自定义函数的指令
+     */
+    private void collectCallers(Function function) {
+        function.getCallers().clear();
+        for (BasicBlock basicBlock: function.getBasicBlocks()) {
+            for (Instruction instruction: basicBlock.getInstructions()) {
+                if (instruction instanceof Call && ((Call) instruction).getCallFunc().isDefine()) {
+                    function.addChild((Call) instruction);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 执行该函数期间会被改写的寄存器
+     */
+    private HashSet<Integer> all(Function function) {
+        HashSet<Integer> regs = new HashSet<>(own.get(function));
+        for (Call call: function.getCallers()) {
+            regs.addAll(call.getCallFunc().getClobberedRegs());
+        }
+        return regs;
+    }
+
+    private HashSet<Integer> exposed(Function function, HashSet<Integer> all) {
+        if (preserveS.contains(function)) {
+            all.removeIf(MipsRegister::isCalleeSaved);
+        }
+        return all;
+    }
+
+    private static HashSet<Integer> savedRegs(Function function, HashSet<Integer> all) {
+        HashSet<Integer> saved = new HashSet<>();
+        if (function.getName().equals("main")) {    // main不返回调用者，不必保存
+            return saved;
+        }
+        for (Integer reg: all) {
+            if (MipsRegister.isCalleeSaved(reg)) {
+                saved.add(reg);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * 从各函数自身的寄存器出发迭代到不动点
+     */
+    private void propagate() {
+        for (Function function: module.getFunctions()) {
+            function.setClobberedRegs(exposed(function, new HashSet<>(own.get(function))));
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Function function: module.getFunctions()) {
+                if (function.getClobberedRegs().addAll(exposed(function, all(function)))) {
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按循环深度加权的保存次数：各调用处保存调用后仍活跃且会被改写的寄存器，
+     * 自己保存$s的函数每次被调用都在序言和返回处保存
+     */
+    private double totalCost() {
+        double cost = 0;
+        for (Function function: module.getFunctions()) {
+            int saved = preserveS.contains(function) ? savedRegs(function, all(function)).size() : 0;
+            for (Call call: callSites.get(function)) {
+                int live = 0;
+                for (Integer reg: call.getSaveMap().keySet()) {
+                    if (function.getClobberedRegs().contains(reg)) {
+                        live++;
+                    }
+                }
+                cost += weight(call) * (live + saved);
+            }
+        }
+        return cost;
+    }
+
+    private static double weight(Call call) {
+        return Math.pow(10, call.getParent().getLoopDepth());
+    }
+}
@@ -0,0 +1,498 @@
+package middle.optimizer;
+
+import backend.mips.MipsRegister;
+import llvmir.Value;
+import llvmir.values.BasicBlock;
+import llvmir.values.Function;
+import llvmir.values.instr.Call;
+import llvmir.values.instr.GetElementPtr;
+import llvmir.values.instr.Instruction;
+import llvmir.values.instr.Phi;
+
+import java.util.*;
+
+/**
+ * 基于图着色的全局寄存器分配（迭代合并，Iterated Register Coalescing）。
+ * 由精确的活跃变量分析建冲突图，phi视为在各前驱末尾的并行复制，
+ * 把phi与其操作数保守合并(Briggs)，消除phi后的move大多成为同一寄存器间的空操作；
+ * 溢出按循环深度加权的使用次数除以度数挑选，溢出的变量放到栈上，由后端借$t8/$t9读写
+ */
+public class ColoringRegAlloc {
+    private static final int SIMPLIFY = 1;
+    private static final int FREEZE = 2;
+    private static final int SPILL = 3;
+    private static final int SELECT = 4;
+    private static final int COALESCED = 5;
+
+    private static final int MOVE_WORKLIST = 1;
+    private static final int MOVE_ACTIVE = 2;
+    private static final int MOVE_DONE = 3;   // 已合并、受限或冻结
+
+    private final List<Integer> regs = MipsRegister.allocableRegs();
+    private final int k = regs.size();
+    private ArrayList<Value> values;
+    private BitSet nodes;               // 需要寄存器的变量
+    private BitSet[] adj;
+    private int[] degree;
+    private double[] cost;
+    private int[] alias;
+    private int[] color;
+    private int[] state;
+    private ArrayList<ArrayList<Integer>> moveList;
+    private final ArrayList<int[]> moves = new ArrayList<>();   // {dst, src}
+    private final ArrayList<Double> moveWeights = new ArrayList<>();
+    private int[] moveState;
+    private final BitSet simplifyWorklist = new BitSet();
+    private final BitSet freezeWorklist = new BitSet();
+    private final BitSet spillWorklist = new BitSet();
+    private final BitSet worklistMoves = new BitSet();
+    private final ArrayDeque<Integer> selectStack = new ArrayDeque<>();
+    private final LinkedHashMap<Call, BitSet> liveAcrossCalls = new LinkedHashMap<>();
+
+    /**
+     * @param function 函数
+     * @param values 精确活跃变量分析得到的 编号 -> 变量
+     */
+    public void regAlloc(Function function, ArrayList<Value> values) {
+        init(function, values);
+        build(function);
+        makeWorklist();
+        while (!simplifyWorklist.isEmpty() || !worklistMoves.isEmpty()
+                || !freezeWorklist.isEmpty() || !spillWorklist.isEmpty()) {
+            if (!simplifyWorklist.isEmpty()) {
+                simplify();
+            } else if (!worklistMoves.isEmpty()) {
+                coalesce();
+            } else if (!freezeWorklist.isEmpty()) {
+                freeze();
+            } else {
+                selectSpill();
+            }
+        }
+        assignColors();
+        HashMap<Value, Integer> value2reg = new LinkedHashMap<>();
+        HashSet<Value> value2Stack = new LinkedHashSet<>();
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1)) {
+            if (color[n] >= 0) {
+                value2reg.put(values.get(n), color[n]);
+            } else {
+                value2Stack.add(values.get(n));
+            }
+        }
+        for (Map.Entry<Call, BitSet> entry: liveAcrossCalls.entrySet()) {
+            HashMap<Integer, Value> saveMap = new HashMap<>();
+            BitSet live = entry.getValue();
+            for (int n = live.nextSetBit(0); n >= 0; n = live.nextSetBit(n + 1)) {
+                if (color[n] >= 0) {
+                    saveMap.put(color[n], values.get(n));
+                }
+            }
+            entry.getKey().setSaveMap(saveMap);
+        }
+        function.setGlobalRegsMap(value2reg);
+        function.setValueInStack(value2Stack);
+    }
+
+    private void init(Function function, ArrayList<Value> values) {
+        this.values = values;
+        int n = values.size();
+        nodes = new BitSet(n);
+        adj = new BitSet[n];
+        degree = new int[n];
+        cost = new double[n];
+        alias = new int[n];
+        color = new int[n];
+        state = new int[n];
+        moveList = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            adj[i] = new BitSet();
+            alias[i] = i;
+            color[i] = -1;
+            moveList.add(new ArrayList<>());
+        }
+        moves.clear();
+        moveWeights.clear();
+        liveAcrossCalls.clear();
+        selectStack.clear();
+        for (Value argument: function.getFuncFParams()) {
+            nodes.set(argument.getNumber());
+        }
+        // 前4个参数经$a0-$a3传入，后端只能把它们放在寄存器中
+        for (int i = 0; i < Math.min(4, function.getArgc()); i++) {
+            cost[function.getFuncFParams().get(i).getNumber()] = Double.POSITIVE_INFINITY;
+        }
+        for (BasicBlock block: function.getBasicBlocks()) {
+            for (Instruction instr: block.getInstructions()) {
+                Value def = instr.def();
+                if (def != null && LiveAnalyze.isVariable(def)) {
+                    nodes.set(def.getNumber());
+                }
+            }
+        }
+    }
+
+    private int node(Value value) {
+        if (!LiveAnalyze.isVariable(value)) {
+            return -1;
+        }
+        int number = value.getNumber();
+        if (number >= 0 && number < values.size() && values.get(number) == value && nodes.get(number)) {
+            return number;
+        }
+        return -1;
+    }
+
+    private void addEdge(int u, int v) {
+        if (u != v && !adj[u].get(v)) {
+            adj[u].set(v);
+            adj[v].set(u);
+            degree[u]++;
+            degree[v]++;
+        }
+    }
+
+    /**
+     * 逐块自底向上扫描建冲突图；后端翻译getelementptr时先写目的寄存器再读偏移，其定义与操作数也视为冲突
+     */
+    private void build(Function function) {
+        for (BasicBlock block: function.getBasicBlocks()) {
+            double weight = Math.pow(10, block.getLoopDepth());
+            BitSet live = (BitSet) block.getOuts().clone();
+            live.and(nodes);
+            ArrayList<Integer> phis = new ArrayList<>();
+            for (Instruction instr = block.getInstructions().getLast(); instr != null; instr = instr.getPrev()) {
+                if (instr instanceof Phi) {
+                    phis.add(instr.getNumber());
+                    continue;
+                }
+                int d = instr.def() == null ? -1 : node(instr.def());
+                if (d >= 0) {
+                    live.clear(d);
+                }
+                if (instr instanceof Call && ((Call) instr).getCallFunc().isDefine()) {
+                    liveAcrossCalls.put((Call) instr, (BitSet) live.clone());
+                }
+                if (d >= 0) {
+                    for (int l = live.nextSetBit(0); l >= 0; l = live.nextSetBit(l + 1)) {
+                        addEdge(d, l);
+                    }
+                    cost[d] += weight;
+                }
+                for (Value operand: LiveAnalyze.preciseUse(instr)) {
+                    int u = node(operand);
+                    if (u >= 0) {
+                        if (d >= 0 && instr instanceof GetElementPtr) {
+                            addEdge(d, u);
+                        }
+                        live.set(u);
+                        cost[u] += weight;
+                    }
+                }
+            }
+            // phi在块入口同时定义
+            for (int p: phis) {
+                for (int l = live.nextSetBit(0); l >= 0; l = live.nextSetBit(l + 1)) {
+                    addEdge(p, l);
+                }
+                for (int q: phis) {
+                    addEdge(p, q);
+                }
+                cost[p] += weight;
+            }
+            buildPhiCopies(block);
+        }
+        // 参数在函数入口同时定义
+        BitSet entryLive = (BitSet) function.getBasicBlocks().get(0).getIns().clone();
+        entryLive.and(nodes);
+        for (Value argument: function.getFuncFParams()) {
+            entryLive.set(argument.getNumber());
+        }
+        for (Value argument: function.getFuncFParams()) {
+            for (int l = entryLive.nextSetBit(0); l >= 0; l = entryLive.nextSetBit(l + 1)) {
+                addEdge(argument.getNumber(), l);
+            }
+        }
+    }
+
+    /**
+     * 每条入边上的phi复制是并行的，消除phi时按变量顺序化：
+     * 写某个phi时，其余复制的源尚未读出，两者不能共用寄存器；phi与自己的源之间记一条move
+     */
+    private void buildPhiCopies(BasicBlock block) {
+        LinkedHashMap<BasicBlock, ArrayList<int[]>> copies = new LinkedHashMap<>();
+        for (Instruction instr: block.getInstructions()) {
+            if (!(instr instanceof Phi)) {
+                break;
+            }
+            Phi phi = (Phi) instr;
+            for (int i = 0; i < phi.getOperands().size(); i++) {
+                BasicBlock pre = phi.getPreBlocks().get(i);
+                copies.computeIfAbsent(pre, b -> new ArrayList<>())
+                        .add(new int[]{phi.getNumber(), node(phi.getOperands().get(i))});
+            }
+        }
+        for (Map.Entry<BasicBlock, ArrayList<int[]>> entry: copies.entrySet()) {
+            double weight = Math.pow(10, entry.getKey().getLoopDepth());
+            for (int[] copy: entry.getValue()) {
+                for (int[] other: entry.getValue()) {
+                    if (other[1] >= 0 && other[1] != copy[1]) {
+                        addEdge(copy[0], other[1]);
+                    }
+                }
+                if (copy[1] >= 0 && copy[1] != copy[0]) {
+                    moves.add(copy);
+                    moveWeights.add(weight);
+                }
+            }
+        }
+    }
+
+    private void makeWorklist() {
+        // 循环内的move优先合并
+        Integer[] order = new Integer[moves.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(moveWeights.get(b), moveWeights.get(a)));
+        ArrayList<int[]> sorted = new ArrayList<>(moves.size());
+        for (Integer i: order) {
+            sorted.add(moves.get(i));
+        }
+        moves.clear();
+        moves.addAll(sorted);
+        moveState = new int[moves.size()];
+        for (int m = 0; m < moves.size(); m++) {
+            moveList.get(moves.get(m)[0]).add(m);
+            moveList.get(moves.get(m)[1]).add(m);
+            moveState[m] = MOVE_WORKLIST;
+            worklistMoves.set(m);
+        }
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1)) {
+            if (degree[n] >= k) {
+                setState(n, SPILL);
+            } else if (moveRelated(n)) {
+                setState(n, FREEZE);
+            } else {
+                setState(n, SIMPLIFY);
+            }
+        }
+    }
+
+    private void setState(int n, int newState) {
+        simplifyWorklist.clear(n);
+        freezeWorklist.clear(n);
+        spillWorklist.clear(n);
+        state[n] = newState;
+        if (newState == SIMPLIFY) {
+            simplifyWorklist.set(n);
+        } else if (newState == FREEZE) {
+            freezeWorklist.set(n);
+        } else if (newState == SPILL) {
+            spillWorklist.set(n);
+        }
+    }
+
+    private ArrayList<Integer> adjacent(int n) {
+        ArrayList<Integer> adjacent = new ArrayList<>();
+        for (int t = adj[n].nextSetBit(0); t >= 0; t = adj[n].nextSetBit(t + 1)) {
+            if (state[t] != SELECT && state[t] != COALESCED) {
+                adjacent.add(t);
+            }
+        }
+        return adjacent;
+    }
+
+    private ArrayList<Integer> nodeMoves(int n) {
+        ArrayList<Integer> nodeMoves = new ArrayList<>();
+        for (int m: moveList.get(n)) {
+            if (moveState[m] == MOVE_WORKLIST || moveState[m] == MOVE_ACTIVE) {
+                nodeMoves.add(m);
+            }
+        }
+        return nodeMoves;
+    }
+
+    private boolean moveRelated(int n) {
+        for (int m: moveList.get(n)) {
+            if (moveState[m] == MOVE_WORKLIST || moveState[m] == MOVE_ACTIVE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void simplify() {
+        int n = simplifyWorklist.nextSetBit(0);
+        setState(n, SELECT);
+        selectStack.push(n);
+        for (int t: adjacent(n)) {
+            decrementDegree(t);
+        }
+    }
+
+    private void decrementDegree(int n) {
+        degree[n]--;
+        if (degree[n] == k - 1) {
+            enableMoves(n);
+            for (int t: adjacent(n)) {
+                enableMoves(t);
+            }
+            setState(n, moveRelated(n) ? FREEZE : SIMPLIFY);
+        }
+    }
+
+    private void enableMoves(int n) {
+        for (int m: nodeMoves(n)) {
+            if (moveState[m] == MOVE_ACTIVE) {
+                moveState[m] = MOVE_WORKLIST;
+                worklistMoves.set(m);
+            }
+        }
+    }
+
+    private int getAlias(int n) {
+        while (state[n] == COALESCED) {
+            n = alias[n];
+        }
+        return n;
+    }
+
+    private void coalesce() {
+        int m = worklistMoves.nextSetBit(0);
+        worklistMoves.clear(m);
+        int u = getAlias(moves.get(m)[0]);
+        int v = getAlias(moves.get(m)[1]);
+        if (u == v) {
+            moveState[m] = MOVE_DONE;
+            addWorklist(u);
+        } else if (adj[u].get(v)) {
+            moveState[m] = MOVE_DONE;
+            addWorklist(u);
+            addWorklist(v);
+        } else if (conservative(u, v)) {
+            moveState[m] = MOVE_DONE;
+            combine(u, v);
+            addWorklist(u);
+        } else {
+            moveState[m] = MOVE_ACTIVE;
+        }
+    }
+
+    private void addWorklist(int n) {
+        if (state[n] == FREEZE && !moveRelated(n) && degree[n] < k) {
+            setState(n, SIMPLIFY);
+        }
+    }
+
+    /**
+     * Briggs：合并后高度数的邻居少于k个
+     */
+    private boolean conservative(int u, int v) {
+        BitSet neighbours = new BitSet();
+        for (int t: adjacent(u)) {
+            neighbours.set(t);
+        }
+        for (int t: adjacent(v)) {
+            neighbours.set(t);
+        }
+        int high = 0;
+        for (int t = neighbours.nextSetBit(0); t >= 0; t = neighbours.nextSetBit(t + 1)) {
+            if (degree[t] >= k) {
+                high++;
+            }
+        }
+        return high < k;
+    }
+
+    private void combine(int u, int v) {
+        setState(v, COALESCED);
+        alias[v] = u;
+        cost[u] += cost[v];
+        moveList.get(u).addAll(moveList.get(v));
+        enableMoves(v);
+        for (int t: adjacent(v)) {
+            addEdge(t, u);
+            decrementDegree(t);
+        }
+        if (degree[u] >= k && state[u] == FREEZE) {
+            setState(u, SPILL);
+        }
+    }
+
+    private void freeze() {
+        int u = freezeWorklist.nextSetBit(0);
+        setState(u, SIMPLIFY);
+        freezeMoves(u);
+    }
+
+    private void freezeMoves(int u) {
+        for (int m: nodeMoves(u)) {
+            int x = moves.get(m)[0];
+            int y = moves.get(m)[1];
+            int v = getAlias(y) == getAlias(u) ? getAlias(x) : getAlias(y);
+            worklistMoves.clear(m);
+            moveState[m] = MOVE_DONE;
+            if (state[v] == FREEZE && !moveRelated(v) && degree[v] < k) {
+                setState(v, SIMPLIFY);
+            }
+        }
+    }
+
+    private void selectSpill() {
+        int spill = -1;
+        for (int n = spillWorklist.nextSetBit(0); n >= 0; n = spillWorklist.nextSetBit(n + 1)) {
+            if (spill < 0 || cost[n] / degree[n] < cost[spill] / degree[spill]) {
+                spill = n;
+            }
+        }
+        setState(spill, SIMPLIFY);
+        freezeMoves(spill);
+    }
+
+    private void assignColors() {
+        // 跨调用活跃的变量优先放在$s寄存器，只在序言和返回处保存一次；其余优先用$t寄存器
+        BitSet acrossCall = new BitSet();
+        for (BitSet live: liveAcrossCalls.values()) {
+            for (int n = live.nextSetBit(0); n >= 0; n = live.nextSetBit(n + 1)) {
+                acrossCall.set(getAlias(n));
+            }
+        }
+        while (!selectStack.isEmpty()) {
+            int n = selectStack.pop();
+            BitSet used = new BitSet();
+            for (int t = adj[n].nextSetBit(0); t >= 0; t = adj[n].nextSetBit(t + 1)) {
+                int w = getAlias(t);
+                if (color[w] >= 0) {
+                    used.set(regs.indexOf(color[w]));
+                }
+            }
+            int free = preferredFree(used, acrossCall.get(n));
+            if (free >= 0) {
+                color[n] = regs.get(free);
+            }
+        }
+        for (int n = nodes.nextSetBit(0); n >= 0; n = nodes.nextSetBit(n + 1)) {
+            if (state[n] == COALESCED) {
+                color[n] = color[getAlias(n)];
+            }
+        }
+    }
+
+    /**
+     * @return 按偏好挑选的空闲寄存器下标，没有时为-1
+     */
+    private int preferredFree(BitSet used, boolean calleeSaved) {
+        int fallback = -1;
+        for (int i = 0; i < k; i++) {
+            if (!used.get(i)) {
+                if (MipsRegister.isCalleeSaved(regs.get(i)) == calleeSaved) {
+                    return i;
+                }
+                if (fallback < 0) {
+                    fallback = i;
+                }
+            }
+        }
+        return fallback;
+    }
+}
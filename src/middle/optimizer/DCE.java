@@ -1,11 +1,9 @@
 package middle.optimizer;
 
 import llvmir.Module;
-import llvmir.User;
 import llvmir.Value;
 import llvmir.values.BasicBlock;
 import llvmir.values.Function;
-import llvmir.values.GlobalVariable;
 import llvmir.values.instr.*;
 
 import java.util.*;
@@ -16,7 +14,7 @@ public class DCE {
 
     public DCE(Module module) {
         this.module = module;
-        useful = new HashSet<>();
+        useful = new LinkedHashSet<>();
     }
 
     public void dce() {
@@ -25,6 +23,10 @@ public class DCE {
         // functionInline();
     }
 
+    public void dce(Function function) {
+        delDeadCode(function);
+    }
+
     private void analysisDeadCode() {
         for (Function function: module.getFunctions()) {
             for (BasicBlock basicBlock: function.getBasicBlocks()) {
@@ -44,55 +46,254 @@ public class DCE {
         }
     }
 
+    /**
+     * 激进死代码删除：从有副作用的指令出发标记活跃指令，活跃块使其控制依赖的跳转活跃，
+     * 未被标记的条件跳转改为直接跳到最近的活跃后必经块，随后删除死指令和不可达块
+     */
     public void delDeadCode() {
-        initUseful();
-        ArrayList<Value> useSet = new ArrayList<>(useful);
-        while (!useSet.isEmpty()) {
-            Value use = useSet.get(0);
-            useSet.remove(use);
-            if (use instanceof User) {
-                for (Value operand : ((User) use).getOperands()) {
-                    if (operand instanceof Instruction && !isUseful((Instruction) operand)
-                            && !useful.contains(operand)) {
-                        useSet.add(operand);
-                        useful.add((Instruction) operand);
-                    } else if (operand instanceof GlobalVariable) {
-                        useSet.add(operand);
+        for (Function function: module.getFunctions()) {
+            delDeadCode(function);
+        }
+    }
+
+    public void delDeadCode(Function function) {
+        useful.clear();
+        ArrayList<BasicBlock> blocks = function.getBasicBlocks();
+        int n = blocks.size();
+        for (int i = 0; i < n; i++) {
+            blocks.get(i).setNumber(i);
+        }
+        int[] ipdom = buildPostDom(blocks);
+        boolean[] liveBlock = new boolean[n];
+        ArrayList<ArrayList<BasicBlock>> controllers = null;
+        ArrayDeque<Instruction> worklist = new ArrayDeque<>();
+        if (ipdom == null) {
+            // 存在到不了出口的块（死循环），保守地保留所有跳转
+            for (BasicBlock block: blocks) {
+                markUseful(block.getInstructions().getLast(), worklist);
+            }
+        } else {
+            controllers = controlDependence(blocks, ipdom);
+        }
+        for (BasicBlock block: blocks) {
+            for (Instruction instruction: block.getInstructions()) {
+                if (isUseful(instruction) && !(instruction instanceof Branch)) {
+                    markUseful(instruction, worklist);
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            Instruction instr = worklist.poll();
+            // 常量表达式形式的getelementptr不属于任何基本块
+            int index = instr.getParent() == null ? -1 : instr.getParent().getNumber();
+            if (index >= 0 && !liveBlock[index]) {
+                liveBlock[index] = true;
+                if (controllers != null) {
+                    for (BasicBlock controller: controllers.get(index)) {
+                        markUseful(controller.getInstructions().getLast(), worklist);
                     }
                 }
             }
+            for (Value operand: instr.getOperands()) {
+                if (operand instanceof Instruction) {
+                    markUseful((Instruction) operand, worklist);
+                }
+            }
+            if (instr instanceof Phi) {
+                for (BasicBlock pre: ((Phi) instr).getPreBlocks()) {
+                    markUseful(pre.getInstructions().getLast(), worklist);
+                }
+            }
         }
-        for (Function function: module.getFunctions()) {
-            for (BasicBlock basicBlock: function.getBasicBlocks()) {
-                Iterator<Instruction> iterator = basicBlock.getInstructions().iterator();
-                while (iterator.hasNext()) {
-                    Instruction instruction = iterator.next();
-                    if (useful.contains(instruction)) {
-                        continue;
+        if (ipdom != null) {
+            for (BasicBlock block: blocks) {
+                Instruction terminator = block.getInstructions().getLast();
+                if (!useful.contains(terminator) && terminator.getOperands().size() == 3) {
+                    int target = ipdom[block.getNumber()];
+                    while (target < n && !liveBlock[target]) {
+                        target = ipdom[target];
                     }
-                    iterator.remove();
-                    for (Value operand: instruction.use()) {
-                        if (operand instanceof Instruction) {
-                            Instruction o = (Instruction) operand;
-                            o.removeUser(instruction);
-                        }
+                    if (target < n) {
+                        redirect(block, (Branch) terminator, blocks.get(target));
                     }
                 }
             }
         }
+        for (BasicBlock basicBlock: blocks) {
+            Iterator<Instruction> iterator = basicBlock.getInstructions().iterator();
+            while (iterator.hasNext()) {
+                Instruction instruction = iterator.next();
+                if (useful.contains(instruction) || instruction instanceof Branch) {
+                    continue;
+                }
+                iterator.remove();
+                instruction.dropOperands();
+            }
+        }
+        removeUnreachable(function);
     }
 
-    private void initUseful() {
-        useful.clear();
-        for (Function function: module.getFunctions()) {
-            for (BasicBlock basicBlock: function.getBasicBlocks()) {
-                for (Instruction instruction: basicBlock.getInstructions()) {
-                    if (isUseful(instruction)) {
-                        useful.add(instruction);
+    private void markUseful(Instruction instruction, ArrayDeque<Instruction> worklist) {
+        if (useful.add(instruction)) {
+            worklist.add(instruction);
+        }
+    }
+
+    /**
+     * 在反向CFG上用Cooper-Harvey-Kennedy算法求直接后必经块，下标n为虚拟出口
+     * @return 各块直接后必经块的下标，有块到不了出口时返回null
+     */
+    private int[] buildPostDom(ArrayList<BasicBlock> blocks) {
+        int n = blocks.size();
+        ArrayList<Integer> exits = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (blocks.get(i).getInstructions().getLast() instanceof Return) {
+                exits.add(i);
+            }
+        }
+        // 反向图上的逆后序
+        int[] order = new int[n + 1];
+        int[] rank = new int[n + 1];
+        Arrays.fill(rank, -1);
+        int count = 0;
+        ArrayDeque<Integer> nodes = new ArrayDeque<>();
+        ArrayDeque<Iterator<Integer>> nexts = new ArrayDeque<>();
+        boolean[] visited = new boolean[n + 1];
+        visited[n] = true;
+        nodes.push(n);
+        nexts.push(exits.iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<Integer> it = nexts.peek();
+            if (it.hasNext()) {
+                int next = it.next();
+                if (!visited[next]) {
+                    visited[next] = true;
+                    nodes.push(next);
+                    nexts.push(reversedSuccessors(blocks, next).iterator());
+                }
+            } else {
+                order[count++] = nodes.pop();
+                nexts.pop();
+            }
+        }
+        if (count != n + 1) {
+            return null;
+        }
+        for (int i = 0; i <= n; i++) {
+            rank[order[i]] = n - i;    // n号虚拟出口排在最前
+        }
+        int[] ipdom = new int[n + 1];
+        Arrays.fill(ipdom, -1);
+        ipdom[n] = n;
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = n - 1; i >= 0; i--) {
+                int b = order[i];
+                int newIdom = -1;
+                ArrayList<Integer> succs = new ArrayList<>();
+                for (BasicBlock next: blocks.get(b).getSubsequents()) {
+                    succs.add(next.getNumber());
+                }
+                if (blocks.get(b).getInstructions().getLast() instanceof Return) {
+                    succs.add(n);
+                }
+                for (int s: succs) {
+                    if (ipdom[s] < 0) {
+                        continue;
                     }
+                    newIdom = newIdom < 0 ? s : intersect(ipdom, rank, s, newIdom);
+                }
+                if (ipdom[b] != newIdom) {
+                    ipdom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        } while (changed);
+        return ipdom;
+    }
+
+    private ArrayList<Integer> reversedSuccessors(ArrayList<BasicBlock> blocks, int index) {
+        ArrayList<Integer> pres = new ArrayList<>();
+        for (BasicBlock pre: blocks.get(index).getPrecursor()) {
+            int number = pre.getNumber();
+            if (number >= 0 && number < blocks.size() && blocks.get(number) == pre) {
+                pres.add(number);
+            }
+        }
+        return pres;
+    }
+
+    private int intersect(int[] ipdom, int[] rank, int a, int b) {
+        while (a != b) {
+            while (rank[a] > rank[b]) {
+                a = ipdom[a];
+            }
+            while (rank[b] > rank[a]) {
+                b = ipdom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 控制依赖：边a->s上，从s沿后必经树走到ipdom(a)之前经过的块都控制依赖于a
+     */
+    private ArrayList<ArrayList<BasicBlock>> controlDependence(ArrayList<BasicBlock> blocks, int[] ipdom) {
+        int n = blocks.size();
+        ArrayList<ArrayList<BasicBlock>> controllers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            controllers.add(new ArrayList<>());
+        }
+        for (BasicBlock a: blocks) {
+            if (a.getSubsequents().size() < 2) {
+                continue;
+            }
+            int stop = ipdom[a.getNumber()];
+            for (BasicBlock s: a.getSubsequents()) {
+                int runner = s.getNumber();
+                while (runner != stop && runner < n) {
+                    controllers.get(runner).add(a);
+                    runner = ipdom[runner];
                 }
             }
         }
+        return controllers;
+    }
+
+    /**
+     * 将死的条件跳转改为直接跳转到target
+     */
+    private void redirect(BasicBlock block, Branch branch, BasicBlock target) {
+        for (Value operand: new ArrayList<>(branch.getOperands())) {
+            branch.removeOperands(operand);
+        }
+        for (BasicBlock next: block.getSubsequents()) {
+            next.removePreBlock(block);
+        }
+        block.getSubsequents().clear();
+        branch.addOperands(target);
+        target.addPreBlock(block);
+        useful.add(branch);
+    }
+
+    private void removeUnreachable(Function function) {
+        HashSet<BasicBlock> reached = new LinkedHashSet<>();
+        ArrayDeque<BasicBlock> stack = new ArrayDeque<>();
+        stack.push(function.getBasicBlocks().get(0));
+        reached.add(function.getBasicBlocks().get(0));
+        while (!stack.isEmpty()) {
+            for (BasicBlock next: stack.pop().getSubsequents()) {
+                if (reached.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        for (BasicBlock block: new ArrayList<>(function.getBasicBlocks())) {
+            if (!reached.contains(block)) {
+                function.removeBasicBlock(block);
+            }
+        }
     }
 
     private boolean isUseful(Instruction instruction) {
@@ -10,12 +10,14 @@ import llvmir.values.instr.*;
 import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 
 public class GCM {
     private Module module;
-    private final HashSet<Instruction> pinned = new HashSet<>();
-    private final HashMap<Instruction, BasicBlock> earlyMap = new HashMap<>();
-    private final HashMap<Instruction, BasicBlock> lateMap = new HashMap<>();
+    private final HashSet<Instruction> pinned = new LinkedHashSet<>();
+    private final HashMap<Instruction, BasicBlock> earlyMap = new LinkedHashMap<>();
+    private final HashMap<Instruction, BasicBlock> lateMap = new LinkedHashMap<>();
 
     public GCM(Module module) {
         this.module = module;
@@ -23,18 +25,18 @@ public class GCM {
 
     public void gcm() {
         for (Function function: module.getFunctions()) {
-            gcmForFunc(function);
+            gcm(function);
         }
     }
 
-    private void gcmForFunc(Function function) {
+    public void gcm(Function function) {
         for (BasicBlock block: function.getBasicBlocks()) {
             if (block instanceof BasicBlock.ForBlock) {
                 ((BasicBlock.ForBlock) block).calLoopDepth();
             }
         }
         getPinned(function);
-        HashSet<Instruction> analyzed = new HashSet<>(pinned);
+        HashSet<Instruction> analyzed = new LinkedHashSet<>(pinned);
         earlyMap.clear();
         for (Instruction  instruction: pinned) {
             earlyMap.put(instruction, instruction.getParent());
@@ -54,15 +56,17 @@ public class GCM {
                 }
             }
         }
-        analyzed = new HashSet<>(pinned);
+        analyzed = new LinkedHashSet<>(pinned);
         lateMap.clear();
         for (Instruction  instruction: pinned) {
             lateMap.put(instruction, instruction.getParent());
         }
         for (int i = function.getBasicBlocks().size() - 1; i >= 0; i--) {
             BasicBlock block = function.getBasicBlocks().get(i);
-            for (int j = block.getInstructions().size() - 1; j >= 0; j--) {
-                Instruction instruction = block.getInstructions().get(j);
+            Instruction prev;
+            for (Instruction instruction = block.getInstructions().isEmpty() ? null
+                    : block.getInstructions().getLast(); instruction != null; instruction = prev) {
+                prev = instruction.getPrev();   // instruction可能被移到别的块
                 if (!analyzed.contains(instruction)) {
                     scheduleLate(instruction, analyzed);
                 } else if (pinned.contains(instruction)) {
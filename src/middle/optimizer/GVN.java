@@ -2,49 +2,77 @@ package middle.optimizer;
 
 import llvmir.Module;
 import llvmir.Value;
-import llvmir.ValueType;
 import llvmir.values.BasicBlock;
 import llvmir.values.Constant;
 import llvmir.values.Function;
+import llvmir.values.GlobalVariable;
 import llvmir.values.instr.*;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
 
 import static llvmir.ValueType.DataType.Integer1Ty;
 
 public class GVN {
+    private static final long NONE = -1L;
     private Module module;
-    private HashMap<String, Instruction> gvnHashMap = new HashMap<>();
+    private ValueTable table;
     private Constant constant;
+    // genKey的结果，避免每条指令分配一个键对象
+    private long keyOp;
+    private long keyA;
+    private long keyB;
+    private long keyC;
 
     public GVN(Module module) {
         this.module = module;
     }
 
     public void gvn() {
-        module.setVirtualName();
+        numberGlobals();
         for (Function function: module.getFunctions()) {
-            gvnForBlock(function.getBasicBlocks().get(0));
+            gvn(function);
         }
     }
 
+    /**
+     * 全局变量在各函数间共享，须在对各函数做GVN之前统一编号
+     */
+    public void numberGlobals() {
+        int number = 0;
+        for (GlobalVariable globalVariable: module.getGlobalValues()) {
+            globalVariable.setNumber(number++);
+        }
+    }
+
+    public void gvn(Function function) {
+        int number = module.getGlobalValues().size();
+        int count = 0;
+        for (Value argument: function.getFuncFParams()) {
+            argument.setNumber(number + count++);
+        }
+        for (BasicBlock basicBlock: function.getBasicBlocks()) {
+            for (Instruction instruction: basicBlock.getInstructions()) {
+                instruction.setNumber(number + count++);
+            }
+        }
+        table = new ValueTable(count);
+        gvnForBlock(function.getBasicBlocks().get(0));
+        table = null;
+    }
+
     public void gvnForBlock(BasicBlock block) {
-        LinkedList<Instruction> instructions = new LinkedList<>(block.getInstructions());
-        HashSet<Instruction> hashSet = new HashSet<>();
-        for (Instruction instr: instructions) {
-            String hash = genHash(instr);
-            if (!hash.isEmpty()) {
+        int mark = table.mark();
+        for (Instruction instr: block.getInstructions()) {
+            if (genKey(instr)) {
+                Instruction same;
                 if (replaceWithConst(instr)) {
                     instr.replaceAllUses(constant);
                     instr.remove();
-                } else if (gvnHashMap.containsKey(hash)) {
-                    instr.replaceAllUses(gvnHashMap.get(hash));
+                } else if ((same = table.get(keyOp, keyA, keyB, keyC)) != null) {
+                    instr.replaceAllUses(same);
                     instr.remove();
                 } else {
-                    gvnHashMap.put(hash, instr);
-                    hashSet.add(instr);
+                    table.put(keyOp, keyA, keyB, keyC, instr);
                 }
             }
             if (instr instanceof Phi) {
@@ -54,9 +82,7 @@ public class GVN {
         for (BasicBlock basicBlock: block.getDomChild()) {
             gvnForBlock(basicBlock);
         }
-        for (Instruction instruction: hashSet) {
-            gvnHashMap.remove(genHash(instruction));
-        }
+        table.rollback(mark);
     }
 
     public boolean replaceWithConst(Instruction instruction) {
@@ -83,92 +109,148 @@ public class GVN {
     public Constant calConst(Constant value1, Constant value2, Instruction.Type type) {
         switch (type) {
             case ADD:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        + Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() + value2.getValue());
             case SUB:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        - Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() - value2.getValue());
             case MUL:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        * Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() * value2.getValue());
             case SDIV:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        / Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() / value2.getValue());
             case SREM:
-                return new Constant(Integer.toString(Integer.parseInt(value1.getName())
-                        % Integer.parseInt(value2.getName())));
+                return Constant.get(value1.getValue() % value2.getValue());
             default:
                 return null;
         }
     }
 
     public Constant cmpConst(Constant value1, Constant value2, Compare.CondType type) {
-        ValueType.Type valueType = new ValueType.Type(Integer1Ty);
         switch (type) {
             case EQ:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        == Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() == value2.getValue() ? 1 : 0);
             case NE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        != Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() != value2.getValue() ? 1 : 0);
             case SGE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        >= Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() >= value2.getValue() ? 1 : 0);
             case SGT:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        > Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() > value2.getValue() ? 1 : 0);
             case SLE:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        <= Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() <= value2.getValue() ? 1 : 0);
             case SLT:
-                return new Constant(valueType, Integer.parseInt(value1.getName())
-                        < Integer.parseInt(value2.getName()) ? "1" : "0");
+                return Constant.get(Integer1Ty, value1.getValue() < value2.getValue() ? 1 : 0);
             default:
                 return null;
         }
     }
 
-    private String genHash(Instruction instruction) {
+    /**
+     * 键为(操作码, 各操作数的值编号)，常量按值编号，可交换的运算按编号排序操作数
+     * @return 该指令是否参与值编号
+     */
+    private boolean genKey(Instruction instruction) {
         if (instruction instanceof BinaryOperator) {
-            BinaryOperator binaryOperator = (BinaryOperator) instruction;
-            Value operand1 = binaryOperator.getOperands().get(0);
-            Value operand2 = binaryOperator.getOperands().get(1);
-            if (binaryOperator.getIrType().equals(Instruction.Type.ADD)
-                    || binaryOperator.getIrType().equals(Instruction.Type.MUL)) {
-                if (operand1.getFullName().compareTo(operand2.getFullName()) > 0) {
-                    return hash(binaryOperator.getIrType().toString(), operand1, operand2);
-                } else {
-                    return hash(binaryOperator.getIrType().toString(), operand2, operand1);
-                }
-            } else {
-                return hash(binaryOperator.getIrType().toString(), operand1, operand2);
-            }
+            Instruction.Type type = instruction.getIrType();
+            keyOp = type.ordinal();
+            setOperandKeys(instruction, type == Instruction.Type.ADD || type == Instruction.Type.MUL);
+            return true;
         } else if (instruction instanceof Compare) {
-            Compare compare = (Compare) instruction;
-            Value operand1 = compare.getOperands().get(0);
-            Value operand2 = compare.getOperands().get(1);
-            if (compare.getCondType().equals(Compare.CondType.EQ)
-                    || compare.getCondType().equals(Compare.CondType.NE)) {
-                if (operand1.getFullName().compareTo(operand2.getFullName()) > 0) {
-                    return hash(compare.getCondType().toString(), operand1, operand2);
-                } else {
-                    return hash(compare.getCondType().toString(), operand2, operand1);
+            Compare.CondType type = ((Compare) instruction).getCondType();
+            keyOp = Instruction.Type.values().length + type.ordinal();
+            setOperandKeys(instruction, type == Compare.CondType.EQ || type == Compare.CondType.NE);
+            return true;
+        } else if (instruction instanceof GetElementPtr) {
+            keyOp = Instruction.Type.GETPTR.ordinal();
+            setOperandKeys(instruction, false);
+            return true;
+        }
+        return false;
+    }
+
+    private void setOperandKeys(Instruction instruction, boolean commutative) {
+        ArrayList<Value> operands = instruction.getOperands();
+        keyA = valueNumber(operands.get(0));
+        keyB = valueNumber(operands.get(1));
+        keyC = operands.size() > 2 ? valueNumber(operands.get(2)) : NONE;
+        if (commutative && keyA > keyB) {
+            long temp = keyA;
+            keyA = keyB;
+            keyB = temp;
+        }
+    }
+
+    private static long valueNumber(Value value) {
+        if (value instanceof Constant) {
+            return (1L << 32) | (((Constant) value).getValue() & 0xFFFFFFFFL);
+        }
+        return value.getNumber();
+    }
+
+    /**
+     * 开放定址的值编号表，键为4个long。
+     * 按支配树先序插入、回溯时按插入的逆序整段撤销，线性探测下直接清空槽位即可，无需墓碑；
+     * 容量按函数指令数一次分配，不扩容
+     */
+    private static class ValueTable {
+        private final long[] keys;
+        private final Instruction[] values;
+        private final int[] undo;
+        private int undoTop = 0;
+        private final int mask;
+
+        ValueTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 + 1) << 1;
+            keys = new long[capacity * 4];
+            values = new Instruction[capacity];
+            undo = new int[expected + 1];
+            mask = capacity - 1;
+        }
+
+        private int slotOf(long op, long a, long b, long c) {
+            long h = op;
+            h = h * 0x9E3779B97F4A7C15L + a;
+            h = h * 0x9E3779B97F4A7C15L + b;
+            h = h * 0x9E3779B97F4A7C15L + c;
+            h ^= h >>> 29;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private boolean matches(int slot, long op, long a, long b, long c) {
+            int base = slot * 4;
+            return keys[base] == op && keys[base + 1] == a && keys[base + 2] == b && keys[base + 3] == c;
+        }
+
+        Instruction get(long op, long a, long b, long c) {
+            int slot = slotOf(op, a, b, c);
+            while (values[slot] != null) {
+                if (matches(slot, op, a, b, c)) {
+                    return values[slot];
                 }
-            } else {
-                return hash(compare.getCondType().toString(), operand1, operand2);
+                slot = (slot + 1) & mask;
             }
-        } else if (instruction instanceof GetElementPtr) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(Instruction.Type.GETPTR).append(" ");
-            for (Value value: instruction.getOperands()) {
-                sb.append(value.getFullName()).append(" ");
+            return null;
+        }
+
+        void put(long op, long a, long b, long c, Instruction instruction) {
+            int slot = slotOf(op, a, b, c);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
             }
-            return sb.toString();
+            int base = slot * 4;
+            keys[base] = op;
+            keys[base + 1] = a;
+            keys[base + 2] = b;
+            keys[base + 3] = c;
+            values[slot] = instruction;
+            undo[undoTop++] = slot;
+        }
+
+        int mark() {
+            return undoTop;
         }
-        return "";
-    }
 
-    public String hash(String type, Value operand1, Value operand2) {
-        return type + " " + operand1.getFullName() + " " + operand2.getFullName();
+        void rollback(int mark) {
+            while (undoTop > mark) {
+                values[undo[--undoTop]] = null;
+            }
+        }
     }
 }
@@ -0,0 +1,732 @@
+package middle.optimizer;
+
+import backend.mips.MipsRegister;
+import llvmir.User;
+import llvmir.Value;
+import llvmir.values.BasicBlock;
+import llvmir.values.Function;
+import llvmir.values.instr.Branch;
+import llvmir.values.instr.Call;
+import llvmir.values.instr.Compare;
+import llvmir.values.instr.GetElementPtr;
+import llvmir.values.instr.Instruction;
+import llvmir.values.instr.Move;
+
+import java.util.*;
+
+/**
+ * 基于活跃区间的线性扫描寄存器分配（Wimmer），在消除phi之后进行。
+ * 指令按基本块顺序线性编号，每个变量的活跃区间由若干段[from, to)组成；
+ * 寄存器不够时把区间在基本块边界或其某段的起点（定义处）处分裂，
+ * 只让压力大的那一段放到栈上，分裂出的子区间用新的变量表示并改写其后的使用；
+ * 分配结束后在控制流边上对比前后子区间的位置，插入move完成转移。
+ * 后端把icmp与br合并为一条跳转，只被br使用的比较结果不占位置，跳转处直接读比较的操作数
+ */
+public class IntervalRegAlloc {
+    private static final int STACK = -1;
+
+    /**
+     * 活跃区间，父区间对应原变量，分裂出的子区间对应新变量
+     */
+    private static class Interval {
+        private final int value;
+        private Value location;
+        private final ArrayList<int[]> ranges = new ArrayList<>();   // 升序，不相交
+        private final ArrayList<Integer> uses = new ArrayList<>();   // 升序
+        private int reg = STACK;
+        private boolean mustHaveReg = false;
+
+        Interval(int value, Value location) {
+            this.value = value;
+            this.location = location;
+        }
+
+        int start() {
+            return ranges.get(0)[0];
+        }
+
+        int end() {
+            return ranges.get(ranges.size() - 1)[1];
+        }
+
+        boolean covers(int pos) {
+            for (int[] range: ranges) {
+                if (pos < range[0]) {
+                    return false;
+                }
+                if (pos < range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return 与other第一个同时活跃的位置，不相交时为-1
+         */
+        int nextIntersection(Interval other) {
+            int i = 0;
+            int j = 0;
+            while (i < ranges.size() && j < other.ranges.size()) {
+                int[] a = ranges.get(i);
+                int[] b = other.ranges.get(j);
+                int from = Math.max(a[0], b[0]);
+                if (from < Math.min(a[1], b[1])) {
+                    return from;
+                }
+                if (a[1] <= b[1]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return -1;
+        }
+
+        int nextUseAfter(int pos) {
+            for (int use: uses) {
+                if (use >= pos) {
+                    return use;
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        int nextRangeStartAfter(int pos) {
+            for (int[] range: ranges) {
+                if (range[0] > pos) {
+                    return range[0];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 建区间时自底向上逐段加入，新加入的段总在最前面
+         */
+        void addRangeReversed(int from, int to) {
+            if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[0] <= to) {
+                int[] first = ranges.get(ranges.size() - 1);
+                first[0] = Math.min(first[0], from);
+                first[1] = Math.max(first[1], to);
+            } else {
+                ranges.add(new int[]{from, to});
+            }
+        }
+
+        /**
+         * 从pos起分裂出子区间，pos前的部分留在当前区间
+         */
+        Interval splitAt(int pos) {
+            Interval child = new Interval(value, new Value(location.getTp(), ""));
+            ArrayList<int[]> keep = new ArrayList<>();
+            for (int[] range: ranges) {
+                if (range[1] <= pos) {
+                    keep.add(range);
+                } else if (range[0] >= pos) {
+                    child.ranges.add(range);
+                } else {
+                    keep.add(new int[]{range[0], pos});
+                    child.ranges.add(new int[]{pos, range[1]});
+                }
+            }
+            ranges.clear();
+            ranges.addAll(keep);
+            ArrayList<Integer> before = new ArrayList<>();
+            for (int use: uses) {
+                if (use < pos) {
+                    before.add(use);
+                } else {
+                    child.uses.add(use);
+                }
+            }
+            uses.clear();
+            uses.addAll(before);
+            return child;
+        }
+    }
+
+    private final List<Integer> regs = MipsRegister.allocableRegs();
+    private ArrayList<Value> values;
+    private BitSet nodes;
+    private ArrayList<ArrayList<Interval>> children;    // 变量编号 -> 按起点排序的各子区间，父区间在前
+    private final ArrayList<BasicBlock> blocks = new ArrayList<>();
+    private final ArrayList<Integer> blockFrom = new ArrayList<>();
+    private final ArrayList<Integer> blockTo = new ArrayList<>();
+    private final HashMap<Instruction, Integer> position = new HashMap<>();
+    private final HashMap<Integer, Instruction> instrAt = new HashMap<>();
+    private final ArrayList<Integer> callPositions = new ArrayList<>();
+    private final PriorityQueue<Interval> unhandled = new PriorityQueue<>(
+            Comparator.comparingInt(Interval::start).thenComparingInt(it -> it.value));
+    private final ArrayList<Interval> active = new ArrayList<>();
+    private final ArrayList<Interval> inactive = new ArrayList<>();
+
+    /**
+     * @param function 已消除phi的函数
+     * @param values 精确活跃变量分析得到的 编号 -> 变量
+     */
+    public void regAlloc(Function function, ArrayList<Value> values) {
+        init(function, values);
+        buildIntervals(function);
+        walkIntervals();
+        assignLocations();
+        rewrite();
+        HashMap<Value, Integer> value2reg = new LinkedHashMap<>();
+        HashSet<Value> value2Stack = new LinkedHashSet<>();
+        for (ArrayList<Interval> list: children) {
+            for (Interval it: list) {
+                if (it.reg >= 0) {
+                    value2reg.put(it.location, regs.get(it.reg));
+                } else {
+                    value2Stack.add(it.location);
+                }
+            }
+        }
+        setSaveMaps();
+        resolve(function);
+        function.setGlobalRegsMap(value2reg);
+        function.setValueInStack(value2Stack);
+    }
+
+    private void init(Function function, ArrayList<Value> values) {
+        this.values = values;
+        nodes = new BitSet(values.size());
+        children = new ArrayList<>();
+        for (Value argument: function.getFuncFParams()) {
+            nodes.set(argument.getNumber());
+        }
+        // 第0个位置留给参数定义，其后每条指令占两个位置，基本块首尾各留一个位置
+        int pos = 0;
+        for (BasicBlock block: function.getBasicBlocks()) {
+            blocks.add(block);
+            blockFrom.add(pos);
+            for (Instruction instr: block.getInstructions()) {
+                pos += 2;
+                position.put(instr, pos);
+                instrAt.put(pos, instr);
+                if (instr instanceof Call && ((Call) instr).getCallFunc().isDefine()) {
+                    callPositions.add(pos);
+                }
+                Value def = instr.def();
+                if (def != null && LiveAnalyze.isVariable(def) && !fusedIntoBranch(instr)) {
+                    nodes.set(def.getNumber());
+                }
+            }
+            pos += 2;
+            blockTo.add(pos);
+        }
+    }
+
+    private static boolean fusedIntoBranch(Instruction instr) {
+        if (!(instr instanceof Compare)) {
+            return false;
+        }
+        for (User user: instr.getUsersList()) {
+            if (!(user instanceof Branch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int node(Value value) {
+        if (!LiveAnalyze.isVariable(value)) {
+            return -1;
+        }
+        int number = value.getNumber();
+        if (number >= 0 && number < values.size() && values.get(number) == value && nodes.get(number)) {
+            return number;
+        }
+        return -1;
+    }
+
+    /**
+     * 逐块自底向上建区间：块出口活跃的变量覆盖整个块，定义处截断，使用处延伸到块首；
+     * 后端翻译getelementptr时先写目的寄存器再读偏移，其操作数要活到指令之后
+     */
+    private void buildIntervals(Function function) {
+        Interval[] intervals = new Interval[values.size()];
+        for (int b = blocks.size() - 1; b >= 0; b--) {
+            BasicBlock block = blocks.get(b);
+            int from = blockFrom.get(b);
+            BitSet live = (BitSet) block.getOuts().clone();
+            live.and(nodes);
+            for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                interval(intervals, v).addRangeReversed(from, blockTo.get(b));
+            }
+            for (Instruction instr = block.getInstructions().getLast(); instr != null; instr = instr.getPrev()) {
+                int pos = position.get(instr);
+                int d = instr.def() == null ? -1 : node(instr.def());
+                if (d >= 0) {
+                    Interval it = interval(intervals, d);
+                    if (live.get(d)) {
+                        it.ranges.get(it.ranges.size() - 1)[0] = pos;
+                    } else {
+                        it.addRangeReversed(pos, pos + 1);
+                    }
+                    it.uses.add(pos);
+                    live.clear(d);
+                }
+                for (Value operand: LiveAnalyze.preciseUse(instr)) {
+                    int u = node(operand);
+                    if (u >= 0) {
+                        Interval it = interval(intervals, u);
+                        it.addRangeReversed(from, instr instanceof GetElementPtr ? pos + 1 : pos);
+                        it.uses.add(pos);
+                        live.set(u);
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < values.size(); v++) {
+            children.add(new ArrayList<>());
+            Interval it = intervals[v];
+            if (it != null) {
+                Collections.reverse(it.ranges);
+                Collections.reverse(it.uses);
+                children.get(v).add(it);
+                unhandled.add(it);
+            }
+        }
+        // 前4个参数经$a0-$a3传入，后端只能把它们放在寄存器中
+        for (int i = 0; i < Math.min(4, function.getArgc()); i++) {
+            Interval it = intervals[function.getFuncFParams().get(i).getNumber()];
+            if (it != null) {
+                it.mustHaveReg = true;
+            }
+        }
+    }
+
+    private Interval interval(Interval[] intervals, int v) {
+        if (intervals[v] == null) {
+            intervals[v] = new Interval(v, values.get(v));
+        }
+        return intervals[v];
+    }
+
+    private void walkIntervals() {
+        while (!unhandled.isEmpty()) {
+            Interval current = unhandled.poll();
+            int pos = current.start();
+            for (Interval it: new ArrayList<>(active)) {
+                if (it.end() <= pos) {
+                    active.remove(it);
+                } else if (!it.covers(pos)) {
+                    active.remove(it);
+                    inactive.add(it);
+                }
+            }
+            for (Interval it: new ArrayList<>(inactive)) {
+                if (it.end() <= pos) {
+                    inactive.remove(it);
+                } else if (it.covers(pos)) {
+                    inactive.remove(it);
+                    active.add(it);
+                }
+            }
+            if (!tryAllocateFreeReg(current)) {
+                allocateBlockedReg(current);
+            }
+            if (current.reg >= 0) {
+                active.add(current);
+            }
+        }
+    }
+
+    private boolean tryAllocateFreeReg(Interval current) {
+        int[] freeUntil = new int[regs.size()];
+        Arrays.fill(freeUntil, Integer.MAX_VALUE);
+        for (Interval it: active) {
+            freeUntil[it.reg] = 0;
+        }
+        for (Interval it: inactive) {
+            int intersection = it.nextIntersection(current);
+            if (intersection >= 0) {
+                freeUntil[it.reg] = Math.min(freeUntil[it.reg], intersection);
+            }
+        }
+        int reg = 0;
+        for (int r = 1; r < regs.size(); r++) {
+            if (freeUntil[r] > freeUntil[reg]) {
+                reg = r;
+            }
+        }
+        // 整段都空闲的寄存器中，跨调用的区间优先用$s寄存器，其余优先用$t寄存器
+        boolean acrossCall = acrossCall(current);
+        for (int r = 0; r < regs.size(); r++) {
+            if (freeUntil[r] >= current.end() && MipsRegister.isCalleeSaved(regs.get(r)) == acrossCall) {
+                reg = r;
+                break;
+            }
+        }
+        // 由move定义时优先选源操作数的寄存器，使move成为空操作
+        int hint = hint(current);
+        if (hint >= 0 && freeUntil[hint] >= current.end()) {
+            reg = hint;
+        }
+        if (freeUntil[reg] <= current.start()) {
+            return false;
+        }
+        if (freeUntil[reg] < current.end()) {
+            int split = splitPosition(current, current.start(), freeUntil[reg]);
+            if (split < 0) {
+                return false;
+            }
+            unhandled.add(split(current, split));
+        }
+        current.reg = reg;
+        return true;
+    }
+
+    private boolean acrossCall(Interval it) {
+        for (int pos: callPositions) {
+            if (it.start() < pos && it.covers(pos + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int hint(Interval current) {
+        Instruction instr = instrAt.get(current.start());
+        if (!(instr instanceof Move)) {
+            return -1;
+        }
+        int src = node(((Move) instr).getSrc());
+        if (src < 0) {
+            return -1;
+        }
+        Interval it = childAt(src, current.start() - 1);
+        return it == null ? -1 : it.reg;
+    }
+
+    private void allocateBlockedReg(Interval current) {
+        int[] nextUse = new int[regs.size()];
+        Arrays.fill(nextUse, Integer.MAX_VALUE);
+        for (Interval it: active) {
+            if (it.mustHaveReg && splitPosition(it, it.start(), current.start()) < 0) {
+                nextUse[it.reg] = Integer.MIN_VALUE;   // 参数入口处必须在寄存器中，不能整体换出
+            } else {
+                nextUse[it.reg] = Math.min(nextUse[it.reg], it.nextUseAfter(current.start()));
+            }
+        }
+        for (Interval it: inactive) {
+            if (it.nextIntersection(current) >= 0) {
+                nextUse[it.reg] = Math.min(nextUse[it.reg], it.nextUseAfter(current.start()));
+            }
+        }
+        int reg = 0;
+        for (int r = 1; r < regs.size(); r++) {
+            if (nextUse[r] > nextUse[reg]) {
+                reg = r;
+            }
+        }
+        if (!current.mustHaveReg && current.nextUseAfter(current.start()) >= nextUse[reg]) {
+            // 当前区间下一次使用更晚，把它放到栈上，到下一次使用前再分裂出来重新分配
+            current.reg = STACK;
+            splitBeforeUse(current, current.start());
+            return;
+        }
+        current.reg = reg;
+        for (Interval it: new ArrayList<>(active)) {
+            if (it.reg == reg) {
+                active.remove(it);
+                int split = splitPosition(it, it.start(), current.start());
+                Interval rest = it;
+                if (split >= 0) {
+                    rest = split(it, split);
+                }
+                rest.reg = STACK;
+                splitBeforeUse(rest, current.start());
+            }
+        }
+        for (Interval it: new ArrayList<>(inactive)) {
+            if (it.reg == reg && it.nextIntersection(current) >= 0) {
+                inactive.remove(it);
+                unhandled.add(split(it, it.nextRangeStartAfter(current.start())));
+            }
+        }
+    }
+
+    /**
+     * 栈上的区间在pos之后的下一次使用前分裂出来，重新参与分配
+     */
+    private void splitBeforeUse(Interval it, int pos) {
+        int use = it.nextUseAfter(pos + 1);
+        if (use == Integer.MAX_VALUE) {
+            return;
+        }
+        int split = splitPosition(it, Math.max(pos, it.start()), use);
+        if (split >= 0) {
+            unhandled.add(split(it, split));
+        }
+    }
+
+    /**
+     * 在(low, high]中找分裂位置：基本块边界由控制流边上的move衔接，
+     * 区间某段的起点处变量被重新定义，都不需要在块内插入move；
+     * 优先选循环深度最小的位置，使换入换出的move尽量不落在循环里，同深度取最晚的
+     * @return 找不到时为-1
+     */
+    private int splitPosition(Interval it, int low, int high) {
+        int best = -1;
+        int bestDepth = Integer.MAX_VALUE;
+        int b = 0;
+        for (int candidate: splitCandidates(it, low, high)) {
+            while (b + 1 < blocks.size() && blockFrom.get(b + 1) <= candidate) {
+                b++;
+            }
+            int depth = blocks.get(b).getLoopDepth();
+            if (depth <= bestDepth) {
+                best = candidate;
+                bestDepth = depth;
+            }
+        }
+        return best;
+    }
+
+    private TreeSet<Integer> splitCandidates(Interval it, int low, int high) {
+        TreeSet<Integer> candidates = new TreeSet<>();
+        high = Math.min(high, it.end() - 1);
+        for (int b = 1; b < blocks.size(); b++) {
+            int from = blockFrom.get(b);
+            if (from > low && from <= high) {
+                candidates.add(from);
+            }
+        }
+        for (int[] range: it.ranges) {
+            if (range[0] > low && range[0] <= high) {
+                candidates.add(range[0]);
+            }
+        }
+        return candidates;
+    }
+
+    private Interval split(Interval it, int pos) {
+        Interval child = it.splitAt(pos);
+        ArrayList<Interval> list = children.get(it.value);
+        list.add(list.indexOf(it) + 1, child);
+        return child;
+    }
+
+    /**
+     * @return 变量在pos处所在的子区间
+     */
+    private Interval childAt(int v, int pos) {
+        Interval result = null;
+        for (Interval it: children.get(v)) {
+            if (it.start() > pos) {
+                break;
+            }
+            result = it;
+        }
+        return result;
+    }
+
+    /**
+     * 同一变量分到同一寄存器的子区间共用一个变量，栈上的子区间各占一个栈位置
+     */
+    private void assignLocations() {
+        for (ArrayList<Interval> list: children) {
+            HashMap<Integer, Value> reg2value = new HashMap<>();
+            for (Interval it: list) {
+                if (it.reg >= 0) {
+                    Value shared = reg2value.putIfAbsent(it.reg, it.location);
+                    if (shared != null) {
+                        it.location = shared;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 按位置把每次使用和非SSA的定义改写为所在子区间的变量。
+     * 条件跳转不读比较结果，比较的操作数在跳转处另行改写
+     */
+    private void rewrite() {
+        HashMap<Branch, Value[]> branchOperands = new LinkedHashMap<>();
+        for (BasicBlock block: blocks) {
+            Instruction terminator = block.getInstructions().getLast();
+            if (terminator instanceof Branch && terminator.getOperands().get(0) instanceof Compare) {
+                branchOperands.put((Branch) terminator, locationsAt(
+                        (Compare) terminator.getOperands().get(0), position.get(terminator)));
+            }
+        }
+        for (BasicBlock block: blocks) {
+            for (Instruction instr: block.getInstructions()) {
+                int pos = position.get(instr);
+                if (instr instanceof Branch) {
+                    continue;
+                }
+                if (instr instanceof Move) {
+                    Move move = (Move) instr;
+                    int src = node(move.getSrc());
+                    if (src >= 0) {
+                        move.setSrc(childAt(src, pos).location);
+                    }
+                    int dst = node(move.getDst());
+                    if (dst >= 0) {
+                        move.setDst(childAt(dst, pos).location);
+                    }
+                    continue;
+                }
+                for (int i = 0; i < instr.getOperands().size(); i++) {
+                    Value operand = instr.getOperands().get(i);
+                    int u = node(operand);
+                    if (u >= 0 && childAt(u, pos).location != operand) {
+                        instr.replaceValue(childAt(u, pos).location, i);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Branch, Value[]> entry: branchOperands.entrySet()) {
+            rewriteCondition(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Value[] locationsAt(Compare compare, int pos) {
+        Value[] locations = new Value[compare.getOperands().size()];
+        for (int i = 0; i < locations.length; i++) {
+            Value operand = compare.getOperands().get(i);
+            int u = node(operand);
+            locations[i] = u >= 0 ? childAt(u, pos).location : operand;
+        }
+        return locations;
+    }
+
+    /**
+     * 操作数在比较处和跳转处所在的子区间不同时，在跳转前放一条读跳转处位置的比较，只供跳转使用
+     */
+    private void rewriteCondition(Branch branch, Value[] locations) {
+        Compare compare = (Compare) branch.getOperands().get(0);
+        if (Arrays.equals(compare.getOperands().toArray(), locations)) {
+            return;
+        }
+        Compare fused = new Compare("", compare.getCondType());
+        for (Value location: locations) {
+            fused.addOperands(location);
+        }
+        BasicBlock block = branch.getParent();
+        fused.setNeedName(true);
+        fused.setParent(block);
+        block.insertBeforeInstr(branch, fused);
+        branch.replaceValue(fused, 0);
+    }
+
+    /**
+     * 调用前后需要保存的寄存器：调用之后仍活跃的子区间，不含调用本身的返回值
+     */
+    private void setSaveMaps() {
+        for (BasicBlock block: blocks) {
+            for (Instruction instr: block.getInstructions()) {
+                if (!(instr instanceof Call) || !((Call) instr).getCallFunc().isDefine()) {
+                    continue;
+                }
+                int pos = position.get(instr);
+                int def = node(instr);
+                HashMap<Integer, Value> saveMap = new HashMap<>();
+                for (ArrayList<Interval> list: children) {
+                    for (Interval it: list) {
+                        if (it.reg >= 0 && it.value != def && it.covers(pos + 1)) {
+                            saveMap.put(regs.get(it.reg), it.location);
+                        }
+                    }
+                }
+                ((Call) instr).setSaveMap(saveMap);
+            }
+        }
+    }
+
+    /**
+     * 对每条控制流边，后继入口活跃的变量若前后所在子区间不同，就插入并行move；
+     * 前驱只有一个后继时放在前驱末尾，后继只有一个前驱时放在后继开头，否则拆边
+     */
+    private void resolve(Function function) {
+        for (int b = 0; b < blocks.size(); b++) {
+            BasicBlock succ = blocks.get(b);
+            BitSet live = (BitSet) succ.getIns().clone();
+            live.and(nodes);
+            for (BasicBlock pred: new ArrayList<>(succ.getPrecursor())) {
+                int predEnd = blockTo.get(blocks.indexOf(pred)) - 1;
+                ArrayList<Interval[]> moves = new ArrayList<>();  // {dst, src}
+                for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                    Interval from = childAt(v, predEnd);
+                    Interval to = childAt(v, blockFrom.get(b));
+                    if (from != to && (to.reg < 0 || to.reg != from.reg)) {
+                        moves.add(new Interval[]{to, from});
+                    }
+                }
+                if (moves.isEmpty()) {
+                    continue;
+                }
+                BasicBlock block;
+                Instruction before;
+                if (pred.getSubsequents().size() == 1) {
+                    block = pred;
+                    before = pred.getTerminator();
+                } else if (succ.getPrecursor().size() == 1) {
+                    block = succ;
+                    before = succ.getInstructions().getFirst();
+                } else {
+                    block = new BasicBlock("", function);
+                    RemovePhi.insertBetween(pred, block, succ);
+                    if (succ.equals(pred.getNeighbour())) {
+                        function.insertBlock(pred, block);
+                    } else {
+                        function.addBasicBlock(block);
+                    }
+                    before = block.getTerminator();
+                }
+                for (Move move: sequentialize(moves, block)) {
+                    block.insertBeforeInstr(before, move);
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行move串行化：目的位置不再被其他move读取的先做，成环时借栈上的临时变量打破
+     */
+    private ArrayList<Move> sequentialize(ArrayList<Interval[]> pending, BasicBlock block) {
+        ArrayList<Move> result = new ArrayList<>();
+        ArrayList<Object> srcLocs = new ArrayList<>();
+        ArrayList<Value> srcs = new ArrayList<>();
+        for (Interval[] move: pending) {
+            srcLocs.add(locationKey(move[1]));
+            srcs.add(move[1].location);
+        }
+        while (!pending.isEmpty()) {
+            int ready = -1;
+            for (int i = 0; i < pending.size() && ready < 0; i++) {
+                Object dstLoc = locationKey(pending.get(i)[0]);
+                boolean blocked = false;
+                for (int j = 0; j < pending.size(); j++) {
+                    if (j != i && srcLocs.get(j).equals(dstLoc)) {
+                        blocked = true;
+                        break;
+                    }
+                }
+                if (!blocked) {
+                    ready = i;
+                }
+            }
+            if (ready >= 0) {
+                result.add(new Move(pending.get(ready)[0].location, srcs.get(ready), block));
+                pending.remove(ready);
+                srcLocs.remove(ready);
+                srcs.remove(ready);
+            } else {
+                Value temp = new Value(srcs.get(0).getTp(), "");
+                result.add(new Move(temp, srcs.get(0), block));
+                srcLocs.set(0, temp);
+                srcs.set(0, temp);
+            }
+        }
+        return result;
+    }
+
+    private static Object locationKey(Interval it) {
+        return it.reg >= 0 ? (Object) it.reg : it.location;
+    }
+}
@@ -6,20 +6,48 @@ import llvmir.values.Constant;
 import llvmir.values.Function;
 import llvmir.values.GlobalVariable;
 import llvmir.values.instr.Alloca;
+import llvmir.values.instr.Branch;
+import llvmir.values.instr.Compare;
 import llvmir.values.instr.Instruction;
+import llvmir.values.instr.Phi;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 
 /**
  * 进行活跃变量分析，为后端优化服务
+ * 函数内的变量稠密编号，集合用BitSet表示；按后序初始化工作表，
+ * 只有in集合变化时才把前驱重新加入
  */
 public class LiveAnalyze {
     private final ArrayList<Function> functions;
-    private boolean changed;
+    private final ArrayList<Value> values = new ArrayList<>();  // 编号 -> 变量
+    private final boolean precise;
+    private BitSet[] phiUses;   // 各基本块末尾为后继的phi提供的操作数
 
     public LiveAnalyze(ArrayList<Function> functions) {
+        this(functions, false);
+    }
+
+    /**
+     * @param precise 按后端的实际行为计算：phi在块入口定义，其操作数在对应前驱的末尾使用；
+     *                条件跳转使用比较指令的操作数（icmp与br合并为一条跳转指令）
+     */
+    public LiveAnalyze(ArrayList<Function> functions, boolean precise) {
         this.functions = new ArrayList<>(functions);
+        this.precise = precise;
+    }
+
+    /**
+     * @return 当前函数的编号 -> 变量
+     */
+    public ArrayList<Value> getValues() {
+        return values;
     }
 
     /**
@@ -27,21 +55,80 @@ public class LiveAnalyze {
      */
     public void analyzeActiveVar() {
         for (Function function: functions) {
-            ArrayList<BasicBlock> blocks = function.getBasicBlocks();
-            // 基本块的数据流分析
-            for (BasicBlock block: blocks) {
-                calUseDef(block);   // 计算def use
+            analyzeActiveVar(function);
+        }
+    }
+
+    public void analyzeActiveVar(Function function) {
+        numberValues(function);
+        ArrayList<BasicBlock> order = postOrder(function);
+        // 基本块的数据流分析
+        for (BasicBlock block: order) {
+            calUseDef(block);   // 计算def use
+        }
+        if (precise) {
+            calPhiUses(order);
+        }
+        calInout(order);
+        // output(function);
+    }
+
+    private void numberValues(Function function) {
+        values.clear();
+        for (Value arg: function.getFuncFParams()) {
+            index(arg);
+        }
+        for (BasicBlock block: function.getBasicBlocks()) {
+            for (Instruction instr: block.getInstructions()) {
+                index(instr);
             }
-            // 计算指令间
-            changed = true;
-            while (changed) {
-                changed = false;
-                for (BasicBlock block: function.getBasicBlocks()) {
-                    calInout(block);
+        }
+    }
+
+    private int index(Value value) {
+        int number = value.getNumber();
+        if (number >= 0 && number < values.size() && values.get(number) == value) {
+            return number;
+        }
+        value.setNumber(values.size());
+        values.add(value);
+        return value.getNumber();
+    }
+
+    /**
+     * 可达块按后序排列，其余块接在后面，并以所在位置作为基本块编号
+     */
+    private ArrayList<BasicBlock> postOrder(Function function) {
+        ArrayList<BasicBlock> order = new ArrayList<>();
+        HashSet<BasicBlock> visited = new LinkedHashSet<>();
+        ArrayDeque<BasicBlock> blocks = new ArrayDeque<>();
+        ArrayDeque<Iterator<BasicBlock>> nexts = new ArrayDeque<>();
+        BasicBlock entry = function.getBasicBlocks().get(0);
+        visited.add(entry);
+        blocks.push(entry);
+        nexts.push(entry.getSubsequents().iterator());
+        while (!blocks.isEmpty()) {
+            Iterator<BasicBlock> it = nexts.peek();
+            if (it.hasNext()) {
+                BasicBlock next = it.next();
+                if (visited.add(next)) {
+                    blocks.push(next);
+                    nexts.push(next.getSubsequents().iterator());
                 }
+            } else {
+                order.add(blocks.pop());
+                nexts.pop();
             }
         }
-        // output();
+        for (BasicBlock block: function.getBasicBlocks()) {
+            if (!visited.contains(block)) {
+                order.add(block);
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            order.get(i).setNumber(i);
+        }
+        return order;
     }
 
     /**
@@ -49,75 +136,128 @@ public class LiveAnalyze {
      * @param basicBlock 基本块
      */
     private void calUseDef(BasicBlock basicBlock) {
-        HashSet<Value> use = new HashSet<>();   // 使用在定义前的变量
-        HashSet<Value> def = new HashSet<>();   // 定义在使用前的变量
+        BitSet use = new BitSet(values.size());   // 使用在定义前的变量
+        BitSet def = new BitSet(values.size());   // 定义在使用前的变量
         for (Instruction instr: basicBlock.getInstructions()) {
             Value defInstr = instr.def();
-            for (Value operand: instr.use()) {
-                if (operand instanceof GlobalVariable
-                        || operand instanceof Constant
-                        || operand instanceof Alloca
-                        || def.contains(operand)) {
+            if (precise && instr instanceof Phi) {
+                def.set(index(instr));
+                continue;
+            }
+            for (Value operand: precise ? preciseUse(instr) : instr.use()) {
+                if (!isVariable(operand)) {
                     continue;
                 }
-                use.add(operand);
+                int number = index(operand);
+                if (!def.get(number)) {
+                    use.set(number);
+                }
             }
-            if (defInstr != null && !use.contains(defInstr)) {
-                def.add(defInstr);
+            if (defInstr != null) {
+                int number = index(defInstr);
+                if (!use.get(number)) {
+                    def.set(number);
+                }
             }
         }
         basicBlock.setDefs(def);
         basicBlock.setUses(use);
+        basicBlock.setIns(new BitSet(values.size()));
+        basicBlock.setOuts(new BitSet(values.size()));
     }
 
-    private void calInout(BasicBlock block) {
-        HashSet<Value> in = new HashSet<>(block.getUses());
-        HashSet<Value> out = new HashSet<>();
-        // 计算out
-        for (BasicBlock next: block.getSubsequents()) {
-            out.addAll(next.getIns());
-        }
-        if (!out.equals(block.getOuts())) {
-            block.setOuts(out);
-        }
-        // 计算in
-        for (Value o: out) {
-            if (!block.getDefs().contains(o)) {
-                in.add(o);
+    static boolean isVariable(Value value) {
+        return !(value instanceof GlobalVariable || value instanceof Constant || value instanceof Alloca);
+    }
+
+    static HashSet<Value> preciseUse(Instruction instr) {
+        HashSet<Value> use = instr.use();
+        if (instr instanceof Branch && !use.isEmpty()) {
+            Value cond = instr.getOperands().get(0);
+            if (cond instanceof Compare) {
+                use.addAll(((Compare) cond).getOperands());
             }
         }
-        if (!in.equals(block.getIns())) {
-            block.setIns(in);
-            changed = true;
-        }
+        return use;
     }
 
-    private void output() {
-        for (Function function : functions) {
-            System.out.println("\n" + function.getFullName() + ":");
-            ArrayList<BasicBlock> bbs = function.getBasicBlocks();
-            for (BasicBlock bb : bbs) {
-                HashSet<Value> use = bb.getUses();
-                System.out.print("\n" + bb.getFullName() + ": use: ");
-                for (Value value : use) {
-                    System.out.print(value.getFullName() + " ");
-                }
-                HashSet<Value> def = bb.getDefs();
-                System.out.print("\n" + bb.getFullName() + ": def: ");
-                for (Value value : def) {
-                    System.out.print(value.getFullName() + " ");
+    private void calPhiUses(ArrayList<BasicBlock> order) {
+        phiUses = new BitSet[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            phiUses[i] = new BitSet(values.size());
+        }
+        for (BasicBlock block: order) {
+            for (Instruction instr: block.getInstructions()) {
+                if (!(instr instanceof Phi)) {
+                    continue;
                 }
-                HashSet<Value> in = bb.getIns();
-                System.out.print("\n" + bb.getFullName() + ": in: ");
-                for (Value value : in) {
-                    System.out.print(value.getFullName() + " ");
+                Phi phi = (Phi) instr;
+                for (int i = 0; i < phi.getOperands().size(); i++) {
+                    Value operand = phi.getOperands().get(i);
+                    int number = phi.getPreBlocks().get(i).getNumber();
+                    if (isVariable(operand) && number >= 0 && number < order.size()
+                            && order.get(number) == phi.getPreBlocks().get(i)) {
+                        phiUses[number].set(index(operand));
+                    }
                 }
-                HashSet<Value> out = bb.getOuts();
-                System.out.print("\n" + bb.getFullName() + ": out: ");
-                for (Value value : out) {
-                    System.out.print(value.getFullName() + " ");
+            }
+        }
+    }
+
+    /**
+     * out = ∪ in(后继)，in = use ∪ (out - def)，迭代至不动点
+     */
+    private void calInout(ArrayList<BasicBlock> order) {
+        ArrayDeque<BasicBlock> worklist = new ArrayDeque<>(order);
+        boolean[] queued = new boolean[order.size()];
+        Arrays.fill(queued, true);
+        BitSet in = new BitSet(values.size());
+        while (!worklist.isEmpty()) {
+            BasicBlock block = worklist.poll();
+            queued[block.getNumber()] = false;
+            BitSet out = block.getOuts();
+            out.clear();
+            for (BasicBlock next: block.getSubsequents()) {
+                out.or(next.getIns());
+            }
+            if (precise) {
+                out.or(phiUses[block.getNumber()]);
+            }
+            in.clear();
+            in.or(out);
+            in.andNot(block.getDefs());
+            in.or(block.getUses());
+            if (in.equals(block.getIns())) {
+                continue;
+            }
+            BitSet old = block.getIns();
+            block.setIns(in);
+            in = old;
+            for (BasicBlock pre: block.getPrecursor()) {
+                int number = pre.getNumber();
+                if (number >= 0 && number < order.size() && order.get(number) == pre && !queued[number]) {
+                    queued[number] = true;
+                    worklist.add(pre);
                 }
             }
         }
     }
+
+    private void output(Function function) {
+        System.out.println("\n" + function.getFullName() + ":");
+        for (BasicBlock bb : function.getBasicBlocks()) {
+            System.out.print("\n" + bb.getFullName() + ": use: " + names(bb.getUses()));
+            System.out.print("\n" + bb.getFullName() + ": def: " + names(bb.getDefs()));
+            System.out.print("\n" + bb.getFullName() + ": in: " + names(bb.getIns()));
+            System.out.print("\n" + bb.getFullName() + ": out: " + names(bb.getOuts()));
+        }
+    }
+
+    private String names(BitSet set) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            sb.append(values.get(i).getFullName()).append(' ');
+        }
+        return sb.toString();
+    }
 }
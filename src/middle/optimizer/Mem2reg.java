@@ -10,13 +10,15 @@ import llvmir.values.instr.*;
 import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 
 public class Mem2reg {
     private Module module;
-    HashMap<Value, HashSet<BasicBlock>> defs = new HashMap<>();
-    HashMap<Value, HashSet<Instruction>> defInstrs = new HashMap<>();
-    HashMap<Value, HashSet<BasicBlock>> uses = new HashMap<>();
-    HashMap<Value, HashSet<Instruction>> useInstrs = new HashMap<>();
+    HashMap<Value, HashSet<BasicBlock>> defs = new LinkedHashMap<>();
+    HashMap<Value, HashSet<Instruction>> defInstrs = new LinkedHashMap<>();
+    HashMap<Value, HashSet<BasicBlock>> uses = new LinkedHashMap<>();
+    HashMap<Value, HashSet<Instruction>> useInstrs = new LinkedHashMap<>();
 
     public Mem2reg(Module module) {
         this.module = module;
@@ -24,22 +26,22 @@ public class Mem2reg {
 
     public void buildSSA() {
         for (Function function: module.getFunctions()) {
-            buildFuncSSA(function);
+            buildSSA(function);
         }
     }
 
-    private void buildFuncSSA(Function function) {
-        HashSet<Instruction> allocas = new HashSet<>();
+    public void buildSSA(Function function) {
+        HashSet<Instruction> allocas = new LinkedHashSet<>();
         // 先统计所有变量
         for (BasicBlock block: function.getBasicBlocks()) {
             for (Instruction instruction: block.getInstructions()) {
                 // 只考虑非数组变量
                 if (instruction instanceof Alloca && ((Alloca) instruction).getDim() == 0) {
                     allocas.add(instruction);
-                    defs.put(instruction, new HashSet<>());
-                    defInstrs.put(instruction, new HashSet<>());
-                    uses.put(instruction, new HashSet<>());
-                    useInstrs.put(instruction, new HashSet<>());
+                    defs.put(instruction, new LinkedHashSet<>());
+                    defInstrs.put(instruction, new LinkedHashSet<>());
+                    uses.put(instruction, new LinkedHashSet<>());
+                    useInstrs.put(instruction, new LinkedHashSet<>());
                 } else if (instruction instanceof Store) {
                     if (defs.containsKey(instruction.getOperands().get(1))) {
                         defs.get(instruction.getOperands().get(1)).add(instruction.getParent());
@@ -61,8 +63,8 @@ public class Mem2reg {
     }
 
     public void insertPhi(Instruction alloca, BasicBlock first) {
-        HashSet<BasicBlock> f = new HashSet<>();    // 需要插入phi的基本块集合
-        HashSet<BasicBlock> w = new HashSet<>(defs.get(alloca)); // value的定义（包括phi）所在基本块集合
+        HashSet<BasicBlock> f = new LinkedHashSet<>();    // 需要插入phi的基本块集合
+        HashSet<BasicBlock> w = new LinkedHashSet<>(defs.get(alloca)); // value的定义（包括phi）所在基本块集合
         while (!w.isEmpty()) {
             BasicBlock block = null;
             for (BasicBlock basicBlock: w) {
@@ -84,7 +86,7 @@ public class Mem2reg {
             w.remove(block);
         }
         ArrayDeque<Value> defStack = new ArrayDeque<>();
-        defStack.push(new Constant(alloca.getTp().getInnerType(),"0"));
+        defStack.push(Constant.get(alloca.getTp().getInnerType(), 0));
         DfsRename(defStack, first, alloca);
         // 删除不必要的alloca, store, load
         alloca.remove();
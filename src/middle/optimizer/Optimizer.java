@@ -4,56 +4,122 @@ import llvmir.Module;
 import llvmir.values.BasicBlock;
 import llvmir.values.Function;
 
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * 除全局变量编号外，各pass都只修改单个函数，因此按函数组织流水线，
+ * 每个函数在ForkJoinPool上独立跑完全部pass；pass对象带有分析状态，每个函数各建一份
+ */
 public class Optimizer {
+    /**
+     * 可选的寄存器分配器
+     */
+    public enum Allocator {
+        LINEAR("linear"),       // 沿支配树线性扫描，phi一律放在栈上
+        COLORING("coloring"),   // 图着色，合并phi与其操作数
+        INTERVAL("interval");   // 消除phi后按活跃区间线性扫描，区间可在块边界分裂
+
+        private final String option;
+
+        Allocator(String option) {
+            this.option = option;
+        }
+
+        public static Allocator of(String option) {
+            for (Allocator allocator : values()) {
+                if (allocator.option.equals(option)) {
+                    return allocator;
+                }
+            }
+            throw new IllegalArgumentException("unknown register allocator: " + option);
+        }
+    }
+
     private final Module module;
-    private final CFG cfg;
-    private final Mem2reg mem2reg;
-    private final DCE dce;
-    private final GVN gvn;
-    private final GCM gcm;
-    private final SimplifyBlock simplifyBlock;
-    private final RemovePhi removePhi;
-    private final LiveAnalyze activeAnalyze;
-    private final RegAlloc regAlloc;
+    private final ForkJoinPool pool;
+    private Allocator allocator = Allocator.LINEAR;
 
     public Optimizer(Module module) {
+        this(module, ForkJoinPool.commonPool());
+    }
+
+    public Optimizer(Module module, ForkJoinPool pool) {
         this.module = module;
-        simplifyBlock = new SimplifyBlock(module);
-        cfg = new CFG(module);
-        mem2reg = new Mem2reg(module);
-        dce = new DCE(module);
-        gvn = new GVN(module);
-        gcm = new GCM(module);
-        removePhi = new RemovePhi(module);
-        activeAnalyze = new LiveAnalyze(module.getFunctions());
-        regAlloc = new RegAlloc(module);
+        this.pool = pool;
+    }
+
+    public void setAllocator(Allocator allocator) {
+        this.allocator = allocator;
     }
 
     public void optimizeSSA() {
-        simplifyBlock.removeDeadBlocks();
-        cfg.buildCFG();     // 构建CFG
-        mem2reg.buildSSA(); // 实现SSA
-        dce.dce();          // 删除死代码
-        cfg.buildCFG();
-        gvn.gvn();          // GVN
-        gcm.gcm();          // GCM
+        new GVN(module).numberGlobals();
+        runOnFunctions(this::optimizeSSA);
+    }
+
+    private void optimizeSSA(Function function) {
+        CFG cfg = new CFG(module);
+        new SimplifyBlock(module).removeDeadBlocks(function);
+        cfg.buildCFG(function);                 // 构建CFG
+        new Mem2reg(module).buildSSA(function); // 实现SSA
+        new DCE(module).dce(function);          // 删除死代码
+        cfg.buildCFG(function);
+        new GVN(module).gvn(function);          // GVN
+        new GCM(module).gcm(function);          // GCM
     }
 
     public void optimizeBackend() {
-        activeAnalyze.analyzeActiveVar();   // 活跃变量分析
-        regAlloc.regAlloc();                // 线性扫描分配寄存器
-        removePhi.removePhi();              // 消除phi
-        genNeighbour();
+        runOnFunctions(this::optimizeBackend);
+        new ClobberAnalyze(module).analyze();   // 需要各函数的分配结果，在全部函数分配完后进行
+    }
+
+    private void optimizeBackend(Function function) {
+        if (allocator == Allocator.INTERVAL) {
+            new RemovePhi(module).phiToMove(function);                                  // 先消除phi
+            LiveAnalyze liveAnalyze = new LiveAnalyze(module.getFunctions(), true);
+            liveAnalyze.analyzeActiveVar(function);                                     // 活跃变量分析
+            new IntervalRegAlloc().regAlloc(function, liveAnalyze.getValues());         // 按活跃区间分配寄存器
+            function.setVirtualName();
+        } else {
+            if (allocator == Allocator.COLORING) {
+                LiveAnalyze liveAnalyze = new LiveAnalyze(module.getFunctions(), true);
+                liveAnalyze.analyzeActiveVar(function);                                     // 活跃变量分析
+                new ColoringRegAlloc().regAlloc(function, liveAnalyze.getValues());         // 图着色分配寄存器
+            } else {
+                new LiveAnalyze(module.getFunctions(), true).analyzeActiveVar(function);  // 活跃变量分析
+                new RegAlloc(module).regAlloc(function);                                  // 线性扫描分配寄存器
+            }
+            new RemovePhi(module).removePhi(function);                          // 消除phi
+        }
+        genNeighbour(function);
+        new StackSlotAlloc(module.getFunctions()).allocSlots(function);     // 栈上变量共用栈位置
+    }
+
+    private void runOnFunctions(Consumer<Function> pipeline) {
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Function function: module.getFunctions()) {
+            tasks.add(pool.submit(() -> pipeline.accept(function)));
+        }
+        for (ForkJoinTask<?> task: tasks) {
+            task.join();
+        }
     }
 
     public void genNeighbour() {
         for (Function function: module.getFunctions()) {
-            BasicBlock pre = function.getBasicBlocks().get(0);
-            for (int i = 1; i < function.getBasicBlocks().size(); i++) {
-                BasicBlock next = function.getBasicBlocks().get(i);
-                pre.setNeighbour(next);
-                pre = next;
-            }
+            genNeighbour(function);
+        }
+    }
+
+    private void genNeighbour(Function function) {
+        BasicBlock pre = function.getBasicBlocks().get(0);
+        for (int i = 1; i < function.getBasicBlocks().size(); i++) {
+            BasicBlock next = function.getBasicBlocks().get(i);
+            pre.setNeighbour(next);
+            pre = next;
         }
     }
 }
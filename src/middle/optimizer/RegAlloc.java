@@ -16,13 +16,13 @@ import java.util.*;
  */
 public class RegAlloc {
     private final Module module;
-    private HashMap<Value, Integer> value2reg = new HashMap<>();
+    private HashMap<Value, Integer> value2reg = new LinkedHashMap<>();
     private final HashMap<Integer, Value> reg2Value = new HashMap<>();
     private final ArrayList<Integer> freeRegsPool = new ArrayList<>();
     private final HashSet<Integer> removed = new HashSet<>();
-    private HashSet<Value> value2Stack = new HashSet<>();
+    private HashSet<Value> value2Stack = new LinkedHashSet<>();
     private BasicBlock currentBlock;
-    private int instrPos;
+    private Instruction currentInstr;
 
     public RegAlloc(Module module) {
         this.module = module;
@@ -30,20 +30,24 @@ public class RegAlloc {
 
     public void regAlloc() {
         for (Function function: module.getFunctions()) {
-            value2reg = new HashMap<>();
-            value2Stack = new HashSet<>();
-            reg2Value.clear();
-            freeRegsPool.clear();
-            freeRegsPool.addAll(MipsRegister.allocableRegs());
-            instrPos = 0;
-            // System.out.println("\n" + function.getFullName() + ":\n");
-            for (int i = 0; i < function.getArgc(); i++) {
-                regAllocForValue(function.getFuncFParams().get(i));
-            }
-            regAllocForBlock(function.getBasicBlocks().get(0));
-            function.setGlobalRegsMap(value2reg);
-            function.setValueInStack(value2Stack);
+            regAlloc(function);
+        }
+    }
+
+    public void regAlloc(Function function) {
+        value2reg = new LinkedHashMap<>();
+        value2Stack = new LinkedHashSet<>();
+        reg2Value.clear();
+        freeRegsPool.clear();
+        freeRegsPool.addAll(MipsRegister.allocableRegs());
+        currentInstr = null;
+        // System.out.println("\n" + function.getFullName() + ":\n");
+        for (int i = 0; i < function.getArgc(); i++) {
+            regAllocForValue(function.getFuncFParams().get(i));
         }
+        regAllocForBlock(function.getBasicBlocks().get(0));
+        function.setGlobalRegsMap(value2reg);
+        function.setValueInStack(value2Stack);
     }
 
     /**从左到右扫描，每当遇见一个新变量则分配一个寄存器，当一个变量活跃区间结束时回收寄存器
@@ -51,14 +55,13 @@ public class RegAlloc {
      */
     private void regAllocForBlock(BasicBlock block) {
         currentBlock = block;
-        LinkedList<Instruction> instructions = new LinkedList<>(block.getInstructions());
-        for (instrPos = 0; instrPos < instructions.size(); instrPos++) {
-            Instruction instr = instructions.get(instrPos);
+        for (Instruction instr: block.getInstructions()) {
+            currentInstr = instr;
             if (instr instanceof Phi) {
                 value2Stack.add(instr);
                 continue;
             }
-            HashSet<Value> virtual = new HashSet<>(instr.use());
+            HashSet<Value> virtual = new LinkedHashSet<>(instr.use());
             if (instr.def() != null) {
                 virtual.add(instr.def());
             }
@@ -82,7 +85,7 @@ public class RegAlloc {
             HashMap<Integer, Value> oldReg2Value = new HashMap<>(reg2Value);
             HashSet<Integer> oldFreeRegPool = new HashSet<>(freeRegsPool);
             for (Integer reg: reg2Value.keySet()) {
-                if (!child.getIns().contains(reg2Value.get(reg))) {
+                if (!child.isLiveIn(reg2Value.get(reg))) {
                     free.add(reg);
                 }
             }
@@ -131,12 +134,11 @@ public class RegAlloc {
      * @return 是否可以释放
      */
     private boolean canFree(Value value) {
-        if (currentBlock.getOuts().contains(value)) {
+        if (currentBlock.isLiveOut(value)) {
             return false;
         }
-        for (int i = instrPos + 1; i < currentBlock.getInstructions().size(); i++) {
-            if (currentBlock.getInstructions().get(i).use().contains(value)
-                    || value.equals(currentBlock.getInstructions().get(i).def())) {
+        for (Instruction instr = currentInstr.getNext(); instr != null; instr = instr.getNext()) {
+            if (LiveAnalyze.preciseUse(instr).contains(value) || value.equals(instr.def())) {
                 return false;
             }
         }
@@ -17,17 +17,24 @@ public class RemovePhi {
     }
 
     public void removePhi() {
-        phi2pc();
-        pc2Move();
-        module.setVirtualName();
-    }
-
-    private void phi2pc() {
         for (Function function: module.getFunctions()) {
-            phi2pcInFunc(function);
+            removePhi(function);
         }
     }
 
+    public void removePhi(Function function) {
+        phiToMove(function);
+        function.setVirtualName();
+    }
+
+    /**
+     * 只把phi换成move，不重新命名，供在消除phi之后才分配寄存器的分配器使用
+     */
+    public void phiToMove(Function function) {
+        phi2pcInFunc(function);
+        pc2MoveInFunc(function);
+    }
+
     private void phi2pcInFunc(Function function)  {
         ArrayList<BasicBlock> blocks = new ArrayList<>(function.getBasicBlocks());
         for (BasicBlock basicBlock: blocks) {
@@ -79,12 +86,6 @@ public class RemovePhi {
         }
     }
 
-    private void pc2Move() {
-        for (Function function: module.getFunctions()) {
-            pc2MoveInFunc(function);
-        }
-    }
-
     private void pc2MoveInFunc(Function function) {
         for (BasicBlock block: function.getBasicBlocks()) {
             ArrayList<Pc> pcs = new ArrayList<>();
@@ -129,7 +130,7 @@ public class RemovePhi {
         }
     }
 
-    private void insertBetween(BasicBlock pre, BasicBlock insert, BasicBlock next) {
+    static void insertBetween(BasicBlock pre, BasicBlock insert, BasicBlock next) {
         pre.getSubsequents().add(insert);
         pre.getSubsequents().remove(next);
         next.getPrecursor().remove(pre);
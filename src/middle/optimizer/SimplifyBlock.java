@@ -6,6 +6,7 @@ import llvmir.values.Function;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class SimplifyBlock {
     private final Module module;
@@ -17,13 +18,13 @@ public class SimplifyBlock {
     // 删除死代码块
     public void removeDeadBlocks() {
         for (Function function : module.getFunctions()) {
-            dfsUnableReachBlock(function);
+            removeDeadBlocks(function);
         }
     }
 
-    private void dfsUnableReachBlock(Function function) {
+    public void removeDeadBlocks(Function function) {
         ArrayList<BasicBlock> allBlocks = function.getBasicBlocks();
-        HashSet<BasicBlock> reached = new HashSet<>();
+        HashSet<BasicBlock> reached = new LinkedHashSet<>();
         BasicBlock first = allBlocks.get(0);
         dfs(first, reached);
         // 得到的是能访问到的基本块
@@ -0,0 +1,123 @@
+package middle.optimizer;
+
+import llvmir.Value;
+import llvmir.values.BasicBlock;
+import llvmir.values.Function;
+import llvmir.values.instr.Instruction;
+import llvmir.values.instr.Move;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * 寄存器分配之后为栈上的变量分配栈位置：由精确的活跃变量分析得到冲突关系，
+ * 活跃范围不重叠的变量共用一个位置，按首次定义的顺序贪心取编号最小的可用位置；
+ * move的源和目的值相同，不算冲突。alloca的地址会被传出，仍由后端单独分配
+ */
+public class StackSlotAlloc {
+    private final ArrayList<Function> functions;
+    private ArrayList<Value> values;
+    private BitSet inStack;
+    private final HashMap<Integer, BitSet> adj = new HashMap<>();
+
+    public StackSlotAlloc(ArrayList<Function> functions) {
+        this.functions = functions;
+    }
+
+    public void allocSlots(Function function) {
+        LiveAnalyze liveAnalyze = new LiveAnalyze(functions, true);
+        liveAnalyze.analyzeActiveVar(function);
+        values = liveAnalyze.getValues();
+        inStack = new BitSet(values.size());
+        ArrayList<Integer> order = new ArrayList<>();
+        for (BasicBlock block: function.getBasicBlocks()) {
+            for (Instruction instr: block.getInstructions()) {
+                Value def = instr.def();
+                if (def == null || !needSlot(function, instr)) {
+                    continue;
+                }
+                function.getValueInStack().add(def);
+                int n = node(def);
+                if (n >= 0 && !inStack.get(n)) {
+                    inStack.set(n);
+                    order.add(n);
+                }
+            }
+        }
+        build(function);
+        HashMap<Value, Integer> slots = new LinkedHashMap<>();
+        int[] slot = new int[values.size()];
+        for (int n: order) {
+            BitSet used = new BitSet();
+            BitSet neighbours = adj.getOrDefault(n, new BitSet());
+            for (int m = neighbours.nextSetBit(0); m >= 0; m = neighbours.nextSetBit(m + 1)) {
+                if (slots.containsKey(values.get(m))) {
+                    used.set(slot[m]);
+                }
+            }
+            slot[n] = used.nextClearBit(0);
+            slots.put(values.get(n), slot[n]);
+        }
+        function.setStackSlots(slots);
+    }
+
+    /**
+     * 分到栈上的定义，以及没有分到寄存器的move目的(消除phi时引入的临时变量等)
+     */
+    private static boolean needSlot(Function function, Instruction instr) {
+        Value def = instr.def();
+        if (function.getValueInStack().contains(def)) {
+            return true;
+        }
+        return instr instanceof Move && !(def instanceof Instruction)
+                && !function.getGlobalRegsMap().containsKey(def);
+    }
+
+    private int node(Value value) {
+        if (!LiveAnalyze.isVariable(value)) {
+            return -1;
+        }
+        int number = value.getNumber();
+        if (number >= 0 && number < values.size() && values.get(number) == value) {
+            return number;
+        }
+        return -1;
+    }
+
+    private void addEdge(int u, int v) {
+        if (u != v) {
+            adj.computeIfAbsent(u, k -> new BitSet()).set(v);
+            adj.computeIfAbsent(v, k -> new BitSet()).set(u);
+        }
+    }
+
+    /**
+     * 逐块自底向上扫描：定义处与此时活跃的其他栈上变量冲突，无论定义本身之后是否被使用
+     */
+    private void build(Function function) {
+        for (BasicBlock block: function.getBasicBlocks()) {
+            BitSet live = (BitSet) block.getOuts().clone();
+            live.and(inStack);
+            for (Instruction instr = block.getInstructions().getLast(); instr != null; instr = instr.getPrev()) {
+                int d = instr.def() == null ? -1 : node(instr.def());
+                if (d >= 0 && inStack.get(d)) {
+                    live.clear(d);
+                    int src = instr instanceof Move ? node(((Move) instr).getSrc()) : -1;
+                    for (int l = live.nextSetBit(0); l >= 0; l = live.nextSetBit(l + 1)) {
+                        if (l != src) {
+                            addEdge(d, l);
+                        }
+                    }
+                }
+                for (Value operand: LiveAnalyze.preciseUse(instr)) {
+                    int u = node(operand);
+                    if (u >= 0 && inStack.get(u)) {
+                        live.set(u);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package utils;
+
+import middle.optimizer.Optimizer.Allocator;
+import utils.FileIO.Artifact;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+/**
+ * 一次编译的全部外部状态：要输出哪些文件、源码从哪里读、各文件写到哪里。
+ * 编译过程中不再依赖进程级的静态变量，同一JVM内可以并发进行多次编译
+ */
+public class CompilationContext {
+    /**
+     * 按输出文件打开输出流，由调用者负责关闭
+     */
+    public interface Output {
+        OutputStream open(Artifact artifact) throws IOException;
+    }
+
+    private final EnumSet<Artifact> enabled = EnumSet.allOf(Artifact.class);
+    private Allocator allocator = Allocator.LINEAR;
+    private boolean stats = false;
+    private final CharBuffer source;
+    private final Output output;
+
+    public CompilationContext(CharBuffer source, Output output) {
+        this.source = source;
+        this.output = output;
+    }
+
+    public CompilationContext(InputStream input, Output output) throws IOException {
+        this(decode(input), output);
+    }
+
+    /**
+     * 命令行方式：从testfile.txt读源码，结果写到当前目录下的各个文件
+     */
+    public static CompilationContext fromFiles(String[] args) throws IOException {
+        CompilationContext context = new CompilationContext(FileIO.readTestSource(), FileIO::openFile);
+        context.configure(args);
+        return context;
+    }
+
+    private static CharBuffer decode(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return CharBuffer.wrap(bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 按命令行选择输出哪些文件，默认全部输出：
+     * --profile=debug|release  debug输出全部，release只输出error.txt与mips.txt
+     * --emit=a,b,...           只输出列出的文件
+     * --no-emit=a,b,...        不输出列出的文件
+     * --regalloc=linear|coloring|interval  选择寄存器分配器，默认linear
+     * --stats                  在标准错误输出编译统计，如语法分析查看token的次数与token总数
+     * 选项按出现顺序依次生效
+     */
+    public CompilationContext configure(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--profile=debug")) {
+                enabled.addAll(EnumSet.allOf(Artifact.class));
+            } else if (arg.equals("--profile=release")) {
+                enabled.clear();
+                enabled.add(Artifact.ERROR);
+                enabled.add(Artifact.MIPS);
+            } else if (arg.startsWith("--emit=")) {
+                enabled.clear();
+                enabled.addAll(parseArtifacts(arg.substring("--emit=".length())));
+            } else if (arg.startsWith("--no-emit=")) {
+                enabled.removeAll(parseArtifacts(arg.substring("--no-emit=".length())));
+            } else if (arg.startsWith("--regalloc=")) {
+                allocator = Allocator.of(arg.substring("--regalloc=".length()));
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else {
+                throw new IllegalArgumentException("unknown option: " + arg);
+            }
+        }
+        return this;
+    }
+
+    private static EnumSet<Artifact> parseArtifacts(String list) {
+        EnumSet<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+        for (String option : list.split(",")) {
+            if (!option.isEmpty()) {
+                artifacts.add(Artifact.of(option));
+            }
+        }
+        return artifacts;
+    }
+
+    public boolean isEnabled(Artifact artifact) {
+        return enabled.contains(artifact);
+    }
+
+    public Allocator getAllocator() {
+        return allocator;
+    }
+
+    public boolean isStats() {
+        return stats;
+    }
+
+    /**
+     * @return 源码字符缓冲区，Lexer直接在其上扫描
+     */
+    public CharBuffer getSource() {
+        return source.duplicate();
+    }
+
+    /**
+     * @return 该文件不输出时为null
+     */
+    public BufferedWriter openWriter(Artifact artifact) throws IOException {
+        if (!isEnabled(artifact)) {
+            return null;
+        }
+        return new BufferedWriter(new OutputStreamWriter(output.open(artifact), StandardCharsets.UTF_8));
+    }
+}
@@ -5,14 +5,17 @@ import backend.mips.MipsFunction;
 import backend.mips.MipsInstruction;
 import backend.mips.MipsModule;
 import frontend.Error;
-import frontend.Token;
-import frontend.TokenType;
 import frontend.ast.CompUnit;
 import llvmir.Module;
 import middle.irbuilder.SymbolTable;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 
@@ -27,125 +30,190 @@ public class FileIO {
     public static final String NoOptimizeIrFilePath = String.valueOf(Paths.get("testfilei22371103王鹏_优化前中间代码.txt"));
     public static final String OptimizeIrFilePath = String.valueOf(Paths.get("testfilei22371103王鹏_优化后中间代码.txt"));
     public static final String mipsFilePath = String.valueOf(Paths.get("mips.txt"));
-    public static final String NoOptMipsFilePath = String.valueOf(Paths.get("testfilei22371103王鹏_优化前目标代码.txt"));
-
-    public static String readTestFile() throws IOException {
-        FileReader fr = new FileReader(testFilePath);
-        BufferedReader br = new BufferedReader(fr);
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = br.readLine()) != null) {
-            sb.append(line).append("\n");
+
+    /**
+     * 编译过程中可以输出的各个文件
+     */
+    public enum Artifact {
+        LEXER("lexer"),
+        PARSER("parser"),
+        SYMBOL("symbol"),
+        ERROR("error"),
+        NO_OPT_IR("ir-before"),     // 优化前中间代码
+        LLVM_IR("ir"),              // llvm_ir.txt
+        OPT_IR("ir-after"),         // 优化后中间代码
+        BACKEND_IR("ir-backend"),   // 寄存器分配后的optimize_ir.txt
+        MIPS("mips");
+
+        private final String option;
+
+        Artifact(String option) {
+            this.option = option;
         }
-        br.close();
-        fr.close();
-        return sb.toString();
-    }
 
-    public static void printLexerResult(ArrayList<Token> tokens) throws IOException {
-        FileWriter fw = new FileWriter(lexerFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        for (Token token: tokens) {
-            if (token.getType() != TokenType.ANNOTATION) {
-                String line = token.toString() + "\n";
-                bw.write(line);
+        public String getOption() {
+            return option;
+        }
+
+        public static Artifact of(String option) {
+            for (Artifact artifact : values()) {
+                if (artifact.option.equals(option)) {
+                    return artifact;
+                }
             }
+            throw new IllegalArgumentException("unknown artifact: " + option);
+        }
+    }
+
+    /**
+     * 命令行方式下各文件在当前目录中的路径
+     */
+    public static String pathOf(Artifact artifact) {
+        switch (artifact) {
+            case LEXER:
+                return lexerFilePath;
+            case PARSER:
+                return parserFilePath;
+            case SYMBOL:
+                return symbolFilePath;
+            case ERROR:
+                return errorFilePath;
+            case NO_OPT_IR:
+                return NoOptimizeIrFilePath;
+            case OPT_IR:
+                return OptimizeIrFilePath;
+            case BACKEND_IR:
+                return optimizeFilePath;
+            case MIPS:
+                return mipsFilePath;
+            default:
+                return llvmIrFilePath;
         }
-        bw.close();
-        fw.close();
     }
 
-    public static void printParserResult(CompUnit compUnit) throws IOException {
-        FileWriter fw = new FileWriter(parserFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        compUnit.printToFile(bw);
-        bw.close();
-        fw.close();
+    public static OutputStream openFile(Artifact artifact) throws IOException {
+        return new FileOutputStream(pathOf(artifact));
     }
 
-    public static void printSymTableResult(ArrayList<SymbolTable> sts) throws IOException {
-        FileWriter fw = new FileWriter(symbolFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        // sts.sort(Comparator.comparing(SymbolTable::getDepth));
-        int id = 1;
-        for (SymbolTable st : sts) {
-            for (String name : st.getSymItems().keySet()) {
-                bw.write(id + " " + st.getSymItems().get(name).toString() + "\n");
+    /**
+     * 将源文件映射到内存后一次性解码为字符缓冲区，交给Lexer直接扫描
+     * @return 源码字符缓冲区
+     */
+    public static CharBuffer readTestSource() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(testFilePath), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return StandardCharsets.UTF_8.decode(mapped);
+        }
+    }
+
+    /**
+     * 词法分析与语法分析流水进行时，token边产生边写入lexer.txt，由调用者负责关闭
+     * @return 不输出lexer.txt时为null
+     */
+    public static BufferedWriter openLexerWriter(CompilationContext context) throws IOException {
+        return context.openWriter(Artifact.LEXER);
+    }
+
+    public static void printParserResult(CompilationContext context, CompUnit compUnit) throws IOException {
+        try (BufferedWriter bw = context.openWriter(Artifact.PARSER)) {
+            if (bw == null) {
+                return;
             }
-            id++;
+            compUnit.printToFile(bw);
         }
-        bw.close();
-        fw.close();
     }
 
-    public static void printError(ArrayList<Error> errors) throws IOException {
-        FileWriter fw = new FileWriter(errorFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        if (errors.isEmpty()) {
-            bw.write("");
-            return;
+    public static void printSymTableResult(CompilationContext context,
+                                           ArrayList<SymbolTable> sts) throws IOException {
+        try (BufferedWriter bw = context.openWriter(Artifact.SYMBOL)) {
+            if (bw == null) {
+                return;
+            }
+            // sts.sort(Comparator.comparing(SymbolTable::getDepth));
+            int id = 1;
+            for (SymbolTable st : sts) {
+                for (String name : st.getSymItems().keySet()) {
+                    bw.write(id + " " + st.getSymItems().get(name).toString() + "\n");
+                }
+                id++;
+            }
         }
-        errors.sort(Comparator.comparing(Error::getLineno));
-        int lastLineno = 0;
-        for (Error error: errors) {
-            String line = error.toString() + "\n";
-            if (lastLineno != error.getLineno()) {
-                bw.write(line);
-                lastLineno = error.getLineno();
+    }
+
+    public static void printError(CompilationContext context, ArrayList<Error> errors) throws IOException {
+        try (BufferedWriter bw = context.openWriter(Artifact.ERROR)) {
+            if (bw == null) {
+                return;
+            }
+            errors.sort(Comparator.comparing(Error::getLineno));
+            int lastLineno = 0;
+            for (Error error: errors) {
+                String line = error.toString() + "\n";
+                if (lastLineno != error.getLineno()) {
+                    bw.write(line);
+                    lastLineno = error.getLineno();
+                }
             }
         }
-        bw.close();
-        fw.close();
     }
 
-    public static void printLlvmIrResult(Module module, String path) throws IOException {
-        FileWriter fw = new FileWriter(path);
-        BufferedWriter bw = new BufferedWriter(fw);
-        bw.write(module.toString());
-        bw.close();
-        fw.close();
+    public static void printLlvmIrResult(CompilationContext context, Module module,
+                                         Artifact artifact) throws IOException {
+        try (BufferedWriter bw = context.openWriter(artifact)) {
+            if (bw == null) {
+                return;
+            }
+            module.appendTo(bw);
+        }
     }
 
-    public static void printMipsCode(ArrayList<MipsData> dataSegment,
+    public static void printMipsCode(CompilationContext context, ArrayList<MipsData> dataSegment,
                                      ArrayList<MipsInstruction> textSegment) throws IOException {
-        FileWriter fw = new FileWriter(mipsFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        if (!dataSegment.isEmpty()) {
-            bw.write(".data\n");
-        }
-        for (MipsData dataSeg: dataSegment) {
-            bw.write(dataSeg.toString() + "\n");
-        }
-        if (!textSegment.isEmpty()) {
-            bw.write(".text\n");
-        }
-        for (MipsInstruction instruction: textSegment) {
-            bw.write(instruction.toString() + "\n");
+        try (BufferedWriter bw = context.openWriter(Artifact.MIPS)) {
+            if (bw == null) {
+                return;
+            }
+            if (!dataSegment.isEmpty()) {
+                bw.write(".data\n");
+            }
+            for (MipsData dataSeg: dataSegment) {
+                dataSeg.appendTo(bw);
+                bw.write('\n');
+            }
+            if (!textSegment.isEmpty()) {
+                bw.write(".text\n");
+            }
+            for (MipsInstruction instruction: textSegment) {
+                instruction.appendTo(bw);
+                bw.write('\n');
+            }
         }
-        bw.close();
-        fw.close();
     }
 
-    public static void printMipsCode(MipsModule module) throws IOException {
-        FileWriter fw = new FileWriter(mipsFilePath);
-        BufferedWriter bw = new BufferedWriter(fw);
-        if (!module.getDataSegment().isEmpty()) {
-            bw.write(".data\n");
-        }
-        for (MipsData dataSeg: module.getDataSegment()) {
-            bw.write(dataSeg.toString() + "\n");
-        }
-        if (!module.getTextSegment().isEmpty()) {
-            bw.write(".text\n");
-        }
-        for (MipsFunction function: module.getTextSegment()) {
-            bw.write(function.getName() + ": \n");
-            for (MipsInstruction instruction : function.getInstructions()) {
-                bw.write(instruction.toString() + "\n");
+    public static void printMipsCode(CompilationContext context, MipsModule module) throws IOException {
+        try (BufferedWriter bw = context.openWriter(Artifact.MIPS)) {
+            if (bw == null) {
+                return;
+            }
+            if (!module.getDataSegment().isEmpty()) {
+                bw.write(".data\n");
+            }
+            for (MipsData dataSeg: module.getDataSegment()) {
+                dataSeg.appendTo(bw);
+                bw.write('\n');
+            }
+            if (!module.getTextSegment().isEmpty()) {
+                bw.write(".text\n");
+            }
+            for (MipsFunction function: module.getTextSegment()) {
+                bw.write(function.getName());
+                bw.write(": \n");
+                for (MipsInstruction instruction : function.getInstructions()) {
+                    instruction.appendTo(bw);
+                    bw.write('\n');
+                }
             }
         }
-        bw.close();
-        fw.close();
     }
 
 }
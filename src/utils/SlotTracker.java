@@ -1,15 +1,19 @@
 package utils;
 
+/**
+ * 局部名字按函数编号，每个函数命名时使用自己的SlotTracker，互不干扰；
+ * 字符串常量的名字在模块内编号，由Visitor持有一个SlotTracker
+ */
 public class SlotTracker {
-    private static int num = 0;
-    private static int strNum = 0;
+    private int num = 0;
+    private int strNum = 0;
 
-    public static String slot() {
+    public String slot() {
         num++;
         return String.valueOf(num - 1);
     }
 
-    public static String slotStr() {
+    public String slotStr() {
         if (strNum == 0) {
             strNum++;
             return ".str";
@@ -17,8 +21,4 @@ public class SlotTracker {
         strNum++;
         return ".str." + (strNum - 1);
     }
-
-    public static void reset() {
-        num = 0;
-    }
 }
@@ -0,0 +1,127 @@
+import middle.optimizer.Optimizer.Allocator;
+import utils.CompilationContext;
+import utils.FileIO.Artifact;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 同一源码在同一JVM内反复编译，各输出文件必须逐字节相同。
+ * 优化按函数在线程池上并行，哪个线程处理哪个函数每次不同，输出不能随之变化。
+ * 之前编译过的其它源码（如编译服务中的上一个请求）也不能影响输出
+ * <p>
+ * 运行：javac -d out $(find src test -name '*.java') && java -cp out DeterminismTest
+ */
+public class DeterminismTest {
+    private static final int ROUNDS = 16;
+
+    // 多个函数，循环中有多个互相交换的phi，覆盖mem2reg、GVN、GCM与寄存器分配
+    private static final String SOURCE = String.join("\n",
+            "int a[20];",
+            "int g = 3;",
+            "int mul(int x, int y) { return x * y; }",
+            "int f5(int a1, int a2, int a3, int a4, int a5) {",
+            "    return a1 - a2 + a3 - a4 + a5 + mul(a1, a5);",
+            "}",
+            "void sort(int arr[], int n) {",
+            "    int i, j;",
+            "    for (i = 0; i < n; i = i + 1) {",
+            "        for (j = 0; j < n - i - 1; j = j + 1) {",
+            "            if (arr[j] > arr[j + 1]) {",
+            "                int t = arr[j];",
+            "                arr[j] = arr[j + 1];",
+            "                arr[j + 1] = t;",
+            "            }",
+            "        }",
+            "    }",
+            "}",
+            "int main() {",
+            "    int i, seed = 12345;",
+            "    int p = 1, q = 2, r = 3, s = 4, t = 5;",
+            "    for (i = 0; i < 20; i = i + 1) {",
+            "        seed = (seed * 1103 + 12345) % 10007;",
+            "        a[i] = seed;",
+            "        p = p + q; q = q + r; r = r + s; s = s + t; t = t + p;",
+            "        int tmp = p; p = q; q = tmp;",
+            "        if (i % 3 == 0) g = g + i;",
+            "    }",
+            "    sort(a, 20);",
+            "    printf(\"%d %d %d\\n\", a[0], a[10], a[19]);",
+            "    printf(\"%d %d %d\\n\", g, mul(p, q), f5(p, q, r, s, t));",
+            "    return 0;",
+            "}",
+            "");
+
+    // char全局数组的初值是驻留常量，曾被就地改成i8，污染之后所有编译中的同值常量
+    private static final String CHAR_SOURCE = String.join("\n",
+            "char c[2] = {1, 2};",
+            "int main() {",
+            "    printf(\"%d\\n\", c[1]);",
+            "    return 0;",
+            "}",
+            "");
+
+    private static final String INT_SOURCE = String.join("\n",
+            "int main() {",
+            "    int arr[2];",
+            "    arr[0] = 300;",
+            "    arr[0] = 1;",
+            "    arr[1] = 2;",
+            "    printf(\"%d %d\\n\", arr[0], arr[1]);",
+            "    return 0;",
+            "}",
+            "");
+
+    public static void main(String[] args) throws Exception {
+        int failures = 0;
+        // 必须最先运行：对照结果要在任何char程序编译之前取得
+        for (Allocator allocator: Allocator.values()) {
+            Map<Artifact, byte[]> fresh = compile(INT_SOURCE, allocator);
+            compile(CHAR_SOURCE, allocator);
+            Map<Artifact, byte[]> after = compile(INT_SOURCE, allocator);
+            for (Map.Entry<Artifact, byte[]> entry: fresh.entrySet()) {
+                if (!Arrays.equals(entry.getValue(), after.get(entry.getKey()))) {
+                    System.err.println(allocator + ": " + entry.getKey().getOption()
+                            + " differs after compiling a char global");
+                    failures++;
+                }
+            }
+        }
+        for (Allocator allocator: Allocator.values()) {
+            Map<Artifact, byte[]> first = compile(SOURCE, allocator);
+            for (int round = 1; round < ROUNDS; round++) {
+                Map<Artifact, byte[]> next = compile(SOURCE, allocator);
+                for (Map.Entry<Artifact, byte[]> entry: first.entrySet()) {
+                    if (!Arrays.equals(entry.getValue(), next.get(entry.getKey()))) {
+                        System.err.println(allocator + ": " + entry.getKey().getOption()
+                                + " differs in round " + round);
+                        failures++;
+                    }
+                }
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+        System.out.println("DeterminismTest passed");
+    }
+
+    private static Map<Artifact, byte[]> compile(String source, Allocator allocator) throws Exception {
+        Map<Artifact, ByteArrayOutputStream> streams = new EnumMap<>(Artifact.class);
+        CompilationContext context = new CompilationContext(CharBuffer.wrap(source), artifact -> {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            streams.put(artifact, stream);
+            return stream;
+        });
+        context.configure(new String[]{"--regalloc=" + allocator.name().toLowerCase()});
+        Compiler.compile(context);
+        Map<Artifact, byte[]> result = new EnumMap<>(Artifact.class);
+        for (Map.Entry<Artifact, ByteArrayOutputStream> entry: streams.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return result;
+    }
+}
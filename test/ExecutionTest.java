@@ -0,0 +1,192 @@
+import middle.optimizer.Optimizer.Allocator;
+import utils.CompilationContext;
+import utils.FileIO.Artifact;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用各寄存器分配器编译程序，在MipsSimulator上运行生成的mips.txt，输出必须与预期相同。
+ * 预期结果由gcc编译同一程序得到
+ * <p>
+ * 运行：javac -d out $(find src test -name '*.java') && java -cp out ExecutionTest
+ */
+public class ExecutionTest {
+    private static final long MAX_STEPS = 50_000_000L;
+
+    // 多参数调用、递归、全局数组与字符串，覆盖传参、调用处的寄存器保存与返回值
+    private static final String CALLS = String.join("\n",
+            "int g[10];",
+            "char s[4] = \"ab\";",
+            "int f(int a, int b, int c, int d, int e) {",
+            "    return a + b * c - d / e + e % 3;",
+            "}",
+            "int fib(int n) {",
+            "    if (n < 2) {",
+            "        return n;",
+            "    }",
+            "    return fib(n - 1) + fib(n - 2);",
+            "}",
+            "int gcd(int a, int b) {",
+            "    if (b == 0) {",
+            "        return a;",
+            "    }",
+            "    return gcd(b, a % b);",
+            "}",
+            "int main() {",
+            "    int i, n, x = 0;",
+            "    n = getint();",
+            "    for (i = 0; i < 10; i = i + 1) {",
+            "        g[i] = f(i, 2, 3, 4, i + 1);",
+            "        x = x + g[i];",
+            "    }",
+            "    printf(\"x=%d %c\\n\", x, s[1]);",
+            "    printf(\"%d %d %d\\n\", fib(n), gcd(fib(20), fib(n) * 4), gcd(x, 12));",
+            "    return 0;",
+            "}",
+            "");
+
+    // 十余个乘常数的结果同时活跃，部分溢出到栈上；乘法化为移位时结果也要写回栈
+    private static final String MUL_SPILL = String.join("\n",
+            "int h(int a) {",
+            "    int c1 = a * 3, c2 = a * 5, c3 = a + 1, c4 = a - 2, c5 = a * 7, c6 = a + 7, c7 = a + 11, c8 = a * a;",
+            "    int c9 = a * 9, c10 = a + 13, c11 = a - 17, c12 = a * 19, c13 = a + 21, c14 = a * 23, c15 = a - 25;",
+            "    int c16 = a * 27, c17 = a + 29, c18 = a * 31;",
+            "    return c1 + c2 * c3 - c4 + c5 * c6 - c7 + c8 * c9 - c10 + c11 * c12 + c13 * c14 - c15 + c16 * c17 - c18;",
+            "}",
+            "int main() {",
+            "    printf(\"%d %d %d\\n\", h(-5), h(7), h(0));",
+            "    return 0;",
+            "}",
+            "");
+
+    // 比较提到循环外而与跳转分开，跳转处读比较的操作数，其寄存器要保留到跳转
+    private static final String FUSED_COMPARE = String.join("\n",
+            "int g[16];",
+            "int f(int p0, int p1, int p2, int p3, int p4, int p5) {",
+            "    int v0 = (p5 % 16 - p2 * p0) % 100 * (p0 * p2 - p2 + p2);",
+            "    int v1 = -18 / 7;",
+            "    int v2 = -13 - (-8 + v1 + v1) + (p3 / 3 + p2 + v1) * 18;",
+            "    int v3 = v1 / 10 / 3 * (p5 * 26 * v0) * ((v2 - p0) * -3);",
+            "    int v5 = g[15] * (p0 + p4) - (v1 + 35) * -12 - 13;",
+            "    int i;",
+            "    for (i = 0; i < 2; i = i + 1) {",
+            "        v3 = g[7] / 3 % 1000;",
+            "        if (p1 > p2) {",
+            "            v3 = v3 - 1;",
+            "        }",
+            "        v2 = p3 % 1000;",
+            "        if (p0 > v1) {",
+            "            v2 = v2 - 1;",
+            "        }",
+            "    }",
+            "    return (v3 + v0 + v5 + p4 + v2) % 10000;",
+            "}",
+            "int main() {",
+            "    int i, s = 0, a = 15, b = 14;",
+            "    for (i = 0; i < 3; i = i + 1) {",
+            "        s = (s + f(i, b, a, i, s, b)) % 100000;",
+            "        b = (b + 19) % 1000;",
+            "    }",
+            "    printf(\"%d %d\\n\", s, b);",
+            "    return 0;",
+            "}",
+            "");
+
+    // mid与top在序言保存自己用的$s，调用时又要在调用处保存同一$s，两者的栈位置曾经相同
+    private static final String CALLEE_SAVED = String.join("\n",
+            "int heavy(int a) {",
+            "    int c1 = a * 3, c2 = a * 5, c3 = a + 1, c4 = a - 2, c5 = a * 7, c6 = a + 7, c7 = a + 11, c8 = a * a;",
+            "    int c9 = a * 9, c10 = a + 13, c11 = a - 17, c12 = a * 19, c13 = a + 21, c14 = a * 23, c15 = a - 25;",
+            "    int c16 = a * 27, c17 = a + 29, c18 = a * 31;",
+            "    return c1 + c2 * c3 - c4 + c5 * c6 - c7 + c8 * c9 - c10 + c11 * c12 + c13 * c14 - c15 + c16 * c17 - c18;",
+            "}",
+            "int mid(int a, int b) {",
+            "    int x1 = a * 2, x2 = b * 3, x3 = a + b, x4 = a - b, x5 = a * b, x6 = a + 5, x7 = b + 9, x8 = a * 7;",
+            "    int x9 = b * 11, x10 = a + 23, x11 = b - 29, x12 = a * 31;",
+            "    int r = heavy((a + b) % 50);",
+            "    return r + x1 + x2 * x3 - x4 + x5 * x6 - x7 + x8 * x9 - x10 + x11 * x12;",
+            "}",
+            "int top(int a) {",
+            "    int z1 = a * 4, z2 = a + 6, z3 = a - 8, z4 = a * 10, z5 = a + 12, z6 = a * 14;",
+            "    int m = mid(a, a + 1) % 1000;",
+            "    return m + z1 * z2 - z3 + z4 * z5 - z6;",
+            "}",
+            "int main() {",
+            "    int i, s = 0;",
+            "    int y1 = 3, y2 = 5, y3 = 7, y4 = 11, y5 = 13, y6 = 17, y7 = 19, y8 = 23;",
+            "    for (i = 0; i < 10; i = i + 1) {",
+            "        s = (s + mid(i, y1 % 10) + top(y2 % 10)) % 10000;",
+            "        y1 = y1 + y2; y2 = y2 + y3; y3 = y3 + y4; y4 = y4 + y5;",
+            "        y5 = y5 + y6; y6 = y6 + y7; y7 = y7 + y8; y8 = y8 + y1;",
+            "    }",
+            "    printf(\"%d %d %d %d %d %d %d %d %d\\n\", s, y1, y2, y3, y4, y5, y6, y7, y8);",
+            "    return 0;",
+            "}",
+            "");
+
+    // 循环中寄存器压力大，区间分配会分裂比较的操作数；比较只被br使用，跳转处要读到正确的子区间
+    private static final String BRANCH_PRESSURE = String.join("\n",
+            "int sum3(int a, int b, int c) {",
+            "    return a + b * 2 + c * 3;",
+            "}",
+            "int work(int n, int lim) {",
+            "    int k1 = n * 3, k2 = n + 7, k3 = n - 5, k4 = n * 11, k5 = n + 13, k6 = n * 17;",
+            "    int k7 = n - 19, k8 = n * 23, k9 = n + 29, k10 = n * 31, k11 = n - 37, k12 = n * 41;",
+            "    int i, acc = 0;",
+            "    for (i = 0; i < 6; i = i + 1) {",
+            "        acc = (acc + sum3(sum3(k1, k2, i), sum3(k3, k4, acc), sum3(k5, k6, k7))) % 1000;",
+            "        acc = (acc + sum3(sum3(k8, k9, i), sum3(k10, k11, acc), k12)) % 1000;",
+            "        if (n > lim) {",
+            "            acc = acc - 1;",
+            "        }",
+            "    }",
+            "    return acc;",
+            "}",
+            "int main() {",
+            "    printf(\"%d %d\\n\", work(5, 3), work(2, 9));",
+            "    return 0;",
+            "}",
+            "");
+
+    public static void main(String[] args) throws Exception {
+        int failures = 0;
+        failures += check("calls", CALLS, "15\n", "x=107 b\n610 5 1\n");
+        failures += check("mul spill", MUL_SPILL, "", "-3922 13814 3\n");
+        failures += check("fused compare", FUSED_COMPARE, "", "1475 71\n");
+        failures += check("callee saved", CALLEE_SAVED, "", "3335 15950 17022 16728 16128 16914 19969 24717 29628\n");
+        failures += check("branch under pressure", BRANCH_PRESSURE, "", "772 872\n");
+        if (failures > 0) {
+            System.exit(1);
+        }
+        System.out.println("ExecutionTest passed");
+    }
+
+    private static int check(String name, String source, String input, String expected) throws Exception {
+        int failures = 0;
+        for (Allocator allocator: Allocator.values()) {
+            String output;
+            try {
+                output = new MipsSimulator(compile(source, allocator), input).run(MAX_STEPS);
+            } catch (RuntimeException e) {
+                output = e.toString();
+            }
+            if (!output.equals(expected)) {
+                System.err.println(allocator + ": " + name + " printed \"" + output
+                        + "\", expected \"" + expected + "\"");
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    private static String compile(String source, Allocator allocator) throws Exception {
+        ByteArrayOutputStream mips = new ByteArrayOutputStream();
+        CompilationContext context = new CompilationContext(CharBuffer.wrap(source), artifact ->
+                artifact == Artifact.MIPS ? mips : new ByteArrayOutputStream());
+        context.configure(new String[]{"--regalloc=" + allocator.name().toLowerCase()});
+        Compiler.compile(context);
+        return new String(mips.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
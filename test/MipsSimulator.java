@@ -0,0 +1,411 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 测试用的MIPS解释器，只覆盖Translator会生成的指令与伪指令，以及putint/putch/putstr/getint/getchar/exit几个系统调用。
+ * 内存分数据段与栈两块，布局与MARS相同；访问越界、未对齐或未知指令时抛出异常，便于发现错误的代码
+ */
+public class MipsSimulator {
+    private static final int DATA_BASE = 0x10010000;
+    private static final int STACK_TOP = 0x7fffeffc;
+    private static final int STACK_SIZE = 4 << 20;
+    private static final String[] REG_NAMES = {
+        "$zero", "$at", "$v0", "$v1", "$a0", "$a1", "$a2", "$a3",
+        "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7",
+        "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7",
+        "$t8", "$t9", "$k0", "$k1", "$gp", "$sp", "$fp", "$ra"
+    };
+    private static final Map<String, Integer> REG_NO = new HashMap<>();
+
+    static {
+        for (int i = 0; i < REG_NAMES.length; i++) {
+            REG_NO.put(REG_NAMES[i], i);
+        }
+    }
+
+    private final byte[] data = new byte[1 << 20];
+    private final byte[] stack = new byte[STACK_SIZE];
+    private int dataSize = 0;
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final ArrayList<String[]> text = new ArrayList<>();  // 每条指令：助记符与各操作数
+    private final int[] regs = new int[32];
+    private int hi;
+    private int lo;
+    private final StringBuilder output = new StringBuilder();
+    private final String input;
+    private int inputPos = 0;
+
+    public MipsSimulator(String program, String input) {
+        this.input = input;
+        load(program);
+    }
+
+    /**
+     * @param maxSteps 执行的指令数上限，超出时认为死循环
+     * @return 程序的标准输出
+     */
+    public String run(long maxSteps) {
+        regs[29] = STACK_TOP;
+        regs[28] = 0x10008000;
+        int pc = labels.get("main");
+        for (long step = 0; step < maxSteps; step++) {
+            if (pc < 0 || pc >= text.size()) {
+                throw new IllegalStateException("pc out of text: " + pc);
+            }
+            String[] ins = text.get(pc);
+            int next = pc + 1;
+            switch (ins[0]) {
+                case "nop":
+                    break;
+                case "li":
+                    set(ins[1], imm(ins[2]));
+                    break;
+                case "la":
+                    set(ins[1], label(ins[2]));
+                    break;
+                case "move":
+                    set(ins[1], reg(ins[2]));
+                    break;
+                case "addu":
+                case "addiu":
+                    set(ins[1], reg(ins[2]) + value(ins[3]));
+                    break;
+                case "subu":
+                case "subi":
+                    set(ins[1], reg(ins[2]) - value(ins[3]));
+                    break;
+                case "sll":
+                    set(ins[1], reg(ins[2]) << value(ins[3]));
+                    break;
+                case "or":
+                case "ori":
+                    set(ins[1], reg(ins[2]) | (ins[0].equals("ori") ? value(ins[3]) & 0xffff : value(ins[3])));
+                    break;
+                case "and":
+                case "andi":
+                    set(ins[1], reg(ins[2]) & (ins[0].equals("andi") ? value(ins[3]) & 0xffff : value(ins[3])));
+                    break;
+                case "slt":
+                case "slti":
+                    set(ins[1], reg(ins[2]) < value(ins[3]) ? 1 : 0);
+                    break;
+                case "seq":
+                    set(ins[1], reg(ins[2]) == value(ins[3]) ? 1 : 0);
+                    break;
+                case "sne":
+                    set(ins[1], reg(ins[2]) != value(ins[3]) ? 1 : 0);
+                    break;
+                case "mult": {
+                    long product = (long) reg(ins[1]) * value(ins[2]);
+                    lo = (int) product;
+                    hi = (int) (product >>> 32);
+                    break;
+                }
+                case "div": {
+                    int divisor = value(ins[2]);
+                    if (divisor != 0) {     // 与MARS一样，除零时不改hi、lo
+                        lo = reg(ins[1]) / divisor;
+                        hi = reg(ins[1]) % divisor;
+                    }
+                    break;
+                }
+                case "mfhi":
+                    set(ins[1], hi);
+                    break;
+                case "mflo":
+                    set(ins[1], lo);
+                    break;
+                case "beq":
+                    next = branch(reg(ins[1]) == value(ins[2]), ins[3], next);
+                    break;
+                case "bne":
+                    next = branch(reg(ins[1]) != value(ins[2]), ins[3], next);
+                    break;
+                case "blt":
+                    next = branch(reg(ins[1]) < value(ins[2]), ins[3], next);
+                    break;
+                case "ble":
+                    next = branch(reg(ins[1]) <= value(ins[2]), ins[3], next);
+                    break;
+                case "bgt":
+                    next = branch(reg(ins[1]) > value(ins[2]), ins[3], next);
+                    break;
+                case "bge":
+                    next = branch(reg(ins[1]) >= value(ins[2]), ins[3], next);
+                    break;
+                case "bgtz":
+                    next = branch(reg(ins[1]) > 0, ins[2], next);
+                    break;
+                case "sw":
+                    storeWord(address(ins[2]), reg(ins[1]));
+                    break;
+                case "sb":
+                    storeByte(address(ins[2]), reg(ins[1]));
+                    break;
+                case "lw":
+                    set(ins[1], loadWord(address(ins[2])));
+                    break;
+                case "lb":
+                    set(ins[1], loadByte(address(ins[2])));
+                    break;
+                case "j":
+                    next = target(ins[1]);
+                    break;
+                case "jal":
+                    regs[31] = next;
+                    next = target(ins[1]);
+                    break;
+                case "jalr":
+                    regs[31] = next;
+                    next = reg(ins[1]);
+                    break;
+                case "jr":
+                    next = reg(ins[1]);
+                    break;
+                case "syscall":
+                    if (syscall()) {
+                        return output.toString();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unknown instruction: " + String.join(" ", ins));
+            }
+            pc = next;
+        }
+        throw new IllegalStateException("step limit exceeded");
+    }
+
+    private boolean syscall() {
+        switch (regs[2]) {
+            case 1:
+                output.append(regs[4]);
+                return false;
+            case 4:
+                for (int addr = regs[4]; loadByte(addr) != 0; addr++) {
+                    output.append((char) (loadByte(addr) & 0xff));
+                }
+                return false;
+            case 5:
+                set("$v0", readInt());
+                return false;
+            case 10:
+                return true;
+            case 11:
+                output.append((char) (regs[4] & 0xff));
+                return false;
+            case 12:
+                set("$v0", inputPos < input.length() ? input.charAt(inputPos++) : -1);
+                return false;
+            default:
+                throw new IllegalStateException("unknown syscall: " + regs[2]);
+        }
+    }
+
+    private int readInt() {
+        while (inputPos < input.length() && Character.isWhitespace(input.charAt(inputPos))) {
+            inputPos++;
+        }
+        int start = inputPos;
+        if (inputPos < input.length() && input.charAt(inputPos) == '-') {
+            inputPos++;
+        }
+        while (inputPos < input.length() && Character.isDigit(input.charAt(inputPos))) {
+            inputPos++;
+        }
+        return Integer.parseInt(input.substring(start, inputPos));
+    }
+
+    private void load(String program) {
+        boolean inData = false;
+        for (String raw: program.split("\n")) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.equals(".data")) {
+                inData = true;
+                continue;
+            }
+            if (line.equals(".text")) {
+                inData = false;
+                continue;
+            }
+            int colon = labelEnd(line);
+            if (colon >= 0) {
+                String name = line.substring(0, colon).trim();
+                line = line.substring(colon + 1).trim();
+                if (inData) {
+                    defineData(name, line);
+                    continue;
+                }
+                labels.put(name, text.size());
+                if (line.isEmpty()) {
+                    continue;
+                }
+            }
+            int space = line.indexOf(' ');
+            String op = space < 0 ? line : line.substring(0, space);
+            String[] args = space < 0 ? new String[0] : line.substring(space + 1).split(",\\s*");
+            String[] ins = new String[args.length + 1];
+            ins[0] = op;
+            for (int i = 0; i < args.length; i++) {
+                ins[i + 1] = args[i].trim();
+            }
+            text.add(ins);
+        }
+    }
+
+    // 行首的标签以冒号结束，字符串里的冒号不算
+    private static int labelEnd(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ':') {
+                return i;
+            }
+            if (c == ' ' || c == '\t' || c == '"') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void defineData(String name, String directive) {
+        int space = directive.indexOf(' ');
+        String type = directive.substring(0, space);
+        String init = directive.substring(space + 1).trim();
+        if (type.equals(".word")) {
+            dataSize = (dataSize + 3) & ~3;
+        }
+        labels.put(name, DATA_BASE + dataSize);
+        int width = type.equals(".word") ? 4 : 1;
+        if (type.equals(".asciiz")) {
+            String s = init.substring(1, init.lastIndexOf('"'));
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '\\' && i + 1 < s.length()) {
+                    char e = s.charAt(++i);
+                    c = e == 'n' ? '\n' : e == 't' ? '\t' : e == '0' ? '\0' : e;
+                }
+                data[dataSize++] = (byte) c;
+            }
+            data[dataSize++] = 0;
+        } else if (init.contains(":")) {    // value:count
+            String[] parts = init.split(":");
+            int v = Integer.parseInt(parts[0].trim());
+            int count = Integer.parseInt(parts[1].trim());
+            for (int i = 0; i < count; i++) {
+                storeData(v, width);
+            }
+        } else {
+            for (String item: init.split(",")) {
+                storeData(Integer.parseInt(item.trim()), width);
+            }
+        }
+    }
+
+    private void storeData(int v, int width) {
+        int addr = DATA_BASE + dataSize;
+        dataSize += width;
+        if (width == 4) {
+            storeWord(addr, v);
+        } else {
+            storeByte(addr, v);
+        }
+    }
+
+    private int branch(boolean taken, String label, int next) {
+        return taken ? target(label) : next;
+    }
+
+    private int target(String label) {
+        Integer pc = labels.get(label);
+        if (pc == null) {
+            throw new IllegalStateException("unknown label: " + label);
+        }
+        return pc;
+    }
+
+    private int label(String name) {
+        return target(name);
+    }
+
+    private int reg(String name) {
+        Integer no = REG_NO.get(name);
+        if (no == null) {
+            throw new IllegalStateException("unknown register: " + name);
+        }
+        return regs[no];
+    }
+
+    private void set(String name, int v) {
+        Integer no = REG_NO.get(name);
+        if (no == null) {
+            throw new IllegalStateException("unknown register: " + name);
+        }
+        if (no != 0) {
+            regs[no] = v;
+        }
+    }
+
+    private static int imm(String s) {
+        return Integer.decode(s);
+    }
+
+    // 第二个源操作数可以是寄存器或立即数
+    private int value(String s) {
+        return s.startsWith("$") ? reg(s) : imm(s);
+    }
+
+    private int address(String operand) {
+        int paren = operand.indexOf('(');
+        if (paren < 0) {
+            return label(operand);
+        }
+        int offset = paren == 0 ? 0 : imm(operand.substring(0, paren));
+        return reg(operand.substring(paren + 1, operand.length() - 1)) + offset;
+    }
+
+    private byte[] segment(int addr) {
+        if (addr >= DATA_BASE && addr < DATA_BASE + data.length) {
+            return data;
+        }
+        if (addr <= STACK_TOP + 3 && addr > STACK_TOP - STACK_SIZE + 4) {
+            return stack;
+        }
+        throw new IllegalStateException(String.format("bad address 0x%08x", addr));
+    }
+
+    private int index(int addr) {
+        return addr >= DATA_BASE && addr < DATA_BASE + data.length
+                ? addr - DATA_BASE : STACK_SIZE - 4 - (STACK_TOP - addr);
+    }
+
+    private void storeByte(int addr, int v) {
+        segment(addr)[index(addr)] = (byte) v;
+    }
+
+    private int loadByte(int addr) {
+        return segment(addr)[index(addr)];
+    }
+
+    private void storeWord(int addr, int v) {
+        if ((addr & 3) != 0) {
+            throw new IllegalStateException(String.format("unaligned address 0x%08x", addr));
+        }
+        for (int i = 0; i < 4; i++) {
+            storeByte(addr + i, v >> (8 * i));
+        }
+    }
+
+    private int loadWord(int addr) {
+        if ((addr & 3) != 0) {
+            throw new IllegalStateException(String.format("unaligned address 0x%08x", addr));
+        }
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            v |= (loadByte(addr + i) & 0xff) << (8 * i);
+        }
+        return v;
+    }
+}